@@ -0,0 +1,4 @@
+#!/bin/sh
+# Разрешение потоковой репликации для реплики чтения (выполняется при первой инициализации БД)
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
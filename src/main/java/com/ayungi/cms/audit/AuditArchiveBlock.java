@@ -0,0 +1,71 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Запись индекса блока архива: положение в файле и сводка для пропуска блоков
+ *
+ * @param offset смещение сжатых данных
+ * @param compressedLength длина сжатых данных
+ * @param rawLength длина после распаковки
+ * @param recordCount количество записей
+ * @param minTimestamp минимальное время (epoch millis, UTC)
+ * @param maxTimestamp максимальное время (epoch millis, UTC)
+ * @param userMask маска ID пользователей (бит на хеш ID, события без пользователя не учитываются)
+ * @param actionMask маска действий (бит на AuditAction)
+ */
+record AuditArchiveBlock(
+        long offset,
+        int compressedLength,
+        int rawLength,
+        int recordCount,
+        long minTimestamp,
+        long maxTimestamp,
+        long userMask,
+        int actionMask) {
+
+    /**
+     * Может ли блок содержать записи, подходящие под запрос
+     */
+    boolean mayMatch(AuditArchiveQuery query) {
+        if (query.startDate() != null && maxTimestamp < toEpochMillis(query.startDate())) {
+            return false;
+        }
+        if (query.endDate() != null && minTimestamp > toEpochMillis(query.endDate())) {
+            return false;
+        }
+        if (query.userId() != null && (userMask & userBit(query.userId())) == 0) {
+            return false;
+        }
+        return query.action() == null || (actionMask & actionBit(query.action())) != 0;
+    }
+
+    /**
+     * Все записи блока гарантированно подходят под запрос (только фильтр по времени)
+     */
+    boolean fullyMatches(AuditArchiveQuery query) {
+        return query.timeOnly()
+                && (query.startDate() == null || minTimestamp > toEpochMillis(query.startDate()))
+                && (query.endDate() == null || maxTimestamp < toEpochMillis(query.endDate()));
+    }
+
+    static long userBit(UUID userId) {
+        if (userId == null) {
+            return 0;
+        }
+        long hash = userId.getMostSignificantBits() ^ userId.getLeastSignificantBits();
+        return 1L << (int) ((hash ^ (hash >>> 32)) & 63);
+    }
+
+    static int actionBit(AuditAction action) {
+        return 1 << action.ordinal();
+    }
+
+    static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
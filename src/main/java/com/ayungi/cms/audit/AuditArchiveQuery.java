@@ -0,0 +1,32 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Фильтр поиска по архиву аудита (null — без ограничения)
+ */
+public record AuditArchiveQuery(
+        UUID userId,
+        AuditAction action,
+        String entityType,
+        LocalDateTime startDate,
+        LocalDateTime endDate) {
+
+    boolean matches(AuditEvent event) {
+        return (userId == null || userId.equals(event.userId()))
+                && (action == null || action == event.action())
+                && (entityType == null || entityType.equals(event.entityType()))
+                && (startDate == null || !event.timestamp().isBefore(startDate))
+                && (endDate == null || !event.timestamp().isAfter(endDate));
+    }
+
+    /**
+     * Запрос без фильтров по содержимому: блок целиком внутри периода можно учесть по счетчику
+     */
+    boolean timeOnly() {
+        return userId == null && action == null && entityType == null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.ayungi.cms.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Чтение архива аудита: сегменты отображаются в память, блоки отсеиваются
+ * по сводке индекса (период, маска пользователей, маска действий) без распаковки.
+ * Результаты отдаются в порядке убывания времени, как и запросы к audit_logs.
+ */
+@Component
+@Slf4j
+public class AuditArchiveReader {
+
+    static final Pattern FILE_NAME = Pattern.compile("audit-(\\d{4})-(\\d{2})-(\\d{3})\\.arc");
+
+    private final Path directory;
+    private final Map<Path, AuditArchiveSegment> segments = new ConcurrentHashMap<>();
+
+    public AuditArchiveReader(@Value("${audit.archive.directory:data/audit-archive}") String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    /**
+     * Есть ли в архиве месяцы, пересекающиеся с периодом
+     */
+    public boolean covers(LocalDateTime startDate, LocalDateTime endDate) {
+        return listFiles().stream().anyMatch(file -> overlaps(file.month(), startDate, endDate));
+    }
+
+    /**
+     * Количество записей архива, подходящих под запрос.
+     * Подсчеты сегментов кэшируются, поэтому страницы одного запроса не пересчитывают архив
+     */
+    public long count(AuditArchiveQuery query) {
+        long total = 0;
+        for (ArchiveFile file : listFiles()) {
+            if (overlaps(file.month(), query.startDate(), query.endDate())) {
+                total += segment(file.path()).count(query);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Оценка количества записей архива сверху: сумма записей блоков, которые могут подходить
+     * (по сводке индекса, без распаковки блоков)
+     */
+    public long estimate(AuditArchiveQuery query) {
+        long total = 0;
+        for (ArchiveFile file : listFiles()) {
+            if (!overlaps(file.month(), query.startDate(), query.endDate())) {
+                continue;
+            }
+            for (AuditArchiveBlock block : segment(file.path()).blocks()) {
+                if (block.mayMatch(query)) {
+                    total += block.recordCount();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Поиск записей архива в порядке убывания времени
+     *
+     * @param offset сколько подходящих записей пропустить
+     * @param limit максимум записей в результате
+     */
+    public List<AuditEvent> find(AuditArchiveQuery query, long offset, int limit) {
+        List<AuditEvent> result = new ArrayList<>(limit);
+        long toSkip = offset;
+
+        for (ArchiveFile file : listFiles()) {
+            if (!overlaps(file.month(), query.startDate(), query.endDate())) {
+                continue;
+            }
+            AuditArchiveSegment segment = segment(file.path());
+            List<AuditArchiveBlock> blocks = segment.blocks();
+            for (int b = blocks.size() - 1; b >= 0; b--) {
+                AuditArchiveBlock block = blocks.get(b);
+                if (block.fullyMatches(query) && toSkip >= block.recordCount()) {
+                    toSkip -= block.recordCount();
+                    continue;
+                }
+                if (!block.mayMatch(query)) {
+                    continue;
+                }
+
+                List<AuditEvent> events = segment.readBlock(block);
+                for (int i = events.size() - 1; i >= 0; i--) {
+                    AuditEvent event = events.get(i);
+                    if (!query.matches(event)) {
+                        continue;
+                    }
+                    if (toSkip > 0) {
+                        toSkip--;
+                        continue;
+                    }
+                    result.add(event);
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Сброс открытых сегментов месяца (перед заменой файлов архиватором)
+     */
+    void evict(YearMonth month) {
+        segments.keySet().removeIf(path -> {
+            Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+            return matcher.matches() && monthOf(matcher).equals(month);
+        });
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Файлы архива: месяцы по убыванию, части месяца по убыванию
+     */
+    List<ArchiveFile> listFiles() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> {
+                        Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+                        return matcher.matches()
+                                ? new ArchiveFile(path, monthOf(matcher), Integer.parseInt(matcher.group(3)))
+                                : null;
+                    })
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(ArchiveFile::month).thenComparing(ArchiveFile::part).reversed())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать каталог архива аудита", e);
+        }
+    }
+
+    private AuditArchiveSegment segment(Path path) {
+        return segments.computeIfAbsent(path, p -> {
+            try {
+                return AuditArchiveSegment.open(p);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static boolean overlaps(YearMonth month, LocalDateTime startDate, LocalDateTime endDate) {
+        return (startDate == null || month.plusMonths(1).atDay(1).atStartOfDay().isAfter(startDate))
+                && (endDate == null || !month.atDay(1).atStartOfDay().isAfter(endDate));
+    }
+
+    private static YearMonth monthOf(Matcher matcher) {
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+
+    record ArchiveFile(Path path, YearMonth month, int part) {
+    }
+}
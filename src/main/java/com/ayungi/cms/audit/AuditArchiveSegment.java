@@ -0,0 +1,151 @@
+package com.ayungi.cms.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Открытый только для чтения сегмент архива аудита, отображенный в память
+ */
+final class AuditArchiveSegment {
+
+    /**
+     * Максимум запомненных подсчетов сегмента (при превышении кэш сбрасывается)
+     */
+    private static final int MAX_CACHED_COUNTS = 256;
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final List<AuditArchiveBlock> blocks;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    /**
+     * Подсчеты по запросам: записанный сегмент не меняется, а замененный архиватором
+     * сбрасывается вместе с кэшем ({@link AuditArchiveReader#evict})
+     */
+    private final Map<AuditArchiveQuery, Long> counts = new ConcurrentHashMap<>();
+
+    private AuditArchiveSegment(Path path, MappedByteBuffer data, List<AuditArchiveBlock> blocks) {
+        this.path = path;
+        this.data = data;
+        this.blocks = blocks;
+        this.minTimestamp = blocks.stream().mapToLong(AuditArchiveBlock::minTimestamp).min().orElse(Long.MAX_VALUE);
+        this.maxTimestamp = blocks.stream().mapToLong(AuditArchiveBlock::maxTimestamp).max().orElse(Long.MIN_VALUE);
+    }
+
+    static AuditArchiveSegment open(Path path) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int size = data.capacity();
+        if (size < AuditArchiveWriter.HEADER_SIZE + AuditArchiveWriter.TRAILER_SIZE
+                || data.getInt(0) != AuditArchiveWriter.MAGIC
+                || data.getInt(size - 4) != AuditArchiveWriter.MAGIC) {
+            throw new IOException("Некорректный сегмент архива аудита: " + path);
+        }
+
+        long indexOffset = data.getLong(size - AuditArchiveWriter.TRAILER_SIZE);
+        int blockCount = data.getInt(size - AuditArchiveWriter.TRAILER_SIZE + 8);
+        List<AuditArchiveBlock> blocks = new ArrayList<>(blockCount);
+        int position = (int) indexOffset;
+        for (int i = 0; i < blockCount; i++) {
+            blocks.add(new AuditArchiveBlock(
+                    data.getLong(position),
+                    data.getInt(position + 8),
+                    data.getInt(position + 12),
+                    data.getInt(position + 16),
+                    data.getLong(position + 20),
+                    data.getLong(position + 28),
+                    data.getLong(position + 36),
+                    data.getInt(position + 44)));
+            position += AuditArchiveWriter.INDEX_ENTRY_SIZE;
+        }
+        return new AuditArchiveSegment(path, data, List.copyOf(blocks));
+    }
+
+    Path path() {
+        return path;
+    }
+
+    List<AuditArchiveBlock> blocks() {
+        return blocks;
+    }
+
+    /**
+     * Количество записей сегмента, подходящих под запрос (повторный подсчет берется из кэша)
+     */
+    long count(AuditArchiveQuery query) {
+        AuditArchiveQuery key = clip(query);
+        Long cached = counts.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long total = 0;
+        for (AuditArchiveBlock block : blocks) {
+            if (block.fullyMatches(key)) {
+                total += block.recordCount();
+            } else if (block.mayMatch(key)) {
+                total += readBlock(block).stream().filter(key::matches).count();
+            }
+        }
+        if (counts.size() >= MAX_CACHED_COUNTS) {
+            counts.clear();
+        }
+        counts.put(key, total);
+        return total;
+    }
+
+    /**
+     * Границы периода, которые не отсекают ни одной записи сегмента, отбрасываются:
+     * запросы с любым периодом, покрывающим сегмент, используют одну запись кэша
+     */
+    private AuditArchiveQuery clip(AuditArchiveQuery query) {
+        boolean openStart = query.startDate() == null
+                || AuditArchiveBlock.toEpochMillis(query.startDate()) < minTimestamp;
+        boolean openEnd = query.endDate() == null
+                || AuditArchiveBlock.toEpochMillis(query.endDate()) > maxTimestamp;
+        return new AuditArchiveQuery(query.userId(), query.action(), query.entityType(),
+                openStart ? null : query.startDate(), openEnd ? null : query.endDate());
+    }
+
+    /**
+     * Распаковка блока (записи в порядке возрастания времени)
+     */
+    List<AuditEvent> readBlock(AuditArchiveBlock block) {
+        byte[] raw = new byte[block.rawLength()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice((int) block.offset(), block.compressedLength()));
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                length += inflater.inflate(raw, length, raw.length - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Поврежден блок архива аудита " + path + " @" + block.offset(), e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        List<AuditEvent> events = new ArrayList<>(block.recordCount());
+        while (in.hasRemaining()) {
+            int length = in.getInt();
+            events.add(AuditEventCodec.decode(in.slice(in.position(), length)));
+            in.position(in.position() + length);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,148 @@
+package com.ayungi.cms.audit;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Запись сегмента архива аудита.
+ * <p>
+ * Формат файла: заголовок {@code [magic:int][version:int]}, затем блоки, сжатые Deflater
+ * (внутри — записи {@code [длина:int][данные]} в порядке времени), затем индекс блоков
+ * по {@value #INDEX_ENTRY_SIZE} байт и трейлер {@code [смещение индекса:long][число блоков:int][magic:int]}.
+ * Запись индекса: смещение, сжатая и исходная длина, число записей, min/max timestamp,
+ * 64-битная маска ID пользователей и маска действий — по ним читатель пропускает блоки.
+ */
+final class AuditArchiveWriter implements Closeable {
+
+    static final int MAGIC = 0x434D5341;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int INDEX_ENTRY_SIZE = 48;
+    static final int TRAILER_SIZE = 16;
+
+    private final Path path;
+    private final int blockRecords;
+    private final OutputStream fileOut;
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final List<AuditArchiveBlock> blocks = new ArrayList<>();
+
+    private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(64 * 1024);
+    private final DataOutputStream blockOut = new DataOutputStream(blockBytes);
+    private int blockCount;
+    private long blockMinTimestamp;
+    private long blockMaxTimestamp;
+    private long blockUserMask;
+    private int blockActionMask;
+
+    private long position;
+
+    AuditArchiveWriter(Path path, int blockRecords) throws IOException {
+        this.path = path;
+        this.blockRecords = blockRecords;
+        this.fileOut = Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.out = new DataOutputStream(new BufferedOutputStream(fileOut, 256 * 1024));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        position = HEADER_SIZE;
+    }
+
+    /**
+     * Добавление события (события должны поступать в порядке возрастания времени)
+     */
+    void add(AuditEvent event) throws IOException {
+        long timestamp = AuditArchiveBlock.toEpochMillis(event.timestamp());
+        if (blockCount == 0) {
+            blockMinTimestamp = timestamp;
+        }
+        blockMaxTimestamp = timestamp;
+        blockUserMask |= AuditArchiveBlock.userBit(event.userId());
+        blockActionMask |= AuditArchiveBlock.actionBit(event.action());
+
+        byte[] record = AuditEventCodec.encode(event);
+        blockOut.writeInt(record.length);
+        blockOut.write(record);
+        if (++blockCount >= blockRecords) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Текущий размер файла (для разбиения архива на части)
+     */
+    long size() {
+        return position + blockBytes.size();
+    }
+
+    /**
+     * Завершение файла: последний блок, индекс, трейлер и сброс на диск
+     */
+    void finish() throws IOException {
+        flushBlock();
+
+        long indexOffset = position;
+        for (AuditArchiveBlock block : blocks) {
+            out.writeLong(block.offset());
+            out.writeInt(block.compressedLength());
+            out.writeInt(block.rawLength());
+            out.writeInt(block.recordCount());
+            out.writeLong(block.minTimestamp());
+            out.writeLong(block.maxTimestamp());
+            out.writeLong(block.userMask());
+            out.writeInt(block.actionMask());
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(blocks.size());
+        out.writeInt(MAGIC);
+        out.flush();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockCount == 0) {
+            return;
+        }
+
+        byte[] raw = blockBytes.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] chunk = new byte[64 * 1024];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.write(chunk, 0, length);
+            compressedLength += length;
+        }
+
+        blocks.add(new AuditArchiveBlock(position, compressedLength, raw.length, blockCount,
+                blockMinTimestamp, blockMaxTimestamp, blockUserMask, blockActionMask));
+        position += compressedLength;
+
+        blockBytes.reset();
+        blockCount = 0;
+        blockUserMask = 0;
+        blockActionMask = 0;
+    }
+}
@@ -0,0 +1,189 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Архивация устаревших секций audit_logs в сжатые сегменты на локальном диске.
+ * <p>
+ * Строки секции читаются одним курсором в порядке времени и пишутся потоково,
+ * без загрузки секции в память. Файлы месяца сначала пишутся во временные,
+ * затем атомарно заменяют прежние — повторная архивация той же секции безопасна.
+ */
+@Component
+@Slf4j
+public class AuditArchiver {
+
+    private static final int FETCH_SIZE = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final AuditArchiveReader archiveReader;
+    private final AuditDetailsJson detailsJson;
+    private final boolean enabled;
+    private final int blockRecords;
+    private final long maxSegmentBytes;
+
+    public AuditArchiver(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            AuditArchiveReader archiveReader,
+            AuditDetailsJson detailsJson,
+            @Value("${audit.archive.enabled:true}") boolean enabled,
+            @Value("${audit.archive.block-records:1024}") int blockRecords,
+            @Value("${audit.archive.max-segment-mb:1024}") int maxSegmentMb) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.archiveReader = archiveReader;
+        this.detailsJson = detailsJson;
+        this.enabled = enabled;
+        this.blockRecords = blockRecords;
+        this.maxSegmentBytes = maxSegmentMb * 1024L * 1024L;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Архивация таблицы секции за месяц
+     *
+     * @return количество заархивированных записей
+     */
+    public long archive(String table, YearMonth month) throws IOException {
+        Path directory = archiveReader.directory();
+        Files.createDirectories(directory);
+
+        ArchiveOutput output = new ArchiveOutput(directory, month);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "SELECT id, user_id, action, entity_type, entity_id, details, ip_address, timestamp " +
+                        "FROM " + table + " ORDER BY timestamp, id");
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) rs -> output.add(mapRow(rs))));
+            output.finish();
+        } catch (RuntimeException | IOException e) {
+            output.discard();
+            throw e;
+        }
+
+        if (output.records == 0) {
+            log.info("Секция {} пуста, архивация не требуется", table);
+            return 0;
+        }
+
+        archiveReader.evict(month);
+        output.publish();
+        log.info("Секция {} заархивирована: {} записей, файлов {}", table, output.records, output.parts.size());
+        return output.records;
+    }
+
+    private AuditEvent mapRow(ResultSet rs) throws SQLException {
+        return new AuditEvent(
+                rs.getObject("id", UUID.class),
+                rs.getObject("user_id", UUID.class),
+                AuditAction.valueOf(rs.getString("action")),
+                rs.getString("entity_type"),
+                rs.getString("entity_id"),
+                detailsJson.fromJson(rs.getString("details")),
+                rs.getString("ip_address"),
+                rs.getTimestamp("timestamp").toLocalDateTime());
+    }
+
+    /**
+     * Набор файлов архива одного месяца, разбитый на части по max-segment-mb
+     */
+    private final class ArchiveOutput {
+
+        private final Path directory;
+        private final YearMonth month;
+        private final List<Path> parts = new ArrayList<>();
+        private AuditArchiveWriter writer;
+        private long records;
+
+        private ArchiveOutput(Path directory, YearMonth month) {
+            this.directory = directory;
+            this.month = month;
+        }
+
+        void add(AuditEvent event) {
+            try {
+                if (writer == null) {
+                    Path part = directory.resolve(fileName(parts.size()) + ".tmp");
+                    parts.add(part);
+                    writer = new AuditArchiveWriter(part, blockRecords);
+                }
+                writer.add(event);
+                records++;
+                if (writer.size() >= maxSegmentBytes) {
+                    closeWriter();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            closeWriter();
+        }
+
+        void discard() throws IOException {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+
+        /**
+         * Замена прежних файлов месяца новыми
+         */
+        void publish() throws IOException {
+            for (AuditArchiveReader.ArchiveFile file : archiveReader.listFiles()) {
+                if (file.month().equals(month) && file.part() >= parts.size()) {
+                    Files.deleteIfExists(file.path());
+                }
+            }
+            for (int i = 0; i < parts.size(); i++) {
+                Files.move(parts.get(i), directory.resolve(fileName(i)),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        private void closeWriter() throws IOException {
+            if (writer != null) {
+                writer.finish();
+                writer.close();
+                writer = null;
+            }
+        }
+
+        private String fileName(int part) {
+            return String.format("audit-%d-%02d-%03d.arc", month.getYear(), month.getMonthValue(), part);
+        }
+    }
+}
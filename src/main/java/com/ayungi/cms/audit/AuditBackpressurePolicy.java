@@ -0,0 +1,22 @@
+package com.ayungi.cms.audit;
+
+/**
+ * Поведение публикации при заполненном буфере аудита
+ */
+public enum AuditBackpressurePolicy {
+    /**
+     * Ожидать освобождения места (не дольше настроенного таймаута, затем отбросить)
+     */
+    BLOCK,
+
+    /**
+     * Сразу отбросить событие, увеличив счетчик потерь
+     */
+    DROP,
+
+    /**
+     * Вытеснять пакеты в журнал на диске, когда буфер выше порога заполнения
+     * (при полностью заполненном буфере поведение как у BLOCK)
+     */
+    SPILL
+}
@@ -0,0 +1,196 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Схлопывание однотипных событий аудита перед записью.
+ * <p>
+ * События разрешенных действий с одинаковыми (пользователь, действие, тип сущности),
+ * пришедшие в пределах окна от первого события группы, записываются одной строкой:
+ * ID и время первого события, в деталях — {@code count} и {@code lastTimestamp}, IP — последнего.
+ * Остальные события (и всегда {@code TRANSFER}) проходят без задержки.
+ * <p>
+ * Используется одним потоком-потребителем {@link AuditPipeline}.
+ */
+@Component
+@ConditionalOnProperty(name = "audit.coalesce.enabled", havingValue = "true")
+@Slf4j
+public class AuditCoalescer {
+
+    /**
+     * Действия, которые всегда пишутся поштучно
+     */
+    private static final Set<AuditAction> NEVER_COALESCED = EnumSet.of(AuditAction.TRANSFER);
+
+    private final Set<AuditAction> actions;
+    private final long windowNanos;
+    private final int maxGroups;
+
+    /**
+     * Открытые группы в порядке появления (первая — самая старая)
+     */
+    private final Map<Key, Group> groups = new LinkedHashMap<>();
+
+    public AuditCoalescer(
+            @Value("${audit.coalesce.actions:LOGIN,LOGOUT}") List<AuditAction> actions,
+            @Value("${audit.coalesce.window-ms:5000}") long windowMs,
+            @Value("${audit.coalesce.max-groups:10000}") int maxGroups) {
+        this.actions = actions.isEmpty() ? EnumSet.noneOf(AuditAction.class) : EnumSet.copyOf(actions);
+        if (this.actions.removeAll(NEVER_COALESCED)) {
+            log.warn("Действия {} не схлопываются и будут записываться поштучно", NEVER_COALESCED);
+        }
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxGroups = maxGroups;
+        log.info("Схлопывание событий аудита: действия {}, окно {} мс", this.actions, windowMs);
+    }
+
+    /**
+     * Прием событий: несхлопываемые сразу добавляются в {@code out}, остальные — в группы
+     *
+     * @return количество событий, присоединенных к уже открытым группам
+     */
+    int accept(List<AuditEvent> events, List<AuditEvent> out, long nowNanos) {
+        int merged = 0;
+        for (AuditEvent event : events) {
+            if (!actions.contains(event.action())) {
+                out.add(event);
+                continue;
+            }
+
+            Key key = Key.of(event);
+            Group group = groups.get(key);
+            if (group == null) {
+                groups.put(key, new Group(event, nowNanos));
+                if (groups.size() > maxGroups) {
+                    drainOldest(out);
+                }
+            } else {
+                group.add(event);
+                merged++;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Выдача групп, окно которых истекло
+     */
+    void drainExpired(List<AuditEvent> out, long nowNanos) {
+        Iterator<Group> iterator = groups.values().iterator();
+        while (iterator.hasNext()) {
+            Group group = iterator.next();
+            if (nowNanos - group.openedNanos < windowNanos) {
+                // Группы упорядочены по времени открытия
+                return;
+            }
+            out.add(group.toEvent());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Выдача всех открытых групп (остановка конвейера)
+     */
+    void drainAll(List<AuditEvent> out) {
+        groups.values().forEach(group -> out.add(group.toEvent()));
+        groups.clear();
+    }
+
+    /**
+     * Схлопывание готового пакета целиком, без окна и открытых групп (безопасно из любого потока)
+     */
+    List<AuditEvent> coalesceBatch(List<AuditEvent> events) {
+        List<AuditEvent> out = new ArrayList<>(events.size());
+        Map<Key, Group> batchGroups = new LinkedHashMap<>();
+        for (AuditEvent event : events) {
+            if (!actions.contains(event.action())) {
+                out.add(event);
+                continue;
+            }
+            Key key = Key.of(event);
+            Group group = batchGroups.get(key);
+            if (group == null) {
+                batchGroups.put(key, new Group(event, 0));
+            } else {
+                group.add(event);
+            }
+        }
+        batchGroups.values().forEach(group -> out.add(group.toEvent()));
+        return out;
+    }
+
+    int pendingGroups() {
+        return groups.size();
+    }
+
+    private void drainOldest(List<AuditEvent> out) {
+        Iterator<Group> iterator = groups.values().iterator();
+        out.add(iterator.next().toEvent());
+        iterator.remove();
+    }
+
+    private record Key(UUID userId, AuditAction action, String entityType) {
+
+        static Key of(AuditEvent event) {
+            return new Key(event.userId(), event.action(), event.entityType());
+        }
+    }
+
+    /**
+     * Накопленная группа одинаковых событий
+     */
+    private static final class Group {
+
+        private final AuditEvent first;
+        private final long openedNanos;
+        private int count;
+        private LocalDateTime lastTimestamp;
+        private String lastIp;
+        private boolean sameEntity = true;
+
+        Group(AuditEvent first, long openedNanos) {
+            this.first = first;
+            this.openedNanos = openedNanos;
+            this.count = first.count();
+            this.lastTimestamp = first.lastTimestamp();
+            this.lastIp = first.ipAddress();
+        }
+
+        void add(AuditEvent event) {
+            count += event.count();
+            sameEntity &= Objects.equals(first.entityId(), event.entityId());
+            LocalDateTime last = event.lastTimestamp();
+            if (!last.isBefore(lastTimestamp)) {
+                lastTimestamp = last;
+                lastIp = event.ipAddress();
+            }
+        }
+
+        AuditEvent toEvent() {
+            if (count == 1) {
+                return first;
+            }
+            AuditDetails details = first.details()
+                    .with(AuditDetailKey.COUNT, (long) count)
+                    .with(AuditDetailKey.LAST_TIMESTAMP, lastTimestamp);
+            return new AuditEvent(first.id(), first.userId(), first.action(), first.entityType(),
+                    sameEntity ? first.entityId() : null, details, lastIp, first.timestamp());
+        }
+    }
+}
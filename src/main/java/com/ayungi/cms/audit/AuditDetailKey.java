@@ -0,0 +1,62 @@
+package com.ayungi.cms.audit;
+
+/**
+ * Ключи структурированных деталей аудита (имена полей в JSONB колонке details)
+ */
+public enum AuditDetailKey {
+
+    /**
+     * Описание действия
+     */
+    MESSAGE("message"),
+
+    /**
+     * Сумма перевода
+     */
+    AMOUNT("amount"),
+
+    /**
+     * ID карты-источника
+     */
+    FROM_CARD_ID("fromCardId"),
+
+    /**
+     * ID карты-получателя
+     */
+    TO_CARD_ID("toCardId"),
+
+    /**
+     * Маскированный номер карты
+     */
+    CARD_MASK("cardMask"),
+
+    /**
+     * Имя пользователя, над которым выполнено действие
+     */
+    USERNAME("username"),
+
+    /**
+     * Признак активности после действия
+     */
+    ENABLED("enabled"),
+
+    /**
+     * Количество схлопнутых событий (отсутствует у одиночного события)
+     */
+    COUNT("count"),
+
+    /**
+     * Время последнего из схлопнутых событий
+     */
+    LAST_TIMESTAMP("lastTimestamp");
+
+    private final String jsonName;
+
+    AuditDetailKey(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ayungi.cms.audit;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Структурированные детали события аудита.
+ * <p>
+ * Собираются на вызывающем потоке без форматирования строк: значения хранятся как есть,
+ * а в JSONB их сериализует поток записи конвейера. Допустимые типы значений —
+ * String, BigDecimal, Long, Boolean (UUID и перечисления сохраняются строкой).
+ */
+public final class AuditDetails {
+
+    private static final AuditDetails EMPTY = new AuditDetails(Map.of());
+
+    private final Map<String, Object> values;
+
+    private AuditDetails(Map<String, Object> values) {
+        this.values = values;
+    }
+
+    public static AuditDetails empty() {
+        return EMPTY;
+    }
+
+    public static AuditDetails message(String message) {
+        return EMPTY.with(AuditDetailKey.MESSAGE, message);
+    }
+
+    /**
+     * Восстановление деталей из прочитанного JSON (числа приводятся к BigDecimal или Long)
+     */
+    public static AuditDetails fromMap(Map<String, ?> map) {
+        if (map == null || map.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, Object> values = new LinkedHashMap<>(map.size() * 2);
+        map.forEach((key, value) -> {
+            Object normalized = normalize(value);
+            if (normalized != null) {
+                values.put(key, normalized);
+            }
+        });
+        return new AuditDetails(values);
+    }
+
+    /**
+     * Копия с добавленным значением (null значения не сохраняются)
+     */
+    public AuditDetails with(AuditDetailKey key, Object value) {
+        Object normalized = normalize(value);
+        if (normalized == null) {
+            return this;
+        }
+        Map<String, Object> copy = new LinkedHashMap<>(values);
+        copy.put(key.jsonName(), normalized);
+        return new AuditDetails(copy);
+    }
+
+    public Object get(AuditDetailKey key) {
+        return values.get(key.jsonName());
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Неизменяемое представление для сериализации
+     */
+    public Map<String, Object> asMap() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    private static Object normalize(Object value) {
+        return switch (value) {
+            case null -> null;
+            case String s -> s;
+            case BigDecimal d -> d;
+            case Boolean b -> b;
+            case Long l -> l;
+            case Integer i -> i.longValue();
+            case Short s -> s.longValue();
+            case Double d -> BigDecimal.valueOf(d);
+            case Float f -> new BigDecimal(f.toString());
+            case UUID id -> id.toString();
+            case Enum<?> e -> e.name();
+            default -> value.toString();
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof AuditDetails other && values.equals(other.values));
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.ayungi.cms.audit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Преобразование деталей аудита в JSON колонки details и обратно
+ */
+@Component
+public class AuditDetailsJson {
+
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+
+    public AuditDetailsJson(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer().with(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN);
+        this.reader = objectMapper.readerFor(new TypeReference<Map<String, Object>>() { })
+                .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    /**
+     * @return JSON или null для пустых деталей
+     */
+    public String toJson(AuditDetails details) {
+        if (details == null || details.isEmpty()) {
+            return null;
+        }
+        try {
+            return writer.writeValueAsString(details.asMap());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректные детали аудита: " + details, e);
+        }
+    }
+
+    public AuditDetails fromJson(String json) {
+        if (json == null || json.isEmpty()) {
+            return AuditDetails.empty();
+        }
+        try {
+            return AuditDetails.fromMap(reader.readValue(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректный JSON деталей аудита", e);
+        }
+    }
+}
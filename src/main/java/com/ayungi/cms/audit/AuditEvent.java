@@ -0,0 +1,45 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Событие аудита, передаваемое через конвейер записи.
+ * ID и время генерируются при публикации, поэтому запись в БД не требует round-trip за ключом.
+ * Схлопнутое событие ({@link AuditCoalescer}) представляет несколько исходных: время — первого,
+ * количество и время последнего — в деталях.
+ */
+public record AuditEvent(
+        UUID id,
+        UUID userId,
+        AuditAction action,
+        String entityType,
+        String entityId,
+        AuditDetails details,
+        String ipAddress,
+        LocalDateTime timestamp) {
+
+    public static AuditEvent of(UUID userId, AuditAction action, String entityType,
+                                String entityId, AuditDetails details, String ipAddress) {
+        return new AuditEvent(UUID.randomUUID(), userId, action, entityType, entityId,
+                details != null ? details : AuditDetails.empty(), ipAddress, LocalDateTime.now());
+    }
+
+    /**
+     * Количество исходных событий, которые представляет запись
+     */
+    public int count() {
+        return details.get(AuditDetailKey.COUNT) instanceof Number count ? count.intValue() : 1;
+    }
+
+    /**
+     * Время последнего из представленных событий
+     */
+    public LocalDateTime lastTimestamp() {
+        return details.get(AuditDetailKey.LAST_TIMESTAMP) instanceof String last
+                ? LocalDateTime.parse(last)
+                : timestamp;
+    }
+}
@@ -0,0 +1,142 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Компактная бинарная сериализация событий аудита для файлов на диске
+ */
+final class AuditEventCodec {
+
+    private static final int NULL_LENGTH = -1;
+
+    private static final byte TAG_STRING = 'S';
+    private static final byte TAG_DECIMAL = 'D';
+    private static final byte TAG_LONG = 'L';
+    private static final byte TAG_BOOLEAN = 'B';
+
+    private AuditEventCodec() {
+    }
+
+    static byte[] encode(AuditEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeUuid(out, event.id());
+            writeUuid(out, event.userId());
+            writeString(out, event.action().name());
+            writeString(out, event.entityType());
+            writeString(out, event.entityId());
+            writeDetails(out, event.details());
+            writeString(out, event.ipAddress());
+            out.writeLong(event.timestamp().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(event.timestamp().getNano());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static AuditEvent decode(ByteBuffer in) {
+        UUID id = readUuid(in);
+        UUID userId = readUuid(in);
+        AuditAction action = AuditAction.valueOf(readString(in));
+        String entityType = readString(in);
+        String entityId = readString(in);
+        AuditDetails details = readDetails(in);
+        String ipAddress = readString(in);
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+        return new AuditEvent(id, userId, action, entityType, entityId, details, ipAddress, timestamp);
+    }
+
+    /**
+     * Детали: количество полей, затем для каждого имя, тег типа и значение
+     */
+    private static void writeDetails(DataOutputStream out, AuditDetails details) throws IOException {
+        Map<String, Object> values = details.asMap();
+        out.writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writeString(out, entry.getKey());
+            switch (entry.getValue()) {
+                case BigDecimal d -> {
+                    out.writeByte(TAG_DECIMAL);
+                    writeString(out, d.toString());
+                }
+                case Long l -> {
+                    out.writeByte(TAG_LONG);
+                    out.writeLong(l);
+                }
+                case Boolean b -> {
+                    out.writeByte(TAG_BOOLEAN);
+                    out.writeBoolean(b);
+                }
+                default -> {
+                    out.writeByte(TAG_STRING);
+                    writeString(out, entry.getValue().toString());
+                }
+            }
+        }
+    }
+
+    private static AuditDetails readDetails(ByteBuffer in) {
+        int size = in.getInt();
+        if (size == 0) {
+            return AuditDetails.empty();
+        }
+        Map<String, Object> values = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            Object value = switch (in.get()) {
+                case TAG_DECIMAL -> new BigDecimal(readString(in));
+                case TAG_LONG -> in.getLong();
+                case TAG_BOOLEAN -> in.get() != 0;
+                default -> readString(in);
+            };
+            values.put(key, value);
+        }
+        return AuditDetails.fromMap(values);
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getMostSignificantBits());
+            out.writeLong(value.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(ByteBuffer in) {
+        return in.get() != 0 ? new UUID(in.getLong(), in.getLong()) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
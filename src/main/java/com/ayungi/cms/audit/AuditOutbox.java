@@ -0,0 +1,96 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Транзакционный outbox событий аудита (таблица event_outbox).
+ * <p>
+ * Событие вставляется одной строкой в транзакции бизнес-операции (JdbcTemplate использует
+ * ее соединение), поэтому оно фиксируется тогда и только тогда, когда фиксируется сама операция.
+ * В audit_logs и подписчикам события доставляет {@link AuditOutboxRelay}.
+ */
+@Component
+public class AuditOutbox {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO event_outbox (id, user_id, action, entity_type, entity_id, details, ip_address, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?)";
+
+    // Захват и удаление пакета одним запросом; заблокированные другим узлом строки пропускаются
+    private static final String CLAIM_SQL =
+            "DELETE FROM event_outbox WHERE seq IN (" +
+            "SELECT seq FROM event_outbox ORDER BY seq LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, user_id, action, entity_type, entity_id, details, ip_address, created_at";
+
+    private static final String DEAD_LETTER_SQL =
+            "INSERT INTO event_outbox_dead_letter (id, user_id, action, entity_type, entity_id, details, ip_address, " +
+            "created_at, error) VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?) ON CONFLICT (id) DO NOTHING";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditDetailsJson detailsJson;
+
+    public AuditOutbox(JdbcTemplate jdbcTemplate, AuditDetailsJson detailsJson) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.detailsJson = detailsJson;
+    }
+
+    /**
+     * Запись события в текущей транзакции
+     */
+    public void append(AuditEvent event) {
+        jdbcTemplate.update(INSERT_SQL, ps -> {
+            ps.setObject(1, event.id());
+            ps.setObject(2, event.userId(), Types.OTHER);
+            ps.setString(3, event.action().name());
+            ps.setString(4, event.entityType());
+            ps.setString(5, event.entityId());
+            ps.setString(6, detailsJson.toJson(event.details()));
+            ps.setString(7, event.ipAddress());
+            ps.setTimestamp(8, Timestamp.valueOf(event.timestamp()));
+        });
+    }
+
+    /**
+     * Перенос события, которое не удалось записать в audit_logs, в event_outbox_dead_letter
+     * (в транзакции ретранслятора, захватившей событие)
+     */
+    void deadLetter(AuditEvent event, String error) {
+        String message = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        jdbcTemplate.update(DEAD_LETTER_SQL, ps -> {
+            ps.setObject(1, event.id());
+            ps.setObject(2, event.userId(), Types.OTHER);
+            ps.setString(3, event.action().name());
+            ps.setString(4, event.entityType());
+            ps.setString(5, event.entityId());
+            ps.setString(6, detailsJson.toJson(event.details()));
+            ps.setString(7, event.ipAddress());
+            ps.setTimestamp(8, Timestamp.valueOf(event.timestamp()));
+            ps.setString(9, message);
+        });
+    }
+
+    /**
+     * Захват пакета самых старых событий (вызывается в транзакции ретранслятора:
+     * при ее откате события возвращаются в outbox)
+     */
+    List<AuditEvent> claim(int limit) {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new AuditEvent(
+                rs.getObject("id", UUID.class),
+                rs.getObject("user_id", UUID.class),
+                AuditAction.valueOf(rs.getString("action")),
+                rs.getString("entity_type"),
+                rs.getString("entity_id"),
+                detailsJson.fromJson(rs.getString("details")),
+                rs.getString("ip_address"),
+                rs.getTimestamp("created_at").toLocalDateTime()), limit);
+    }
+}
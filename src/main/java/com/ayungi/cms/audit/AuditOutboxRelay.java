@@ -0,0 +1,190 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.datasource.Workload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Ретранслятор outbox: переносит события из event_outbox в audit_logs и уведомляет подписчиков.
+ * <p>
+ * Пакет захватывается через {@code FOR UPDATE SKIP LOCKED}, записывается и удаляется из outbox
+ * в одной транзакции, поэтому несколько узлов ретранслируют параллельно без дубликатов.
+ * Подписчики ({@link AuditWriteListener}) вызываются после фиксации; сбой узла между фиксацией
+ * и уведомлением теряет уведомление, но не запись аудита.
+ * <p>
+ * Если пакет не записывается и после отвязки удаленных пользователей, события пишутся поштучно
+ * (каждое в своей точке сохранения); незаписываемые (нарушение ограничения, нет партиции)
+ * переносятся в event_outbox_dead_letter, иначе голова очереди захватывалась бы бесконечно.
+ */
+@Component
+@Slf4j
+public class AuditOutboxRelay {
+
+    private static final String EXISTING_USERS_SQL = "SELECT id FROM users WHERE id = ANY(?)";
+
+    private final AuditOutbox outbox;
+    private final AuditWriter writer;
+    private final AuditCoalescer coalescer;
+    private final List<AuditWriteListener> listeners;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public AuditOutboxRelay(
+            AuditOutbox outbox,
+            AuditWriter writer,
+            Optional<AuditCoalescer> coalescer,
+            List<AuditWriteListener> listeners,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${audit.outbox.batch-size:500}") int batchSize,
+            @Value("${audit.outbox.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.outbox = outbox;
+        this.writer = writer;
+        this.coalescer = coalescer.orElse(null);
+        this.listeners = List.copyOf(listeners);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    /**
+     * Ретрансляция накопленных событий (пакетами, пока outbox не опустеет или не исчерпан лимит прохода)
+     */
+    @Scheduled(fixedDelayString = "${audit.outbox.poll-interval-ms:500}")
+    public void relay() {
+        Workload.AUDIT.bind();
+        try {
+            relayBatches();
+        } finally {
+            Workload.clear();
+        }
+    }
+
+    private void relayBatches() {
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            List<AuditEvent> events;
+            try {
+                events = relayBatch();
+            } catch (RuntimeException e) {
+                log.warn("Ретрансляция outbox аудита отложена: {}", e.getMessage());
+                return;
+            }
+            if (events.isEmpty()) {
+                return;
+            }
+            notifyWritten(events);
+            if (events.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private List<AuditEvent> relayBatch() {
+        try {
+            return transactionTemplate.execute(status -> moveBatch(false));
+        } catch (DataIntegrityViolationException e) {
+            // Пользователь удален после фиксации события — повтор с user_id = NULL, как ON DELETE SET NULL
+        }
+        try {
+            return transactionTemplate.execute(status -> moveBatch(true));
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пакет outbox аудита не записан, поштучная ретрансляция: {}", e.getMessage());
+            return transactionTemplate.execute(this::moveIndividually);
+        }
+    }
+
+    private List<AuditEvent> moveBatch(boolean detachMissingUsers) {
+        List<AuditEvent> events = outbox.claim(batchSize);
+        if (events.isEmpty()) {
+            return events;
+        }
+        if (detachMissingUsers) {
+            events = detachMissingUsers(events);
+        }
+        if (coalescer != null) {
+            events = coalescer.coalesceBatch(events);
+        }
+        writer.writeBatch(events);
+        log.debug("Ретранслировано из outbox событий аудита: {}", events.size());
+        return events;
+    }
+
+    /**
+     * Поштучная ретрансляция пакета: событие, нарушающее ограничение audit_logs, уходит в dead letter
+     *
+     * @return записанные события
+     */
+    private List<AuditEvent> moveIndividually(TransactionStatus status) {
+        List<AuditEvent> events = outbox.claim(batchSize);
+        if (events.isEmpty()) {
+            return events;
+        }
+        events = detachMissingUsers(events);
+        if (coalescer != null) {
+            events = coalescer.coalesceBatch(events);
+        }
+
+        List<AuditEvent> written = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            Object savepoint = status.createSavepoint();
+            try {
+                writer.writeBatch(List.of(event));
+                status.releaseSavepoint(savepoint);
+                written.add(event);
+            } catch (DataIntegrityViolationException e) {
+                status.rollbackToSavepoint(savepoint);
+                outbox.deadLetter(event, e.getMostSpecificCause().getMessage());
+                log.error("Событие аудита {} перенесено в event_outbox_dead_letter: {}",
+                        event.id(), e.getMostSpecificCause().getMessage());
+            }
+        }
+        return written;
+    }
+
+    private List<AuditEvent> detachMissingUsers(List<AuditEvent> events) {
+        UUID[] userIds = events.stream()
+                .map(AuditEvent::userId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toArray(UUID[]::new);
+        Set<UUID> existing = new HashSet<>(jdbcTemplate.query(EXISTING_USERS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", userIds)),
+                (rs, rowNum) -> rs.getObject(1, UUID.class)));
+
+        List<AuditEvent> detached = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            detached.add(event.userId() == null || existing.contains(event.userId()) ? event
+                    : new AuditEvent(event.id(), null, event.action(), event.entityType(), event.entityId(),
+                            event.details(), event.ipAddress(), event.timestamp()));
+        }
+        return detached;
+    }
+
+    private void notifyWritten(List<AuditEvent> events) {
+        for (AuditWriteListener listener : listeners) {
+            try {
+                listener.onWritten(events);
+            } catch (RuntimeException e) {
+                log.warn("Ошибка обработчика событий outbox {}: {}",
+                        listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.datasource.Workload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание помесячных секций audit_logs.
+ * <p>
+ * Заранее создает секции на несколько месяцев вперед и обеспечивает срок хранения
+ * удалением целых секций: архивация ({@link AuditArchiver}), DETACH PARTITION, затем DROP TABLE.
+ * Построчный DELETE старых логов не выполняется.
+ * <p>
+ * DETACH CONCURRENTLY невозможен при наличии секции по умолчанию, поэтому секция отсоединяется
+ * обычным DETACH: ACCESS EXCLUSIVE на родителе держится только на время изменения каталога.
+ * <p>
+ * Строки вне созданных секций попадают в секцию по умолчанию {@code audit_logs_default};
+ * при создании секции месяца ее строки переносятся из секции по умолчанию. Обслуживание
+ * выполняет один узел: {@link #maintain()} берет advisory-блокировку сессии и без нее пропускается.
+ */
+@Component
+@Slf4j
+public class AuditPartitionManager {
+
+    private static final String PARENT_TABLE = "audit_logs";
+    private static final String DEFAULT_PARTITION = "audit_logs_default";
+    private static final String LOCK_KEY = "hashtext('audit_logs_partitions')";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+    private static final Pattern PARTITION_NAME = Pattern.compile("audit_logs_y(\\d{4})m(\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditArchiver archiver;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public AuditPartitionManager(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            AuditArchiver archiver,
+            @Value("${audit.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${audit.retention.months:12}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.archiver = archiver;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Плановое обслуживание: создание будущих секций и удаление устаревших
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${audit.partitions.cron:0 15 3 * * *}")
+    public void maintain() {
+        try {
+            boolean done = runExclusively(() -> {
+                YearMonth current = YearMonth.now();
+                ensurePartitions(current);
+                dropPartitionsBefore(current.minusMonths(retentionMonths));
+                warnIfDefaultPartitionNotEmpty();
+            });
+            if (!done) {
+                log.debug("Обслуживание секций аудита выполняет другой узел");
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка обслуживания секций аудита: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Удаление секций за месяцы раньше cutoff вне расписания (после архивации, под той же блокировкой)
+     *
+     * @return false если обслуживание секций сейчас выполняет другой узел
+     */
+    public boolean purgeBefore(YearMonth cutoff) {
+        return runExclusively(() -> dropPartitionsBefore(cutoff));
+    }
+
+    /**
+     * Выполнение под advisory-блокировкой сессии через пул аудита.
+     * Блокировка держится на отдельном соединении всё время работы, DDL идет через пул
+     *
+     * @return false если блокировку держит другой узел
+     */
+    private boolean runExclusively(Runnable work) {
+        Workload.AUDIT.bind();
+        try {
+            return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    if (!tryLock(statement)) {
+                        return false;
+                    }
+                    try {
+                        work.run();
+                    } finally {
+                        statement.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                    }
+                }
+                return true;
+            }));
+        } finally {
+            Workload.clear();
+        }
+    }
+
+    /**
+     * Создание секций с указанного месяца на months-ahead месяцев вперед
+     */
+    public void ensurePartitions(YearMonth from) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(from.plusMonths(i));
+        }
+        log.debug("Секции аудита обеспечены до {}", from.plusMonths(monthsAhead));
+    }
+
+    /**
+     * Создание секции месяца. Если в секции по умолчанию уже есть строки этого месяца,
+     * CREATE ... PARTITION OF завершился бы ошибкой: секция создается отдельной таблицей,
+     * строки переносятся в нее и она присоединяется — одной транзакцией
+     */
+    void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+
+        Boolean stray = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ?::timestamp AND timestamp < ?::timestamp)",
+                Boolean.class, from.toString(), to.toString());
+        if (!Boolean.TRUE.equals(stray)) {
+            jdbcTemplate.execute(String.format(
+                    "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                    partition, PARENT_TABLE, from, to));
+            return;
+        }
+
+        Integer moved = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(String.format("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS INCLUDING CONSTRAINTS)",
+                    partition, PARENT_TABLE));
+            int rows = jdbcTemplate.update(String.format(
+                    "WITH moved AS (DELETE FROM %s WHERE timestamp >= '%s' AND timestamp < '%s' RETURNING *) " +
+                    "INSERT INTO %s SELECT * FROM moved", DEFAULT_PARTITION, from, to, partition));
+            jdbcTemplate.execute(String.format("ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')",
+                    PARENT_TABLE, partition, from, to));
+            return rows;
+        });
+        log.info("Секция аудита {} создана, из секции по умолчанию перенесено строк: {}", partition, moved);
+    }
+
+    /**
+     * Удаление секций, целиком относящихся к месяцам раньше cutoff
+     *
+     * @return количество удаленных секций
+     */
+    int dropPartitionsBefore(YearMonth cutoff) {
+        int dropped = 0;
+        for (String partition : findAttachedPartitionsBefore(cutoff)) {
+            // Архивация до отсоединения: при ошибке данные остаются доступны в БД
+            archive(partition);
+            detachPartition(partition);
+            dropPartition(partition);
+            dropped++;
+        }
+
+        // Секции, отсоединенные прошлым запуском, но не удаленные из-за сбоя
+        for (String table : findDetachedPartitionsBefore(cutoff)) {
+            archive(table);
+            dropPartition(table);
+            dropped++;
+        }
+
+        if (dropped > 0) {
+            log.info("Удалено секций аудита старше {}: {}", cutoff, dropped);
+        }
+        return dropped;
+    }
+
+    /**
+     * Присоединенные секции за месяцы раньше cutoff (в порядке возрастания)
+     */
+    List<String> findAttachedPartitionsBefore(YearMonth cutoff) {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'audit_logs'::regclass ORDER BY c.relname",
+                String.class);
+        return filterBefore(names, cutoff);
+    }
+
+    /**
+     * Отсоединенные, но не удаленные секции за месяцы раньше cutoff
+     */
+    List<String> findDetachedPartitionsBefore(YearMonth cutoff) {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = current_schema() AND c.relkind = 'r' AND NOT c.relispartition " +
+                "AND c.relname ~ '^audit_logs_y[0-9]{4}m[0-9]{2}$' ORDER BY c.relname",
+                String.class);
+        return filterBefore(names, cutoff);
+    }
+
+    /**
+     * Отсоединение секции; незавершенное CONCURRENTLY-отсоединение (прежние версии) доводится через FINALIZE
+     */
+    void detachPartition(String partition) {
+        Boolean pending = jdbcTemplate.queryForObject(
+                "SELECT i.inhdetachpending FROM pg_inherits i WHERE i.inhrelid = ?::regclass",
+                Boolean.class, partition);
+        if (Boolean.TRUE.equals(pending)) {
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition + " FINALIZE");
+        } else {
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition);
+        }
+        log.info("Секция аудита {} отсоединена", partition);
+    }
+
+    private void archive(String table) {
+        if (!archiver.isEnabled()) {
+            return;
+        }
+        try {
+            archiver.archive(table, monthOf(table));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось заархивировать секцию " + table, e);
+        }
+    }
+
+    private boolean tryLock(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_lock(" + LOCK_KEY + ")")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Строки за месяцы без секции (раньше первой или после удаленных) остаются в секции по умолчанию
+     */
+    private void warnIfDefaultPartitionNotEmpty() {
+        Boolean notEmpty = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + ")", Boolean.class);
+        if (Boolean.TRUE.equals(notEmpty)) {
+            log.warn("Секция {} содержит строки вне помесячных секций", DEFAULT_PARTITION);
+        }
+    }
+
+    void dropPartition(String table) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        log.info("Секция аудита {} удалена", table);
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARENT_TABLE + "_" + month.format(SUFFIX);
+    }
+
+    static YearMonth monthOf(String partition) {
+        Matcher matcher = PARTITION_NAME.matcher(partition);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+
+    private List<String> filterBefore(List<String> names, YearMonth cutoff) {
+        List<String> result = new ArrayList<>();
+        for (String name : names) {
+            YearMonth month = monthOf(name);
+            if (month != null && month.isBefore(cutoff)) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,355 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.datasource.Workload;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Конвейер записи аудита.
+ * <p>
+ * Производители публикуют события в ограниченный lock-free кольцевой буфер и не ждут БД;
+ * единственный поток-потребитель забирает события пакетами и пишет их JDBC batch.
+ * При заполненном буфере действует {@link AuditBackpressurePolicy}.
+ * <p>
+ * В режиме SPILL пакеты вытесняются в {@link AuditSpillJournal}, когда буфер выше порога
+ * или БД недоступна. Пока в журнале есть записи, новые пакеты тоже идут в журнал,
+ * а сам журнал проигрывается в БД по порядку, поэтому порядок событий сохраняется.
+ * <p>
+ * Если включен {@link AuditCoalescer}, однотипные события схлопываются до записи и журнала.
+ * <p>
+ * После записи пакета вызываются {@link AuditWriteListener} (например, сводка входов).
+ */
+@Component
+@Slf4j
+public class AuditPipeline {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long RETRY_BACKOFF_MS = 200;
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final AuditWriter writer;
+    private final AuditSpillJournal journal;
+    private final AuditCoalescer coalescer;
+    private final List<AuditWriteListener> listeners;
+    private final AuditRingBuffer buffer;
+    private final int batchSize;
+    private final AuditBackpressurePolicy backpressurePolicy;
+    private final long blockTimeoutNanos;
+    private final int maxRetries;
+    private final int spillWatermark;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder spillRejected = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    private volatile boolean running;
+    private volatile boolean consumerIdle;
+    private volatile Thread consumer;
+    private long nextReplayNanos;
+
+    public AuditPipeline(
+            AuditWriter writer,
+            Optional<AuditSpillJournal> journal,
+            Optional<AuditCoalescer> coalescer,
+            List<AuditWriteListener> listeners,
+            MeterRegistry meterRegistry,
+            @Value("${audit.pipeline.capacity:65536}") int capacity,
+            @Value("${audit.pipeline.batch-size:500}") int batchSize,
+            @Value("${audit.pipeline.backpressure:BLOCK}") AuditBackpressurePolicy backpressurePolicy,
+            @Value("${audit.pipeline.block-timeout-ms:1000}") long blockTimeoutMs,
+            @Value("${audit.pipeline.max-retries:3}") int maxRetries,
+            @Value("${audit.spill.watermark:0.75}") double spillWatermark) {
+        this.writer = writer;
+        this.journal = backpressurePolicy == AuditBackpressurePolicy.SPILL ? journal.orElseThrow() : null;
+        this.coalescer = coalescer.orElse(null);
+        this.listeners = List.copyOf(listeners);
+        this.buffer = new AuditRingBuffer(capacity);
+        this.batchSize = batchSize;
+        this.backpressurePolicy = backpressurePolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.maxRetries = maxRetries;
+        this.spillWatermark = (int) (buffer.capacity() * spillWatermark);
+        registerMetrics(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        consumer = Thread.ofPlatform()
+                .name("audit-writer")
+                .daemon(true)
+                .start(this::consumeLoop);
+        log.info("Конвейер аудита запущен: буфер {}, пакет {}, политика {}",
+                buffer.capacity(), batchSize, backpressurePolicy);
+    }
+
+    /**
+     * Остановка с дозаписью накопленных событий (незаписанное остается в журнале)
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread thread = consumer;
+        if (thread == null) {
+            return;
+        }
+
+        LockSupport.unpark(thread);
+        try {
+            thread.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Конвейер аудита остановлен: {}", getStats());
+    }
+
+    /**
+     * Публикация события (не блокирует вызывающий поток дольше block-timeout)
+     *
+     * @return false если событие отброшено
+     */
+    public boolean publish(AuditEvent event) {
+        if (!buffer.offer(event) && !(backpressurePolicy != AuditBackpressurePolicy.DROP && awaitOffer(event))) {
+            dropped.increment();
+            long total = dropped.sum();
+            if (total == 1 || total % 1000 == 0) {
+                log.warn("Буфер аудита переполнен, отброшено событий: {}", total);
+            }
+            return false;
+        }
+
+        published.increment();
+        if (consumerIdle) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Текущие счетчики конвейера
+     */
+    public AuditPipelineStats getStats() {
+        return new AuditPipelineStats(published.sum(), written.sum(), dropped.sum(), failed.sum(),
+                spilled.sum(), replayed.sum(), coalesced.sum(), buffer.size(), buffer.capacity());
+    }
+
+    private boolean awaitOffer(AuditEvent event) {
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        while (System.nanoTime() < deadline) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (buffer.offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void consumeLoop() {
+        // Поток записи берет соединения из пула аудита
+        Workload.AUDIT.bind();
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        List<AuditEvent> drainedEvents = new ArrayList<>(batchSize);
+        while (running || buffer.size() > 0) {
+            int drained = buffer.drainTo(coalescer != null ? drainedEvents : batch, batchSize);
+            if (coalescer != null) {
+                coalesce(drainedEvents, batch);
+                drainedEvents.clear();
+            }
+            if (!batch.isEmpty()) {
+                dispatch(batch);
+                batch.clear();
+            }
+
+            boolean replayedBatch = journal != null && replayJournal();
+            if (drained == 0 && !replayedBatch) {
+                consumerIdle = true;
+                if (running && buffer.size() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                consumerIdle = false;
+            }
+        }
+
+        if (coalescer != null) {
+            coalescer.drainAll(batch);
+            if (!batch.isEmpty()) {
+                dispatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Схлопывание принятых событий; в пакет попадают несхлопываемые события и группы с истекшим окном
+     */
+    private void coalesce(List<AuditEvent> events, List<AuditEvent> batch) {
+        long now = System.nanoTime();
+        coalesced.add(coalescer.accept(events, batch, now));
+        coalescer.drainExpired(batch, now);
+    }
+
+    /**
+     * Запись пакета; в режиме SPILL — вытеснение в журнал, пока в нем есть непроигранные записи
+     * или буфер выше порога. Если журнал заполнен, пакет пишется в БД напрямую (с повторами),
+     * а публикующие потоки ждут места в буфере, как при BLOCK
+     */
+    private void dispatch(List<AuditEvent> batch) {
+        if (journal != null && (journal.hasPending() || buffer.size() >= spillWatermark) && spill(batch)) {
+            return;
+        }
+        flush(batch);
+    }
+
+    /**
+     * Запись пакета: повтор при сбое БД (или вытеснение в журнал), поштучная запись при нарушении ограничений
+     */
+    private void flush(List<AuditEvent> batch) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                writer.writeBatch(batch);
+                written.add(batch.size());
+                notifyWritten(batch);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                break;
+            } catch (RuntimeException e) {
+                if (journal != null && spill(batch)) {
+                    log.warn("БД недоступна для записи аудита, пакет вытеснен в журнал: {}", e.getMessage());
+                    deferReplay();
+                    return;
+                }
+                if (attempt >= maxRetries) {
+                    log.error("Не удалось записать пакет аудита из {} событий: {}", batch.size(), e.getMessage());
+                    break;
+                }
+                log.warn("Ошибка записи пакета аудита (попытка {}): {}", attempt + 1, e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MS * (attempt + 1)));
+            }
+        }
+
+        writeIndividually(batch);
+    }
+
+    /**
+     * @return false если пакет не записан в журнал (журнал заполнен или ошибка диска)
+     */
+    private boolean spill(List<AuditEvent> batch) {
+        try {
+            if (journal.append(batch)) {
+                spilled.add(batch.size());
+                return true;
+            }
+            long before = spillRejected.sum();
+            spillRejected.add(batch.size());
+            if (before == 0 || before / 10_000 != (before + batch.size()) / 10_000) {
+                log.warn("Журнал аудита заполнен, события пишутся в БД напрямую (всего {})", before + batch.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось вытеснить пакет аудита в журнал: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Проигрывание одного пакета из журнала в БД, пока буфер ниже порога вытеснения
+     *
+     * @return true если пакет записан
+     */
+    private boolean replayJournal() {
+        if (!journal.hasPending() || buffer.size() >= spillWatermark || System.nanoTime() < nextReplayNanos) {
+            return false;
+        }
+
+        List<AuditEvent> events = List.of();
+        try {
+            events = journal.peek(batchSize);
+            if (!events.isEmpty()) {
+                writer.writeBatch(events);
+                written.add(events.size());
+                notifyWritten(events);
+            }
+        } catch (DataIntegrityViolationException e) {
+            writeIndividually(events);
+        } catch (RuntimeException e) {
+            log.warn("Проигрывание журнала аудита отложено: {}", e.getMessage());
+            deferReplay();
+            return false;
+        }
+
+        journal.acknowledge();
+        replayed.add(events.size());
+        if (!journal.hasPending()) {
+            log.info("Журнал аудита полностью проигран в БД");
+        }
+        return true;
+    }
+
+    private void deferReplay() {
+        nextReplayNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MS);
+    }
+
+    private void writeIndividually(List<AuditEvent> batch) {
+        try {
+            List<AuditEvent> succeeded = writer.writeIndividually(batch);
+            failed.add(batch.size() - succeeded.size());
+            written.add(succeeded.size());
+            if (!succeeded.isEmpty()) {
+                notifyWritten(succeeded);
+            }
+        } catch (RuntimeException e) {
+            failed.add(batch.size());
+            log.error("Пакет аудита потерян: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Уведомление обработчиков о записанных событиях (их сбой не влияет на запись аудита)
+     */
+    private void notifyWritten(List<AuditEvent> events) {
+        for (AuditWriteListener listener : listeners) {
+            try {
+                listener.onWritten(events);
+            } catch (RuntimeException e) {
+                log.warn("Ошибка обработчика записанных событий аудита {}: {}",
+                        listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("audit.pipeline.published", published, LongAdder::sum).register(registry);
+        FunctionCounter.builder("audit.pipeline.written", written, LongAdder::sum).register(registry);
+        FunctionCounter.builder("audit.pipeline.dropped", dropped, LongAdder::sum).register(registry);
+        FunctionCounter.builder("audit.pipeline.failed", failed, LongAdder::sum).register(registry);
+        FunctionCounter.builder("audit.pipeline.spilled", spilled, LongAdder::sum).register(registry);
+        FunctionCounter.builder("audit.pipeline.spill.rejected", spillRejected, LongAdder::sum).register(registry);
+        if (journal != null) {
+            FunctionCounter.builder("audit.pipeline.spill.corrupted", journal, AuditSpillJournal::corruptedRecords)
+                    .register(registry);
+        }
+        FunctionCounter.builder("audit.pipeline.replayed", replayed, LongAdder::sum).register(registry);
+        FunctionCounter.builder("audit.pipeline.coalesced", coalesced, LongAdder::sum).register(registry);
+        Gauge.builder("audit.pipeline.queued", buffer, AuditRingBuffer::size).register(registry);
+    }
+}
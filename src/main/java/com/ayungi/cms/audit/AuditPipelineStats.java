@@ -0,0 +1,26 @@
+package com.ayungi.cms.audit;
+
+/**
+ * Снимок счетчиков конвейера аудита
+ *
+ * @param published принято событий
+ * @param written записано в БД
+ * @param dropped отброшено из-за переполнения буфера
+ * @param failed не удалось записать (ошибка БД)
+ * @param spilled вытеснено в журнал на диске
+ * @param replayed записано в БД из журнала
+ * @param coalesced событий, присоединенных к схлопнутым записям (записано меньше строк, чем принято)
+ * @param queued событий в буфере
+ * @param capacity емкость буфера
+ */
+public record AuditPipelineStats(
+        long published,
+        long written,
+        long dropped,
+        long failed,
+        long spilled,
+        long replayed,
+        long coalesced,
+        int queued,
+        int capacity) {
+}
@@ -0,0 +1,95 @@
+package com.ayungi.cms.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченный lock-free кольцевой буфер: много производителей, один потребитель.
+ * <p>
+ * У каждой ячейки есть номер последовательности: производитель занимает позицию CAS-ом
+ * курсора записи и публикует ячейку, выставляя sequence = pos + 1; потребитель читает
+ * ячейку только после публикации и освобождает ее для следующего круга (pos + capacity).
+ */
+final class AuditRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<AuditEvent> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    AuditRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Емкость буфера аудита должна быть не меньше 2");
+        }
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Публикация события (потокобезопасно)
+     *
+     * @return false если буфер заполнен
+     */
+    boolean offer(AuditEvent event) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(index, event);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Извлечение до max опубликованных событий в порядке публикации (только из потока потребителя)
+     *
+     * @return количество извлеченных событий
+     */
+    int drainTo(List<AuditEvent> sink, int max) {
+        long pos = head.get();
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                break;
+            }
+            sink.add(slots.get(index));
+            slots.lazySet(index, null);
+            sequences.set(index, pos + capacity);
+            pos++;
+            drained++;
+        }
+        head.lazySet(pos);
+        return drained;
+    }
+
+    /**
+     * Приблизительное количество событий в буфере
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,431 @@
+package com.ayungi.cms.audit;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал вытеснения событий аудита на локальный диск (append-only).
+ * <p>
+ * Сегменты фиксированного размера отображаются в память; запись имеет вид
+ * {@code [длина:int][crc32:int][данные]}, нулевая длина означает конец записанных данных,
+ * {@code -1} — переход к следующему сегменту. Позиция подтвержденного чтения хранится
+ * в файле checkpoint и обновляется только после фиксации пакета в БД; вместе с
+ * {@code ON CONFLICT DO NOTHING} при вставке это дает ровно одну запись на ID события
+ * даже при повторном проигрывании после сбоя.
+ * <p>
+ * Запись, не прошедшая проверку crc32 при чтении, копируется в файл quarantine и пропускается.
+ * Размер журнала ограничен {@code audit.spill.max-size-mb}: пакет, для которого не хватает места,
+ * не записывается, и конвейер пишет его в БД напрямую.
+ * <p>
+ * Используется одним потоком-потребителем {@link AuditPipeline}.
+ */
+@Component
+@ConditionalOnProperty(name = "audit.pipeline.backpressure", havingValue = "SPILL")
+@Slf4j
+public class AuditSpillJournal {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int MAX_SPARE_SEGMENTS = 2;
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String QUARANTINE_FILE = "quarantine";
+    private static final String SPARE_PREFIX = "spare-";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{20})\\.seg");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final int maxSegments;
+    private final LongAdder corruptedRecords = new LongAdder();
+
+    /**
+     * Открытые сегменты от позиции чтения до позиции записи
+     */
+    private final NavigableMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+
+    private long writeSegment;
+    private int writeOffset;
+    private long readSegment;
+    private int readOffset;
+    private long peekSegment;
+    private int peekOffset;
+
+    /**
+     * Позиция, до которой поврежденные записи уже помещены в карантин (повторный peek их не копирует)
+     */
+    private long quarantinedSegment = -1;
+    private int quarantinedOffset;
+
+    public AuditSpillJournal(
+            @Value("${audit.spill.directory:data/audit-spill}") String directory,
+            @Value("${audit.spill.segment-size-mb:64}") int segmentSizeMb,
+            @Value("${audit.spill.fsync:true}") boolean fsync,
+            @Value("${audit.spill.max-size-mb:4096}") int maxSizeMb) {
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.fsync = fsync;
+        this.maxSegments = Math.max(2, maxSizeMb / segmentSizeMb);
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал аудита " + directory, e);
+        }
+    }
+
+    /**
+     * Есть ли неподтвержденные записи
+     */
+    public synchronized boolean hasPending() {
+        return readSegment < writeSegment || readOffset < writeOffset;
+    }
+
+    /**
+     * Количество поврежденных записей, помещенных в карантин
+     */
+    public long corruptedRecords() {
+        return corruptedRecords.sum();
+    }
+
+    /**
+     * Добавление пакета событий в конец журнала
+     *
+     * @return false если пакет не помещается в журнал максимального размера (ничего не записано)
+     */
+    public synchronized boolean append(List<AuditEvent> events) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(events.size());
+        int offset = writeOffset;
+        int newSegments = 0;
+        for (AuditEvent event : events) {
+            byte[] payload = AuditEventCodec.encode(event);
+            int recordSize = HEADER_SIZE + payload.length;
+            if (recordSize > segmentSize) {
+                throw new IOException("Событие аудита " + event.id() + " больше сегмента журнала");
+            }
+            if (offset + recordSize > segmentSize) {
+                newSegments++;
+                offset = 0;
+            }
+            offset += recordSize;
+            payloads.add(payload);
+        }
+        if (segments.size() + newSegments > maxSegments) {
+            return false;
+        }
+
+        long firstSegment = writeSegment;
+        for (byte[] payload : payloads) {
+            int recordSize = HEADER_SIZE + payload.length;
+            if (writeOffset + recordSize > segmentSize) {
+                rollover();
+            }
+
+            MappedByteBuffer segment = segments.get(writeSegment);
+            segment.put(writeOffset + HEADER_SIZE, payload);
+            segment.putInt(writeOffset + 4, checksum(ByteBuffer.wrap(payload)));
+            segment.putInt(writeOffset, payload.length);
+            writeOffset += recordSize;
+        }
+
+        if (fsync) {
+            segments.subMap(firstSegment, true, writeSegment, true).values().forEach(MappedByteBuffer::force);
+        }
+        return true;
+    }
+
+    /**
+     * Чтение до max записей от позиции подтверждения без ее сдвига.
+     * Поврежденные записи помещаются в карантин и пропускаются (подтверждаются вместе с пакетом)
+     */
+    public synchronized List<AuditEvent> peek(int max) {
+        List<AuditEvent> events = new ArrayList<>();
+        long segmentIndex = readSegment;
+        int offset = readOffset;
+
+        while (events.size() < max && (segmentIndex < writeSegment || offset < writeOffset)) {
+            MappedByteBuffer segment = segments.get(segmentIndex);
+            if (segmentSize - offset < HEADER_SIZE || segment.getInt(offset) == END_OF_SEGMENT) {
+                segmentIndex++;
+                offset = 0;
+                continue;
+            }
+
+            int end = segmentIndex < writeSegment ? segmentSize : writeOffset;
+            int length = segment.getInt(offset);
+            if (length <= 0 || offset + HEADER_SIZE + length > end) {
+                // Длина повреждена: границу следующей записи не найти, пропускается остаток сегмента
+                quarantine(segmentIndex, offset, segment.slice(offset, end - offset));
+                if (segmentIndex < writeSegment) {
+                    segmentIndex++;
+                    offset = 0;
+                } else {
+                    offset = end;
+                }
+                continue;
+            }
+
+            ByteBuffer payload = segment.slice(offset + HEADER_SIZE, length);
+            if (checksum(payload.duplicate()) != segment.getInt(offset + 4)) {
+                quarantine(segmentIndex, offset, segment.slice(offset, HEADER_SIZE + length));
+            } else {
+                events.add(AuditEventCodec.decode(payload));
+            }
+            offset += HEADER_SIZE + length;
+        }
+
+        peekSegment = segmentIndex;
+        peekOffset = offset;
+        return events;
+    }
+
+    /**
+     * Подтверждение записей, прочитанных последним peek (после фиксации в БД)
+     */
+    public synchronized void acknowledge() {
+        readSegment = peekSegment;
+        readOffset = peekOffset;
+        try {
+            writeCheckpoint();
+            while (segments.firstKey() < readSegment) {
+                recycle(segments.pollFirstEntry().getKey());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось сохранить checkpoint журнала аудита", e);
+        }
+    }
+
+    /**
+     * Копирование поврежденной записи в файл карантина: {@code [сегмент:long][смещение:int][длина:int][байты]}
+     */
+    private void quarantine(long segmentIndex, int offset, ByteBuffer record) {
+        if (segmentIndex < quarantinedSegment || segmentIndex == quarantinedSegment && offset < quarantinedOffset) {
+            return;
+        }
+        quarantinedSegment = segmentIndex;
+        quarantinedOffset = offset + 1;
+        corruptedRecords.increment();
+        log.error("Поврежденная запись журнала аудита помещена в карантин: сегмент {}, смещение {}, байт {}",
+                segmentIndex, offset, record.remaining());
+
+        ByteBuffer header = ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES)
+                .putLong(segmentIndex).putInt(offset).putInt(record.remaining()).flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve(QUARANTINE_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(new ByteBuffer[]{header, record.duplicate()});
+            channel.force(true);
+        } catch (IOException e) {
+            log.error("Не удалось сохранить запись в карантин журнала аудита: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        segments.values().forEach(MappedByteBuffer::force);
+        log.info("Журнал аудита закрыт, неподтвержденные записи: {}", hasPending());
+    }
+
+    /**
+     * Восстановление после рестарта: позиция чтения из checkpoint, позиция записи —
+     * первая неполная или поврежденная запись (хвост после нее обнуляется)
+     */
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        readCheckpoint();
+
+        List<Long> existing = listSegments();
+        for (long index : existing) {
+            if (index < readSegment) {
+                recycle(index);
+            } else {
+                segments.put(index, mapSegment(segmentPath(index), false));
+            }
+        }
+        if (!segments.containsKey(readSegment)) {
+            readSegment = segments.isEmpty() ? readSegment : segments.firstKey();
+            readOffset = 0;
+            if (segments.isEmpty()) {
+                segments.put(readSegment, createSegment(readSegment));
+            }
+        }
+
+        writeSegment = readSegment;
+        writeOffset = readOffset;
+        while (true) {
+            MappedByteBuffer segment = segments.get(writeSegment);
+            if (segmentSize - writeOffset >= HEADER_SIZE && segment.getInt(writeOffset) == END_OF_SEGMENT
+                    || segmentSize - writeOffset < HEADER_SIZE) {
+                if (!segments.containsKey(writeSegment + 1)) {
+                    break;
+                }
+                writeSegment++;
+                writeOffset = 0;
+                continue;
+            }
+            if (!isValidRecord(segment, writeOffset)) {
+                break;
+            }
+            writeOffset += HEADER_SIZE + segment.getInt(writeOffset);
+        }
+
+        // Сегменты после точки обрыва не могут содержать подтвержденных данных
+        for (Long index : new ArrayList<>(segments.tailMap(writeSegment, false).keySet())) {
+            log.warn("Удаление сегмента журнала аудита после точки обрыва: {}", index);
+            segments.remove(index);
+            Files.deleteIfExists(segmentPath(index));
+        }
+        MappedByteBuffer tail = segments.get(writeSegment);
+        for (int i = writeOffset; i < segmentSize; i++) {
+            if (tail.get(i) != 0) {
+                tail.put(i, (byte) 0);
+            }
+        }
+
+        peekSegment = readSegment;
+        peekOffset = readOffset;
+        if (hasPending()) {
+            log.info("Журнал аудита содержит неподтвержденные записи: сегменты {}..{}", readSegment, writeSegment);
+        }
+    }
+
+    private boolean isValidRecord(MappedByteBuffer segment, int offset) {
+        int length = segment.getInt(offset);
+        if (length <= 0 || offset + HEADER_SIZE + length > segmentSize) {
+            return false;
+        }
+        return checksum(segment.slice(offset + HEADER_SIZE, length)) == segment.getInt(offset + 4);
+    }
+
+    private void rollover() throws IOException {
+        MappedByteBuffer current = segments.get(writeSegment);
+        if (segmentSize - writeOffset >= HEADER_SIZE) {
+            current.putInt(writeOffset, END_OF_SEGMENT);
+        }
+        current.force();
+
+        writeSegment++;
+        writeOffset = 0;
+        segments.put(writeSegment, createSegment(writeSegment));
+    }
+
+    /**
+     * Новый сегмент; по возможности переиспользуется ранее подтвержденный файл
+     */
+    private MappedByteBuffer createSegment(long index) throws IOException {
+        Path target = segmentPath(index);
+        Path spare = findSpare();
+        if (spare != null) {
+            Files.move(spare, target, StandardCopyOption.REPLACE_EXISTING);
+            return mapSegment(target, true);
+        }
+        return mapSegment(target, false);
+    }
+
+    private void recycle(long index) throws IOException {
+        Path segment = segmentPath(index);
+        try (Stream<Path> files = Files.list(directory)) {
+            long spares = files.filter(path -> path.getFileName().toString().startsWith(SPARE_PREFIX)).count();
+            if (spares < MAX_SPARE_SEGMENTS) {
+                Files.move(segment, directory.resolve(SPARE_PREFIX + segment.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                return;
+            }
+        }
+        Files.deleteIfExists(segment);
+    }
+
+    private Path findSpare() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SPARE_PREFIX))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private MappedByteBuffer mapSegment(Path path, boolean clear) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            if (clear) {
+                for (int i = 0; i + Long.BYTES <= segmentSize; i += Long.BYTES) {
+                    buffer.putLong(i, 0L);
+                }
+            }
+            return buffer;
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> SEGMENT_NAME.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            List<Long> existing = listSegments();
+            readSegment = existing.isEmpty() ? 0 : existing.get(0);
+            readOffset = 0;
+            return;
+        }
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+        long segment = data.getLong();
+        int offset = data.getInt();
+        ByteBuffer position = ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(segment).putInt(offset).flip();
+        if (checksum(position) != data.getInt()) {
+            throw new IOException("Поврежден checkpoint журнала аудита");
+        }
+        readSegment = segment;
+        readOffset = offset;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        ByteBuffer position = ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(readSegment).putInt(readOffset).flip();
+        ByteBuffer data = ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES)
+                .putLong(readSegment).putInt(readOffset).putInt(checksum(position.duplicate())).flip();
+
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(data);
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%020d.seg", index));
+    }
+
+    private static int checksum(ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,12 @@
+package com.ayungi.cms.audit;
+
+import java.util.List;
+
+/**
+ * Обработчик событий, уже записанных конвейером аудита в БД.
+ * Вызывается на потоке записи, поэтому должен быть быстрым и не бросать исключений наружу.
+ */
+public interface AuditWriteListener {
+
+    void onWritten(List<AuditEvent> events);
+}
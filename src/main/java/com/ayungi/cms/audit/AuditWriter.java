@@ -0,0 +1,70 @@
+package com.ayungi.cms.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись событий аудита в БД пакетами через JDBC batch
+ * (при reWriteBatchedInserts драйвер склеивает пакет в многострочный INSERT).
+ * Вставка идемпотентна по ID события: повторное проигрывание журнала не создает дубликатов.
+ * Детали сериализуются в JSONB здесь, на потоке записи, а не на потоке, публикующем событие.
+ */
+@Component
+@Slf4j
+public class AuditWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_logs (id, user_id, action, entity_type, entity_id, details, ip_address, timestamp) " +
+            "VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?) " +
+            "ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditDetailsJson detailsJson;
+
+    public AuditWriter(JdbcTemplate jdbcTemplate, AuditDetailsJson detailsJson) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.detailsJson = detailsJson;
+    }
+
+    /**
+     * Запись пакета событий одним JDBC batch
+     */
+    public void writeBatch(List<AuditEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setObject(1, event.id());
+            ps.setObject(2, event.userId(), Types.OTHER);
+            ps.setString(3, event.action().name());
+            ps.setString(4, event.entityType());
+            ps.setString(5, event.entityId());
+            ps.setString(6, detailsJson.toJson(event.details()));
+            ps.setString(7, event.ipAddress());
+            ps.setTimestamp(8, Timestamp.valueOf(event.timestamp()));
+        });
+    }
+
+    /**
+     * Поштучная запись пакета после ошибки batch: одно некорректное событие
+     * (например, ссылка на уже удаленного пользователя) не должно терять остальные
+     *
+     * @return записанные события (не удавшиеся не возвращаются)
+     */
+    public List<AuditEvent> writeIndividually(List<AuditEvent> events) {
+        List<AuditEvent> written = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            try {
+                writeBatch(List.of(event));
+                written.add(event);
+            } catch (DataAccessException e) {
+                log.warn("Не удалось записать событие аудита {}: {}", event.id(), e.getMessage());
+            }
+        }
+        return written;
+    }
+}
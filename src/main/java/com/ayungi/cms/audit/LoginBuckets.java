@@ -0,0 +1,70 @@
+package com.ayungi.cms.audit;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Скользящий счетчик входов за последние {@value #WINDOW_DAYS} дней.
+ * <p>
+ * Кольцо из суточных корзин, индекс корзины — номер дня по модулю размера окна;
+ * {@code anchor} — последний день, записанный в кольцо. Корзины дней старше окна
+ * обнуляются при сдвиге anchor, поэтому чтение счетчика не требует обращения к истории.
+ */
+public final class LoginBuckets {
+
+    public static final int WINDOW_DAYS = 30;
+
+    private LoginBuckets() {
+    }
+
+    public static int[] empty() {
+        return new int[WINDOW_DAYS];
+    }
+
+    /**
+     * Учет входов за день (изменяет {@code buckets})
+     *
+     * @return новый anchor
+     */
+    public static LocalDate record(int[] buckets, LocalDate anchor, LocalDate day, int count) {
+        if (anchor == null || !day.isBefore(anchor)) {
+            advance(buckets, anchor, day);
+            buckets[slot(day)] += count;
+            return day;
+        }
+        // Запоздавшее событие учитывается, только если его день еще в окне
+        if (anchor.toEpochDay() - day.toEpochDay() < WINDOW_DAYS) {
+            buckets[slot(day)] += count;
+        }
+        return anchor;
+    }
+
+    /**
+     * Количество входов за последние {@value #WINDOW_DAYS} дней, включая {@code today}
+     */
+    public static long rollingCount(int[] buckets, LocalDate anchor, LocalDate today) {
+        if (buckets == null || anchor == null) {
+            return 0;
+        }
+        long first = Math.max(anchor.toEpochDay(), today.toEpochDay()) - WINDOW_DAYS + 1;
+        long total = 0;
+        for (long day = first; day <= anchor.toEpochDay(); day++) {
+            total += buckets[(int) Math.floorMod(day, (long) WINDOW_DAYS)];
+        }
+        return total;
+    }
+
+    private static void advance(int[] buckets, LocalDate anchor, LocalDate day) {
+        if (anchor == null || day.toEpochDay() - anchor.toEpochDay() >= WINDOW_DAYS) {
+            Arrays.fill(buckets, 0);
+            return;
+        }
+        for (long d = anchor.toEpochDay() + 1; d <= day.toEpochDay(); d++) {
+            buckets[(int) Math.floorMod(d, (long) WINDOW_DAYS)] = 0;
+        }
+    }
+
+    private static int slot(LocalDate day) {
+        return (int) Math.floorMod(day.toEpochDay(), (long) WINDOW_DAYS);
+    }
+}
@@ -0,0 +1,150 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Обновление сводки входов (user_login_summary) по записанным событиям LOGIN.
+ * <p>
+ * Входы пакета агрегируются по пользователю и дню, затем строка сводки каждого пользователя
+ * обновляется под блокировкой FOR UPDATE (пользователи обходятся в порядке ID, чтобы
+ * параллельные экземпляры не взаимоблокировались). При повторном проигрывании журнала
+ * после сбоя счетчики могут учесть вход дважды — сводка не заменяет журнал аудита.
+ */
+@Component
+@Slf4j
+public class LoginSummaryUpdater implements AuditWriteListener {
+
+    private static final String ENSURE_SQL =
+            "INSERT INTO user_login_summary (user_id) SELECT id FROM users WHERE id = ? " +
+            "ON CONFLICT (user_id) DO NOTHING";
+
+    private static final String LOCK_SQL =
+            "SELECT daily_counts, bucket_day FROM user_login_summary WHERE user_id = ? FOR UPDATE";
+
+    // IP меняется, только если вход новее сохраненного (события журнала могут прийти позже)
+    private static final String UPDATE_SQL =
+            "UPDATE user_login_summary SET " +
+            "last_login_ip = CASE WHEN last_login_at IS NULL OR last_login_at < ? THEN ? ELSE last_login_ip END, " +
+            "last_login_at = GREATEST(last_login_at, ?), total_logins = total_logins + ?, " +
+            "daily_counts = ?, bucket_day = ?, updated_at = now() WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public LoginSummaryUpdater(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void onWritten(List<AuditEvent> events) {
+        Map<UUID, Logins> logins = new TreeMap<>();
+        for (AuditEvent event : events) {
+            if (event.action() == AuditAction.LOGIN && event.userId() != null) {
+                logins.computeIfAbsent(event.userId(), id -> new Logins()).add(event);
+            }
+        }
+        if (logins.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> logins.forEach(this::apply));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить сводку входов для {} пользователей: {}", logins.size(), e.getMessage());
+        }
+    }
+
+    private void apply(UUID userId, Logins logins) {
+        jdbcTemplate.update(ENSURE_SQL, userId);
+
+        List<Summary> rows = jdbcTemplate.query(LOCK_SQL, (rs, rowNum) -> {
+            Date bucketDay = rs.getDate("bucket_day");
+            return new Summary(toBuckets(rs.getArray("daily_counts")),
+                    bucketDay != null ? bucketDay.toLocalDate() : null);
+        }, userId);
+        if (rows.isEmpty()) {
+            // Пользователь уже удален
+            return;
+        }
+
+        Summary summary = rows.get(0);
+        int[] buckets = summary.buckets();
+        LocalDate anchor = summary.bucketDay();
+        for (Map.Entry<LocalDate, Integer> day : logins.perDay.entrySet()) {
+            anchor = LoginBuckets.record(buckets, anchor, day.getKey(), day.getValue());
+        }
+
+        LocalDate bucketDay = anchor;
+        Timestamp lastAt = Timestamp.valueOf(logins.lastAt);
+        jdbcTemplate.update(UPDATE_SQL, ps -> {
+            ps.setTimestamp(1, lastAt);
+            ps.setString(2, logins.lastIp);
+            ps.setTimestamp(3, lastAt);
+            ps.setLong(4, logins.total);
+            ps.setArray(5, ps.getConnection().createArrayOf("integer", box(buckets)));
+            ps.setObject(6, bucketDay);
+            ps.setObject(7, userId);
+        });
+    }
+
+    private static int[] toBuckets(Array array) throws SQLException {
+        int[] buckets = LoginBuckets.empty();
+        if (array == null) {
+            return buckets;
+        }
+        Object[] values = (Object[]) array.getArray();
+        for (int i = 0; i < Math.min(values.length, buckets.length); i++) {
+            buckets[i] = values[i] != null ? ((Number) values[i]).intValue() : 0;
+        }
+        return buckets;
+    }
+
+    private static Integer[] box(int[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+
+    private record Summary(int[] buckets, LocalDate bucketDay) {
+    }
+
+    /**
+     * Входы одного пользователя в пакете
+     */
+    private static final class Logins {
+
+        private final Map<LocalDate, Integer> perDay = new TreeMap<>();
+        private LocalDateTime lastAt;
+        private String lastIp;
+        private long total;
+
+        void add(AuditEvent event) {
+            // Схлопнутая запись учитывается всеми входами (окно схлопывания — секунды, день берется по первому)
+            perDay.merge(event.timestamp().toLocalDate(), event.count(), Integer::sum);
+            total += event.count();
+            LocalDateTime last = event.lastTimestamp();
+            if (lastAt == null || last.isAfter(lastAt)) {
+                lastAt = last;
+                lastIp = event.ipAddress();
+            }
+        }
+    }
+}
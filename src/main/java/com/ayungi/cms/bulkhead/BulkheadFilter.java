@@ -0,0 +1,144 @@
+package com.ayungi.cms.bulkhead;
+
+import com.ayungi.cms.datasource.Workload;
+import com.ayungi.cms.dto.response.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Классификация запросов по {@link EndpointClass}: отметка класса нагрузки потока (пул соединений)
+ * и ограничение одновременных запросов класса.
+ * <p>
+ * Фильтр стоит до Spring Security, поэтому загрузка пользователя по JWT тоже идет в пул своего класса.
+ * Заполненный ограничитель сразу отвечает 503 с Retry-After. Место потоковой выгрузки
+ * освобождается по завершении асинхронной обработки, а не при возврате из контроллера.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Map<EndpointClass, Bulkhead> bulkheads = new EnumMap<>(EndpointClass.class);
+    private final ObjectMapper objectMapper;
+    private final long retryAfterSeconds;
+
+    public BulkheadFilter(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${bulkhead.transfer.max-concurrent:32}") int transferMaxConcurrent,
+            @Value("${bulkhead.admin.max-concurrent:8}") int adminMaxConcurrent,
+            @Value("${bulkhead.export.max-concurrent:4}") int exportMaxConcurrent,
+            @Value("${bulkhead.max-wait-ms:20}") long maxWaitMs,
+            @Value("${bulkhead.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.objectMapper = objectMapper;
+        this.retryAfterSeconds = retryAfterSeconds;
+        bulkheads.put(EndpointClass.TRANSFER, new Bulkhead("transfer", transferMaxConcurrent, maxWaitMs, meterRegistry));
+        bulkheads.put(EndpointClass.ADMIN, new Bulkhead("admin", adminMaxConcurrent, maxWaitMs, meterRegistry));
+        bulkheads.put(EndpointClass.EXPORT, new Bulkhead("export", exportMaxConcurrent, maxWaitMs, meterRegistry));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        EndpointClass endpointClass = EndpointClass.of(request.getRequestURI().substring(request.getContextPath().length()));
+        Bulkhead bulkhead = bulkheads.get(endpointClass);
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            reject(request, response, bulkhead);
+            return;
+        }
+
+        Permit permit = new Permit(bulkhead);
+        endpointClass.workload().bind();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Workload.clear();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, Bulkhead bulkhead) throws IOException {
+        log.warn("Ограничитель {} заполнен ({} запросов), запрос {} отклонен",
+                bulkhead.getName(), bulkhead.getMaxConcurrent(), request.getRequestURI());
+
+        ErrorResponse errorResponse = ErrorResponse.of(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                "BULKHEAD_FULL",
+                "Сервис перегружен, повторите запрос позже",
+                request.getRequestURI()
+        );
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+    }
+
+    /**
+     * Место в ограничителе (освобождается один раз, в том числе после таймаута асинхронного запроса)
+     */
+    private static final class Permit implements AsyncListener {
+
+        private final Bulkhead bulkhead;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(Bulkhead bulkhead) {
+            this.bulkhead = bulkhead;
+        }
+
+        void release() {
+            if (bulkhead != null && released.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.ayungi.cms.bulkhead;
+
+import com.ayungi.cms.datasource.Workload;
+
+/**
+ * Класс конечных точек API: определяет изолирующий ограничитель (bulkhead) и пул соединений
+ */
+public enum EndpointClass {
+    /**
+     * Переводы
+     */
+    TRANSFER(Workload.OLTP),
+    /**
+     * Потоковые выгрузки админки
+     */
+    EXPORT(Workload.REPORTING),
+    /**
+     * Живая панель (SSE): соединение держится долго, но БД не использует — без ограничителя
+     */
+    STREAM(Workload.REPORTING),
+    /**
+     * Остальные запросы админки (списки, статистика, отчеты)
+     */
+    ADMIN(Workload.REPORTING),
+    /**
+     * Прочие пользовательские запросы — без ограничителя
+     */
+    DEFAULT(Workload.OLTP);
+
+    private final Workload workload;
+
+    EndpointClass(Workload workload) {
+        this.workload = workload;
+    }
+
+    public Workload workload() {
+        return workload;
+    }
+
+    /**
+     * Класс запроса по пути
+     */
+    public static EndpointClass of(String path) {
+        if (path.startsWith("/api/transfers")) {
+            return TRANSFER;
+        }
+        if (path.startsWith("/api/admin/")) {
+            if (path.endsWith("/export")) {
+                return EXPORT;
+            }
+            return path.equals("/api/admin/dashboard/stream") ? STREAM : ADMIN;
+        }
+        return DEFAULT;
+    }
+}
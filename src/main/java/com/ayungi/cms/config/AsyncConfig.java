@@ -1,9 +1,11 @@
 package com.ayungi.cms.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
@@ -17,7 +19,8 @@ import java.util.concurrent.Executor;
 public class AsyncConfig {
 
     /**
-     * Executor для асинхронных операций (например, аудит)
+     * Executor для асинхронных операций (например, удаление пользователей).
+     * Аудит пишется отдельным конвейером, см. AuditPipeline
      */
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
@@ -40,4 +43,21 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Executor потоковых выгрузок (StreamingResponseBody).
+     * Каждая выгрузка держит соединение с БД, поэтому число одновременных выгрузок ограничено
+     */
+    @Bean(name = "exportTaskExecutor")
+    public AsyncTaskExecutor exportTaskExecutor(
+            @Value("${export.max-concurrent:4}") int maxConcurrent,
+            @Value("${export.queue-capacity:8}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("Export-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,111 @@
+package com.ayungi.cms.config;
+
+import com.ayungi.cms.datasource.ReadYourWritesTracker;
+import com.ayungi.cms.datasource.ReplicaLagMonitor;
+import com.ayungi.cms.datasource.WorkloadRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Конфигурация источников данных.
+ * <p>
+ * Основная БД (spring.datasource.*) обслуживается двумя пулами с независимыми размерами
+ * и таймаутами: oltp (datasource.oltp.hikari.*) — пользовательские запросы,
+ * reporting (datasource.reporting.hikari.*) — админка, отчеты, выгрузки и фоновые задачи,
+ * audit (datasource.audit.hikari.*) — запись аудита.
+ * При datasource.replica.enabled добавляется пул реплики чтения (datasource.replica.*).
+ */
+@Configuration
+@Slf4j
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("datasource.oltp.hikari")
+    public HikariDataSource oltpDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("oltp");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.reporting.hikari")
+    public HikariDataSource reportingDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("reporting");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.audit.hikari")
+    public HikariDataSource auditDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("audit");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${datasource.replica.password:${spring.datasource.password}}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setReadOnly(true);
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            MeterRegistry meterRegistry,
+            @Value("${datasource.replica.max-lag-ms:2000}") long maxLagMs,
+            @Value("${datasource.replica.check-timeout-seconds:2}") int checkTimeoutSeconds) {
+        return new ReplicaLagMonitor(replicaDataSource, maxLagMs, checkTimeoutSeconds, meterRegistry);
+    }
+
+    /**
+     * Основной источник приложения (JPA, JdbcTemplate, Liquibase): маршрутизация по классу нагрузки и readOnly
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("oltpDataSource") DataSource oltpDataSource,
+            @Qualifier("reportingDataSource") DataSource reportingDataSource,
+            @Qualifier("auditDataSource") DataSource auditDataSource,
+            @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+            ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+            ReadYourWritesTracker readYourWritesTracker) {
+        DataSource replica = replicaDataSource.getIfAvailable();
+        if (replica != null) {
+            log.info("Чтения в транзакциях readOnly направляются в реплику");
+        }
+        WorkloadRoutingDataSource routing = new WorkloadRoutingDataSource(oltpDataSource, reportingDataSource,
+                auditDataSource, replica, replicaLagMonitor.getIfAvailable(), readYourWritesTracker);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
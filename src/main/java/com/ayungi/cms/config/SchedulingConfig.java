@@ -0,0 +1,12 @@
+package com.ayungi.cms.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Конфигурация периодических задач (обслуживание секций аудита и т.п.)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
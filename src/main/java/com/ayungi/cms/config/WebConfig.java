@@ -1,11 +1,36 @@
 package com.ayungi.cms.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 /**
  * Конфигурация Web MVC
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
+
+    private final AsyncTaskExecutor exportTaskExecutor;
+    private final long exportTimeoutMs;
+
+    public WebConfig(
+            @Qualifier("exportTaskExecutor") AsyncTaskExecutor exportTaskExecutor,
+            @Value("${export.timeout-minutes:60}") long exportTimeoutMinutes) {
+        this.exportTaskExecutor = exportTaskExecutor;
+        this.exportTimeoutMs = Duration.ofMinutes(exportTimeoutMinutes).toMillis();
+    }
+
+    /**
+     * Асинхронные ответы (потоковые выгрузки) выполняются в отдельном ограниченном пуле
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(exportTaskExecutor);
+        configurer.setDefaultTimeout(exportTimeoutMs);
+    }
 }
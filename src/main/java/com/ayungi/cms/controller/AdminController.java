@@ -3,13 +3,23 @@ package com.ayungi.cms.controller;
 import com.ayungi.cms.dto.response.*;
 import com.ayungi.cms.entity.User;
 import com.ayungi.cms.entity.enums.CardStatus;
+import com.ayungi.cms.entity.enums.CountMode;
+import com.ayungi.cms.entity.enums.RollupGranularity;
 import com.ayungi.cms.entity.enums.TransactionStatus;
-import com.ayungi.cms.repository.CardRepository;
-import com.ayungi.cms.repository.TransactionRepository;
+import com.ayungi.cms.entity.enums.UserSearchMode;
+import com.ayungi.cms.export.ExportFormat;
+import com.ayungi.cms.export.ExportService;
 import com.ayungi.cms.repository.UserRepository;
 import com.ayungi.cms.service.AuditService;
+import com.ayungi.cms.service.BalanceReconciliationService;
 import com.ayungi.cms.service.CardService;
+import com.ayungi.cms.service.DashboardService;
+import com.ayungi.cms.service.StatementService;
+import com.ayungi.cms.service.StatisticsService;
+import com.ayungi.cms.service.TransferRollupService;
 import com.ayungi.cms.service.TransferService;
+import com.ayungi.cms.service.UserDeletionService;
+import com.ayungi.cms.service.UserSearchService;
 import com.ayungi.cms.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -20,14 +30,22 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -42,28 +60,46 @@ import java.util.UUID;
 public class AdminController {
 
     private final UserService userService;
+    private final UserSearchService userSearchService;
+    private final UserDeletionService userDeletionService;
     private final CardService cardService;
     private final TransferService transferService;
     private final AuditService auditService;
+    private final ExportService exportService;
     private final UserRepository userRepository;
-    private final CardRepository cardRepository;
-    private final TransactionRepository transactionRepository;
+    private final StatisticsService statisticsService;
+    private final TransferRollupService transferRollupService;
+    private final DashboardService dashboardService;
+    private final BalanceReconciliationService reconciliationService;
+    private final StatementService statementService;
 
     public AdminController(
             UserService userService,
+            UserSearchService userSearchService,
+            UserDeletionService userDeletionService,
             CardService cardService,
             TransferService transferService,
             AuditService auditService,
+            ExportService exportService,
             UserRepository userRepository,
-            CardRepository cardRepository,
-            TransactionRepository transactionRepository) {
+            StatisticsService statisticsService,
+            TransferRollupService transferRollupService,
+            DashboardService dashboardService,
+            BalanceReconciliationService reconciliationService,
+            StatementService statementService) {
         this.userService = userService;
+        this.userSearchService = userSearchService;
+        this.userDeletionService = userDeletionService;
         this.cardService = cardService;
         this.transferService = transferService;
         this.auditService = auditService;
+        this.exportService = exportService;
         this.userRepository = userRepository;
-        this.cardRepository = cardRepository;
-        this.transactionRepository = transactionRepository;
+        this.statisticsService = statisticsService;
+        this.transferRollupService = transferRollupService;
+        this.dashboardService = dashboardService;
+        this.reconciliationService = reconciliationService;
+        this.statementService = statementService;
     }
 
     /**
@@ -71,12 +107,13 @@ public class AdminController {
      */
     @GetMapping("/users")
     @Operation(summary = "Список пользователей", description = "Получение списка всех пользователей")
-    public ResponseEntity<Page<UserResponse>> getAllUsers(
+    public ResponseEntity<SliceResponse<UserResponse>> getAllUsers(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "EXACT") CountMode count) {
         log.info("Запрос списка всех пользователей");
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<UserResponse> users = userService.getAllUsers(pageable);
+        SliceResponse<UserResponse> users = userService.getAllUsers(pageable, count);
         return ResponseEntity.ok(users);
     }
 
@@ -92,17 +129,28 @@ public class AdminController {
     }
 
     /**
-     * Удаление пользователя
+     * Удаление пользователя (асинхронно, пользователь блокируется до завершения)
      */
     @DeleteMapping("/users/{id}")
-    @Operation(summary = "Удаление пользователя", description = "Удаление пользователя из системы")
-    public ResponseEntity<MessageResponse> deleteUser(
+    @Operation(summary = "Удаление пользователя",
+            description = "Запуск фонового удаления пользователя и всех его данных. Возвращает задание для отслеживания прогресса")
+    public ResponseEntity<UserDeletionJobResponse> deleteUser(
             @PathVariable UUID id,
             Authentication authentication) {
         log.info("Запрос на удаление пользователя: {}", id);
         User currentUser = getCurrentUser(authentication);
-        userService.deleteUser(id, currentUser);
-        return ResponseEntity.ok(MessageResponse.of("Пользователь успешно удален"));
+        UserDeletionJobResponse response = userDeletionService.requestDeletion(id, currentUser);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    /**
+     * Состояние задания на удаление пользователя
+     */
+    @GetMapping("/users/deletions/{jobId}")
+    @Operation(summary = "Прогресс удаления пользователя", description = "Получение состояния задания на удаление")
+    public ResponseEntity<UserDeletionJobResponse> getDeletionJob(@PathVariable UUID jobId) {
+        log.info("Запрос состояния удаления: {}", jobId);
+        return ResponseEntity.ok(userDeletionService.getJob(jobId));
     }
 
     /**
@@ -124,14 +172,15 @@ public class AdminController {
      */
     @GetMapping("/cards")
     @Operation(summary = "Список всех карт", description = "Получение списка всех карт с фильтрацией")
-    public ResponseEntity<Page<CardResponse>> getAllCards(
+    public ResponseEntity<SliceResponse<CardResponse>> getAllCards(
             @RequestParam(required = false) CardStatus status,
             @RequestParam(required = false) UUID ownerId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "EXACT") CountMode count) {
         log.info("Запрос списка всех карт");
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<CardResponse> cards = cardService.getAllCards(status, ownerId, pageable);
+        SliceResponse<CardResponse> cards = cardService.getAllCards(status, ownerId, pageable, count);
         return ResponseEntity.ok(cards);
     }
 
@@ -140,103 +189,213 @@ public class AdminController {
      */
     @GetMapping("/transactions")
     @Operation(summary = "Список всех транзакций", description = "Получение списка всех транзакций с фильтрацией")
-    public ResponseEntity<Page<TransactionResponse>> getAllTransactions(
+    public ResponseEntity<SliceResponse<TransactionResponse>> getAllTransactions(
             @RequestParam(required = false) TransactionStatus status,
             @RequestParam(required = false) @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate endDate,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "EXACT") CountMode count) {
         log.info("Запрос списка всех транзакций");
         Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
         LocalDateTime startDateTime = startDate != null ? startDate.atStartOfDay() : null;
         LocalDateTime endDateTime = endDate != null ? endDate.atTime(23, 59, 59) : null;
-        Page<TransactionResponse> transactions = transferService.getAllTransactions(status, startDateTime, endDateTime, pageable);
+        SliceResponse<TransactionResponse> transactions =
+                transferService.getAllTransactions(status, startDateTime, endDateTime, pageable, count);
         return ResponseEntity.ok(transactions);
     }
 
+    /**
+     * Потоковая выгрузка транзакций
+     */
+    @GetMapping("/transactions/export")
+    @Operation(summary = "Выгрузка транзакций", description = "Потоковая выгрузка транзакций в NDJSON или CSV")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) TransactionStatus status,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate endDate) {
+        log.info("Запрос выгрузки транзакций в {}", format);
+        LocalDateTime startDateTime = startDate != null ? startDate.atStartOfDay() : null;
+        LocalDateTime endDateTime = endDate != null ? endDate.atTime(23, 59, 59) : null;
+        return exportResponse("transactions", format, out ->
+                exportService.exportTransactions(format, status, startDateTime, endDateTime, out));
+    }
+
     /**
      * Получение логов аудита
      */
     @GetMapping("/audit-logs")
     @Operation(summary = "Логи аудита", description = "Получение системных логов аудита")
-    public ResponseEntity<Page<AuditLogResponse>> getAuditLogs(
+    public ResponseEntity<SliceResponse<AuditLogResponse>> getAuditLogs(
             @RequestParam(required = false) UUID userId,
             @RequestParam(required = false) String action,
             @RequestParam(required = false) String entityType,
             @RequestParam(required = false) LocalDateTime startDate,
             @RequestParam(required = false) LocalDateTime endDate,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "EXACT") CountMode count) {
         log.info("Запрос логов аудита");
         Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
-        Page<AuditLogResponse> logs = auditService.getAllLogs(
+        SliceResponse<AuditLogResponse> logs = auditService.getAllLogs(
                 userId, 
                 action != null ? com.ayungi.cms.entity.enums.AuditAction.valueOf(action) : null,
                 entityType, 
                 startDate, 
                 endDate, 
-                pageable
+                pageable,
+                count
         );
         return ResponseEntity.ok(logs);
     }
 
+    /**
+     * Потоковая выгрузка логов аудита
+     */
+    @GetMapping("/audit-logs/export")
+    @Operation(summary = "Выгрузка логов аудита", description = "Потоковая выгрузка логов аудита в NDJSON или CSV")
+    public ResponseEntity<StreamingResponseBody> exportAuditLogs(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate) {
+        log.info("Запрос выгрузки логов аудита в {}", format);
+        com.ayungi.cms.entity.enums.AuditAction auditAction =
+                action != null ? com.ayungi.cms.entity.enums.AuditAction.valueOf(action) : null;
+        return exportResponse("audit-logs", format, out ->
+                exportService.exportAuditLogs(format, userId, auditAction, entityType, startDate, endDate, out));
+    }
+
+    /**
+     * Поиск переводов с карты по сумме (по структурированным деталям аудита)
+     */
+    @GetMapping("/audit-logs/transfers")
+    @Operation(summary = "Переводы по логам аудита", description = "Исходящие переводы с карты на сумму не меньше указанной")
+    public ResponseEntity<Page<AuditLogResponse>> getAuditTransfers(
+            @RequestParam UUID cardId,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        log.info("Запрос переводов с карты {} по логам аудита", cardId);
+        Page<AuditLogResponse> logs = auditService.getTransfersFromCard(
+                cardId, minAmount, startDate, endDate, PageRequest.of(page, size));
+        return ResponseEntity.ok(logs);
+    }
+
     /**
      * Получение статистики системы
      */
     @GetMapping("/statistics")
-    @Operation(summary = "Статистика системы", description = "Получение общей статистики по системе")
-    public ResponseEntity<StatisticsResponse> getStatistics() {
+    @Operation(summary = "Статистика системы", description = "Получение общей статистики по системе (exact=true — по агрегатам SQL)")
+    public ResponseEntity<StatisticsResponse> getStatistics(
+            @RequestParam(defaultValue = "false") boolean exact) {
         log.info("Запрос статистики системы");
-        
-        long totalUsers = userRepository.count();
-        long totalCards = cardRepository.count();
-        long activeCards = cardRepository.countByStatus(CardStatus.ACTIVE);
-        long blockedCards = cardRepository.countByStatus(CardStatus.BLOCKED);
-        long expiredCards = cardRepository.countByStatus(CardStatus.EXPIRED);
-        long totalTransactions = transactionRepository.count();
-        long successfulTransactions = transactionRepository.countByStatus(TransactionStatus.SUCCESS);
-        long failedTransactions = transactionRepository.countByStatus(TransactionStatus.FAILED);
-        
-        BigDecimal totalBalance = cardRepository.findAll().stream()
-                .map(card -> card.getBalance())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal totalTransactionAmount = transactionRepository.findByStatus(TransactionStatus.SUCCESS, Pageable.unpaged())
-                .stream()
-                .map(transaction -> transaction.getAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        StatisticsResponse statistics = StatisticsResponse.builder()
-                .totalUsers(totalUsers)
-                .totalCards(totalCards)
-                .activeCards(activeCards)
-                .blockedCards(blockedCards)
-                .expiredCards(expiredCards)
-                .totalTransactions(totalTransactions)
-                .successfulTransactions(successfulTransactions)
-                .failedTransactions(failedTransactions)
-                .totalBalance(totalBalance)
-                .totalTransactionAmount(totalTransactionAmount)
-                .build();
-        
-        return ResponseEntity.ok(statistics);
+        return ResponseEntity.ok(exact ? statisticsService.getExactStatistics() : statisticsService.getStatistics());
+    }
+
+    /**
+     * Временной ряд переводов по агрегатам
+     */
+    @GetMapping("/statistics/timeseries")
+    @Operation(summary = "Временной ряд переводов", description = "Количество, сумма и доля неудачных переводов по часам или дням")
+    public ResponseEntity<List<TransferTimeseriesPoint>> getTransferTimeseries(
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam(required = false) LocalDateTime from,
+            @RequestParam(required = false) LocalDateTime to) {
+        log.info("Запрос временного ряда переводов ({})", granularity);
+        return ResponseEntity.ok(transferRollupService.getTimeseries(granularity, from, to));
+    }
+
+    /**
+     * Живая панель: поток изменений статистики (SSE)
+     */
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Живая панель", description = "Событие snapshot при подключении, далее delta с изменившимися полями")
+    public SseEmitter streamDashboard() {
+        log.info("Подключение к живой панели");
+        return dashboardService.subscribe();
+    }
+
+    /**
+     * Запуск сверки балансов карт с историей переводов (асинхронно)
+     */
+    @PostMapping("/reconciliation/balances")
+    @Operation(summary = "Сверка балансов", description = "Запуск фоновой сверки балансов карт с историей переводов")
+    public ResponseEntity<BalanceReconciliationResponse> startBalanceReconciliation(Authentication authentication) {
+        log.info("Запрос на сверку балансов");
+        User currentUser = getCurrentUser(authentication);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(reconciliationService.start(currentUser));
+    }
+
+    /**
+     * Состояние сверки балансов
+     */
+    @GetMapping("/reconciliation/balances/{runId}")
+    @Operation(summary = "Прогресс сверки балансов", description = "Прогресс сверки и первые найденные расхождения")
+    public ResponseEntity<BalanceReconciliationResponse> getBalanceReconciliation(@PathVariable UUID runId) {
+        log.info("Запрос состояния сверки балансов: {}", runId);
+        return ResponseEntity.ok(reconciliationService.getRun(runId));
+    }
+
+    /**
+     * Запуск генерации месячных выписок
+     */
+    @PostMapping("/statements/{period}")
+    @Operation(summary = "Генерация выписок", description = "Запуск (или продолжение с контрольной точки) " +
+            "генерации выписок по картам за закрытый месяц (yyyy-MM)")
+    public ResponseEntity<StatementJobResponse> startStatements(
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM") YearMonth period,
+            Authentication authentication) {
+        log.info("Запрос на генерацию выписок за {}", period);
+        User currentUser = getCurrentUser(authentication);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(statementService.start(period, currentUser));
+    }
+
+    /**
+     * Состояние генерации месячных выписок
+     */
+    @GetMapping("/statements/{period}")
+    @Operation(summary = "Прогресс генерации выписок", description = "Прогресс генерации выписок за месяц")
+    public ResponseEntity<StatementJobResponse> getStatementJob(
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM") YearMonth period) {
+        log.info("Запрос состояния генерации выписок за {}", period);
+        return ResponseEntity.ok(statementService.getJob(period));
     }
 
     /**
      * Поиск пользователей
      */
     @GetMapping("/users/search")
-    @Operation(summary = "Поиск пользователей", description = "Поиск пользователей по имени или email")
-    public ResponseEntity<Page<UserResponse>> searchUsers(
+    @Operation(summary = "Поиск пользователей", description = "Поиск пользователей по имени или email, " +
+            "результаты отсортированы по релевантности (без общего количества)")
+    public ResponseEntity<SliceResponse<UserResponse>> searchUsers(
             @RequestParam String query,
+            @RequestParam(defaultValue = "CONTAINS") UserSearchMode mode,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         log.info("Поиск пользователей: {}", query);
         Pageable pageable = PageRequest.of(page, size);
-        Page<UserResponse> users = userService.searchUsers(query, pageable);
+        SliceResponse<UserResponse> users = userSearchService.searchUsers(query, mode, pageable);
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * Подсказки пользователей для автодополнения
+     */
+    @GetMapping("/users/suggest")
+    @Operation(summary = "Подсказки пользователей", description = "Префиксный поиск по имени или email для автодополнения")
+    public ResponseEntity<List<UserSearchResponse>> suggestUsers(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        log.debug("Подсказки пользователей: {}", query);
+        return ResponseEntity.ok(userSearchService.suggest(query, limit));
+    }
+
     /**
      * Получение текущего пользователя
      */
@@ -244,4 +403,15 @@ public class AdminController {
         return userRepository.findByUsername(authentication.getName())
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
     }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(
+            String name, ExportFormat format, StreamingResponseBody body) {
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(name + "-" + LocalDate.now() + "." + format.extension())
+                .build();
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
 }
@@ -3,10 +3,13 @@ package com.ayungi.cms.controller;
 import com.ayungi.cms.dto.request.CardCreateRequest;
 import com.ayungi.cms.dto.response.BalanceResponse;
 import com.ayungi.cms.dto.response.CardResponse;
+import com.ayungi.cms.dto.response.CardSummaryResponse;
 import com.ayungi.cms.dto.response.MessageResponse;
 import com.ayungi.cms.entity.User;
 import com.ayungi.cms.repository.UserRepository;
 import com.ayungi.cms.service.CardService;
+import com.ayungi.cms.service.StatementService;
+import com.ayungi.cms.service.UserCardSummaryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -16,12 +19,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.YearMonth;
 import java.util.UUID;
 
 /**
@@ -35,10 +41,15 @@ import java.util.UUID;
 public class CardController {
 
     private final CardService cardService;
+    private final StatementService statementService;
+    private final UserCardSummaryService cardSummaryService;
     private final UserRepository userRepository;
 
-    public CardController(CardService cardService, UserRepository userRepository) {
+    public CardController(CardService cardService, StatementService statementService,
+                          UserCardSummaryService cardSummaryService, UserRepository userRepository) {
         this.cardService = cardService;
+        this.statementService = statementService;
+        this.cardSummaryService = cardSummaryService;
         this.userRepository = userRepository;
     }
 
@@ -80,6 +91,17 @@ public class CardController {
         return ResponseEntity.ok(cards);
     }
 
+    /**
+     * Сводка карт текущего пользователя
+     */
+    @GetMapping("/summary")
+    @Operation(summary = "Сводка карт", description = "Количество карт и общий баланс текущего пользователя")
+    public ResponseEntity<CardSummaryResponse> getCardSummary(Authentication authentication) {
+        log.info("Запрос сводки карт пользователя: {}", authentication.getName());
+        User currentUser = getCurrentUser(authentication);
+        return ResponseEntity.ok(cardSummaryService.getSummary(currentUser.getId()));
+    }
+
     /**
      * Получение карты по ID
      */
@@ -108,6 +130,22 @@ public class CardController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Месячная выписка по карте
+     */
+    @GetMapping(value = "/{id}/statements/{period}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Выписка по карте", description = "Получение сформированной выписки по карте за месяц (yyyy-MM)")
+    public ResponseEntity<String> getCardStatement(
+            @PathVariable UUID id,
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM") YearMonth period,
+            Authentication authentication) {
+        log.info("Запрос выписки по карте {} за {}", id, period);
+        User currentUser = getCurrentUser(authentication);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(statementService.getStatement(id, period, currentUser));
+    }
+
     /**
      * Блокировка карты
      */
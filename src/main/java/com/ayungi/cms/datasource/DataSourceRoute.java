@@ -0,0 +1,23 @@
+package com.ayungi.cms.datasource;
+
+/**
+ * Пул соединений, в который направляется транзакция
+ */
+public enum DataSourceRoute {
+    /**
+     * Основная БД, пул пользовательских операций (переводы, карты)
+     */
+    OLTP,
+    /**
+     * Основная БД, пул админки, отчетов, выгрузок и прочих фоновых задач
+     */
+    REPORTING,
+    /**
+     * Основная БД, пул записи аудита
+     */
+    AUDIT,
+    /**
+     * Реплика чтения (транзакции readOnly)
+     */
+    REPLICA
+}
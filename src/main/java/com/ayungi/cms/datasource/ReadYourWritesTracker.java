@@ -0,0 +1,79 @@
+package com.ayungi.cms.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Окно «чтения своих записей»: после собственного перевода чтения пользователя
+ * в течение sticky-window-ms идут в основную БД, а не в отстающую реплику.
+ * <p>
+ * Окно хранится в памяти экземпляра; при нескольких экземплярах за балансировщиком
+ * нужна привязка сессии, иначе запрос на другой экземпляр может прочитать реплику.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long windowNanos;
+
+    public ReadYourWritesTracker(
+            @Value("${datasource.replica.enabled:false}") boolean enabled,
+            @Value("${datasource.replica.sticky-window-ms:5000}") long windowMs) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+    }
+
+    /**
+     * Отметка записи пользователя (после фиксации текущей транзакции, без транзакции — сразу)
+     */
+    public void recordWrite(String username) {
+        if (!enabled || username == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(username);
+                }
+            });
+        } else {
+            record(username);
+        }
+    }
+
+    /**
+     * Должны ли чтения пользователя идти в основную БД
+     */
+    public boolean isSticky(String username) {
+        if (username == null) {
+            return false;
+        }
+        Long writtenAt = lastWrites.get(username);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt < windowNanos) {
+            return true;
+        }
+        lastWrites.remove(username, writtenAt);
+        return false;
+    }
+
+    private void record(String username) {
+        long now = System.nanoTime();
+        lastWrites.put(username, now);
+        if (lastWrites.size() > PURGE_THRESHOLD) {
+            lastWrites.values().removeIf(writtenAt -> now - writtenAt >= windowNanos);
+        }
+    }
+}
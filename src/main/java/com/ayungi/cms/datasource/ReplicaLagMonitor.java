@@ -0,0 +1,75 @@
+package com.ayungi.cms.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Контроль отставания реплики.
+ * <p>
+ * Реплика используется, только если последняя проверка прошла успешно и отставание
+ * не больше max-lag-ms. До первой проверки, при ошибке соединения или большом отставании
+ * чтения идут в основную БД.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // Реплика без непроигранного WAL не отстает, даже если на основной БД давно не было записей
+    private static final String LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            END""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxLagMs;
+
+    private volatile boolean usable;
+    private volatile double lagMs = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagMs, int checkTimeoutSeconds,
+                             MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.jdbcTemplate.setQueryTimeout(checkTimeoutSeconds);
+        this.maxLagMs = maxLagMs;
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagMs)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Можно ли направлять чтения в реплику
+     */
+    public boolean isUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-ms:1000}")
+    public void check() {
+        boolean wasUsable = usable;
+        try {
+            Double lag = jdbcTemplate.queryForObject(LAG_SQL, Double.class);
+            lagMs = lag != null ? lag : 0;
+            usable = lagMs <= maxLagMs;
+            if (wasUsable && !usable) {
+                log.warn("Отставание реплики {} мс больше {} мс, чтения переведены на основную БД",
+                        Math.round(lagMs), maxLagMs);
+            }
+        } catch (RuntimeException e) {
+            lagMs = Double.NaN;
+            usable = false;
+            if (wasUsable) {
+                log.warn("Реплика недоступна, чтения переведены на основную БД: {}", e.getMessage());
+            }
+        }
+        if (!wasUsable && usable) {
+            log.info("Чтения направляются в реплику (отставание {} мс)", Math.round(lagMs));
+        }
+    }
+}
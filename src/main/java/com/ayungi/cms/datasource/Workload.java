@@ -0,0 +1,37 @@
+package com.ayungi.cms.datasource;
+
+/**
+ * Класс нагрузки текущего потока (определяет пул основной БД)
+ */
+public enum Workload {
+    OLTP,
+    REPORTING,
+    /**
+     * Запись аудита (поток audit-writer, ретранслятор outbox, обслуживание секций):
+     * отдельный пул, чтобы аудит не ждал соединений за отчетами и выгрузками
+     */
+    AUDIT;
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Нагрузка текущего потока. Поток без отметки (фоновые задачи, планировщик,
+     * потоки выгрузок) относится к REPORTING: в пулы OLTP и AUDIT попадают только
+     * явно отмеченные потоки.
+     */
+    public static Workload current() {
+        Workload workload = CURRENT.get();
+        return workload != null ? workload : REPORTING;
+    }
+
+    /**
+     * Отметка текущего потока (снимается {@link #clear()})
+     */
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,74 @@
+package com.ayungi.cms.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Маршрутизация соединений по классу нагрузки и признаку readOnly.
+ * <p>
+ * Пользовательские запросы ({@link Workload#OLTP}) и админка, отчеты, выгрузки и фоновые задачи
+ * ({@link Workload#REPORTING}) берут соединения из разных пулов основной БД, поэтому тяжелый отчет
+ * не занимает соединения, нужные переводам; запись аудита ({@link Workload#AUDIT}) идет через
+ * третий пул и не ждет отчетов. Если настроена реплика, транзакции readOnly идут в нее,
+ * кроме случаев, когда реплика отстает или недоступна ({@link ReplicaLagMonitor}) либо текущий
+ * пользователь недавно выполнил перевод ({@link ReadYourWritesTracker}).
+ * <p>
+ * Решение принимается при получении соединения, поэтому источник оборачивается в
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: соединение
+ * берется при первом запросе, когда признак readOnly транзакции уже установлен.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    /**
+     * @param replica реплика чтения или null, если не настроена
+     * @param lagMonitor контроль отставания реплики (null без реплики)
+     */
+    public WorkloadRoutingDataSource(DataSource oltp, DataSource reporting, DataSource audit, DataSource replica,
+                                     ReplicaLagMonitor lagMonitor, ReadYourWritesTracker readYourWritesTracker) {
+        this.lagMonitor = replica != null ? lagMonitor : null;
+        this.readYourWritesTracker = readYourWritesTracker;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(DataSourceRoute.OLTP, oltp);
+        targets.put(DataSourceRoute.REPORTING, reporting);
+        targets.put(DataSourceRoute.AUDIT, audit);
+        if (replica != null) {
+            targets.put(DataSourceRoute.REPLICA, replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(reporting);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected DataSourceRoute determineCurrentLookupKey() {
+        if (useReplica()) {
+            return DataSourceRoute.REPLICA;
+        }
+        return switch (Workload.current()) {
+            case OLTP -> DataSourceRoute.OLTP;
+            case REPORTING -> DataSourceRoute.REPORTING;
+            case AUDIT -> DataSourceRoute.AUDIT;
+        };
+    }
+
+    private boolean useReplica() {
+        if (lagMonitor == null ||
+            !TransactionSynchronizationManager.isActualTransactionActive() ||
+            !TransactionSynchronizationManager.isCurrentTransactionReadOnly() ||
+            !lagMonitor.isUsable()) {
+            return false;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !readYourWritesTracker.isSticky(authentication.getName());
+    }
+}
@@ -1,5 +1,6 @@
 package com.ayungi.cms.dto.mapper;
 
+import com.ayungi.cms.audit.AuditEvent;
 import com.ayungi.cms.dto.response.AuditLogResponse;
 import com.ayungi.cms.entity.AuditLog;
 import org.springframework.stereotype.Component;
@@ -30,4 +31,21 @@ public class AuditLogMapper {
                 .timestamp(auditLog.getTimestamp())
                 .build();
     }
+
+    /**
+     * Преобразование архивного события в AuditLogResponse
+     */
+    public AuditLogResponse toResponse(AuditEvent event, String username) {
+        return AuditLogResponse.builder()
+                .id(event.id())
+                .userId(event.userId())
+                .username(username)
+                .action(event.action())
+                .entityType(event.entityType())
+                .entityId(event.entityId())
+                .details(event.details().isEmpty() ? null : event.details().asMap())
+                .ipAddress(event.ipAddress())
+                .timestamp(event.timestamp())
+                .build();
+    }
 }
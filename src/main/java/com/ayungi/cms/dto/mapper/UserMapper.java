@@ -1,18 +1,22 @@
 package com.ayungi.cms.dto.mapper;
 
 import com.ayungi.cms.dto.response.UserResponse;
-import com.ayungi.cms.entity.Role;
 import com.ayungi.cms.entity.User;
+import com.ayungi.cms.security.RoleRegistry;
 import org.springframework.stereotype.Component;
 
-import java.util.stream.Collectors;
-
 /**
  * Маппер для преобразования User в DTO
  */
 @Component
 public class UserMapper {
 
+    private final RoleRegistry roleRegistry;
+
+    public UserMapper(RoleRegistry roleRegistry) {
+        this.roleRegistry = roleRegistry;
+    }
+
     /**
      * Преобразование User в UserResponse
      */
@@ -25,13 +29,11 @@ public class UserMapper {
                 .id(user.getId())
                 .username(user.getUsername())
                 .email(user.getEmail())
-                .roles(user.getRoles().stream()
-                        .map(Role::getName)
-                        .collect(Collectors.toSet()))
+                .roles(roleRegistry.namesOf(user.getRoleMask()))
                 .enabled(user.getEnabled())
                 .createdAt(user.getCreatedAt())
                 .updatedAt(user.getUpdatedAt())
-                .cardsCount(user.getCards() != null ? user.getCards().size() : 0)
+                .cardsCount(user.getCardsCount())
                 .build();
     }
 }
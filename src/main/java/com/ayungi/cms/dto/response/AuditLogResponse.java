@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -30,7 +31,7 @@ public class AuditLogResponse {
     
     private String entityId;
     
-    private String details;
+    private Map<String, Object> details;
     
     private String ipAddress;
     
@@ -0,0 +1,31 @@
+package com.ayungi.cms.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * DTO расхождения баланса карты с историей переводов
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceDiscrepancyResponse {
+
+    private UUID cardId;
+
+    private BigDecimal balance;
+
+    /**
+     * Начальный баланс + входящие − исходящие успешные переводы
+     */
+    private BigDecimal expectedBalance;
+
+    private LocalDateTime detectedAt;
+}
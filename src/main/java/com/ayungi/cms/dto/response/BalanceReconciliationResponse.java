@@ -0,0 +1,46 @@
+package com.ayungi.cms.dto.response;
+
+import com.ayungi.cms.entity.enums.ReconciliationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO для ответа с состоянием сверки балансов
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceReconciliationResponse {
+
+    private UUID id;
+
+    private ReconciliationStatus status;
+
+    private Integer totalChunks;
+
+    private Integer chunksDone;
+
+    private Long cardsChecked;
+
+    private Long discrepancies;
+
+    /**
+     * Первые найденные расхождения (полный отчет — в balance_discrepancies)
+     */
+    private List<BalanceDiscrepancyResponse> sample;
+
+    private String errorMessage;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,50 @@
+package com.ayungi.cms.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO месячной выписки по карте (хранится в card_statements.content)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CardStatementResponse {
+
+    private UUID cardId;
+
+    private String cardMaskedNumber;
+
+    /**
+     * Месяц выписки (yyyy-MM)
+     */
+    private String period;
+
+    private BigDecimal openingBalance;
+
+    private BigDecimal closingBalance;
+
+    /**
+     * Сумма успешных входящих переводов
+     */
+    private BigDecimal totalIncoming;
+
+    /**
+     * Сумма успешных исходящих переводов
+     */
+    private BigDecimal totalOutgoing;
+
+    private Integer transactionCount;
+
+    private List<TransactionResponse> transactions;
+
+    private LocalDateTime generatedAt;
+}
@@ -0,0 +1,24 @@
+package com.ayungi.cms.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO для ответа со сводкой карт пользователя
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CardSummaryResponse {
+
+    private Integer cardsCount;
+
+    private Integer activeCardsCount;
+
+    private BigDecimal totalBalance;
+}
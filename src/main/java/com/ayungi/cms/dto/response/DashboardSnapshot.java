@@ -0,0 +1,39 @@
+package com.ayungi.cms.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO снимка живой панели администратора (SSE)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardSnapshot {
+
+    private LocalDateTime timestamp;
+
+    /**
+     * Переводов в секунду за последний интервал
+     */
+    private Double transfersPerSecond;
+
+    /**
+     * Доля неудачных переводов за последний интервал (0..1)
+     */
+    private Double failureRate;
+
+    private Long activeCards;
+
+    private Long totalTransactions;
+
+    /**
+     * Событий в буфере конвейера аудита
+     */
+    private Integer auditQueueDepth;
+}
@@ -0,0 +1,70 @@
+package com.ayungi.cms.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * DTO страницы списка: поля совпадают с сериализацией Page,
+ * но totalElements/totalPages могут отсутствовать (CountMode.NONE) или быть оценкой
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SliceResponse<T> {
+
+    private List<T> content;
+
+    private Integer number;
+
+    private Integer size;
+
+    private Integer numberOfElements;
+
+    private Boolean first;
+
+    private Boolean last;
+
+    private Boolean hasNext;
+
+    private Long totalElements;
+
+    private Integer totalPages;
+
+    /**
+     * Общее количество — оценка, а не точный подсчет
+     */
+    private Boolean totalApproximate;
+
+    public static <T> SliceResponse<T> of(Page<T> page) {
+        return of(page, page.getTotalElements(), false);
+    }
+
+    public static <T> SliceResponse<T> of(Slice<T> slice, Long totalElements, boolean approximate) {
+        Long total = totalElements;
+        if (total != null) {
+            // Оценка не может быть меньше уже увиденных строк
+            long seen = slice.getNumberOfElements()
+                    + (slice.getPageable().isPaged() ? slice.getPageable().getOffset() : 0);
+            total = Math.max(total, slice.hasNext() ? seen + 1 : seen);
+        }
+        return SliceResponse.<T>builder()
+                .content(slice.getContent())
+                .number(slice.getNumber())
+                .size(slice.getSize())
+                .numberOfElements(slice.getNumberOfElements())
+                .first(slice.isFirst())
+                .last(!slice.hasNext())
+                .hasNext(slice.hasNext())
+                .totalElements(total)
+                .totalPages(total != null && slice.getSize() > 0 ? (int) Math.ceil((double) total / slice.getSize()) : null)
+                .totalApproximate(total != null && approximate)
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.ayungi.cms.dto.response;
+
+import com.ayungi.cms.entity.enums.StatementJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * DTO для ответа с состоянием генерации выписок за месяц
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatementJobResponse {
+
+    /**
+     * Месяц выписок (yyyy-MM)
+     */
+    private String period;
+
+    private StatementJobStatus status;
+
+    private UUID lastCardId;
+
+    private Long cardsDone;
+
+    private String errorMessage;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
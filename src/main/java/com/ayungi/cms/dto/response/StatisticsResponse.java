@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.Map;
 
 /**
  * DTO для ответа со статистикой системы (для админа)
@@ -35,4 +36,9 @@ public class StatisticsResponse {
     private BigDecimal totalBalance;
     
     private BigDecimal totalTransactionAmount;
+
+    /**
+     * Ошибки запросов по группам полей (только для точной статистики)
+     */
+    private Map<String, String> errors;
 }
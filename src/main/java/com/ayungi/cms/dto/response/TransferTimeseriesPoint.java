@@ -0,0 +1,37 @@
+package com.ayungi.cms.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO точки временного ряда переводов
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferTimeseriesPoint {
+
+    private LocalDateTime bucketStart;
+
+    private Long totalCount;
+
+    private Long successCount;
+
+    private Long failedCount;
+
+    /**
+     * Сумма успешных переводов
+     */
+    private BigDecimal totalAmount;
+
+    /**
+     * Доля неудачных переводов (0..1)
+     */
+    private Double failureRate;
+}
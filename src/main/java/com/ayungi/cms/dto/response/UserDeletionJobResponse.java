@@ -0,0 +1,44 @@
+package com.ayungi.cms.dto.response;
+
+import com.ayungi.cms.entity.enums.DeletionJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * DTO для ответа с состоянием задания на удаление пользователя
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserDeletionJobResponse {
+
+    private UUID id;
+
+    private UUID userId;
+
+    private String username;
+
+    private DeletionJobStatus status;
+
+    private Integer totalCards;
+
+    private Integer cardsDeleted;
+
+    private Long transactionsDeleted;
+
+    private Long auditLogsDetached;
+
+    private String errorMessage;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
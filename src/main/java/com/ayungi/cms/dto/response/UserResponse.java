@@ -33,4 +33,12 @@ public class UserResponse {
     private LocalDateTime updatedAt;
     
     private Integer cardsCount;
+
+    private LocalDateTime lastLoginAt;
+
+    private String lastLoginIp;
+
+    private Long loginsLast30Days;
+
+    private Long totalLogins;
 }
@@ -0,0 +1,28 @@
+package com.ayungi.cms.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * DTO для ответа с результатом поиска пользователей (подсказки)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserSearchResponse {
+
+    private UUID id;
+    
+    private String username;
+    
+    private String email;
+    
+    private Boolean enabled;
+    
+    private Double score;
+}
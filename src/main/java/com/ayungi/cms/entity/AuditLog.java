@@ -4,16 +4,22 @@ import com.ayungi.cms.entity.enums.AuditAction;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 /**
- * Сущность для системного аудита операций
+ * Сущность для системного аудита операций.
+ * Таблица секционирована по месяцам (timestamp), первичный ключ в БД — (id, timestamp).
  */
 @Entity
 @Table(name = "audit_logs", indexes = {
-        @Index(name = "idx_audit_user_id", columnList = "user_id"),
+        @Index(name = "idx_audit_user_timestamp", columnList = "user_id, timestamp DESC"),
+        @Index(name = "idx_audit_action_timestamp", columnList = "action, timestamp DESC"),
+        @Index(name = "idx_audit_entity_type_timestamp", columnList = "entity_type, timestamp DESC"),
         @Index(name = "idx_audit_timestamp", columnList = "timestamp"),
         @Index(name = "idx_audit_entity", columnList = "entity_type, entity_id")
 })
@@ -55,10 +61,11 @@ public class AuditLog {
     private String entityId;
 
     /**
-     * Дополнительные детали операции (JSON или текст)
+     * Структурированные детали операции (JSONB, ключи — {@link com.ayungi.cms.audit.AuditDetailKey})
      */
-    @Column(columnDefinition = "TEXT")
-    private String details;
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, Object> details;
 
     /**
      * IP-адрес, с которого выполнено действие
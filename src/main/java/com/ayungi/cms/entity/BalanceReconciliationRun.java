@@ -0,0 +1,86 @@
+package com.ayungi.cms.entity;
+
+import com.ayungi.cms.entity.enums.ReconciliationStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Запуск сверки балансов карт с историей переводов
+ */
+@Entity
+@Table(name = "balance_reconciliation_runs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceReconciliationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    /**
+     * ID администратора, запустившего сверку (null — запуск по расписанию)
+     */
+    @Column(name = "requested_by")
+    private UUID requestedBy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private ReconciliationStatus status = ReconciliationStatus.RUNNING;
+
+    /**
+     * Количество диапазонов ID карт
+     */
+    @Column(name = "total_chunks", nullable = false)
+    @Builder.Default
+    private Integer totalChunks = 0;
+
+    @Column(name = "chunks_done", nullable = false)
+    @Builder.Default
+    private Integer chunksDone = 0;
+
+    @Column(name = "cards_checked", nullable = false)
+    @Builder.Default
+    private Long cardsChecked = 0L;
+
+    /**
+     * Найдено расхождений (строки в balance_discrepancies)
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Long discrepancies = 0L;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BalanceReconciliationRun run)) return false;
+        return id != null && id.equals(run.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -18,8 +18,9 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "cards", indexes = {
-        @Index(name = "idx_card_owner_id", columnList = "owner_id"),
-        @Index(name = "idx_card_status", columnList = "status"),
+        @Index(name = "idx_card_owner_created", columnList = "owner_id, created_at DESC"),
+        @Index(name = "idx_card_status_created", columnList = "status, created_at DESC"),
+        @Index(name = "idx_card_created_at", columnList = "created_at DESC"),
         @Index(name = "idx_card_number", columnList = "card_number")
 })
 @Getter
@@ -67,6 +68,14 @@ public class Card {
     @Builder.Default
     private BigDecimal balance = BigDecimal.ZERO;
 
+    /**
+     * Начальный баланс: balance = openingBalance + входящие − исходящие успешные переводы.
+     * При удалении переводов вместе с картой-контрагентом их сумма переносится сюда
+     */
+    @Column(name = "opening_balance", nullable = false, precision = 19, scale = 2)
+    @Builder.Default
+    private BigDecimal openingBalance = BigDecimal.ZERO;
+
     /**
      * Транзакции, где карта является источником
      */
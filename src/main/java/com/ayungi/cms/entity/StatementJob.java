@@ -0,0 +1,77 @@
+package com.ayungi.cms.entity;
+
+import com.ayungi.cms.entity.enums.StatementJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Задание генерации месячных выписок по картам
+ */
+@Entity
+@Table(name = "statement_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatementJob {
+
+    /**
+     * Первое число месяца выписок
+     */
+    @Id
+    private LocalDate period;
+
+    /**
+     * ID администратора, запустившего генерацию (null — запуск по расписанию)
+     */
+    @Column(name = "requested_by")
+    private UUID requestedBy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private StatementJobStatus status = StatementJobStatus.RUNNING;
+
+    /**
+     * Контрольная точка: выписки всех карт с ID не больше этого сохранены
+     */
+    @Column(name = "last_card_id")
+    private UUID lastCardId;
+
+    @Column(name = "cards_done", nullable = false)
+    @Builder.Default
+    private Long cardsDone = 0L;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StatementJob job)) return false;
+        return period != null && period.equals(job.period);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -16,7 +16,8 @@ import java.util.UUID;
 @Table(name = "transactions", indexes = {
         @Index(name = "idx_transaction_from_card", columnList = "from_card_id"),
         @Index(name = "idx_transaction_to_card", columnList = "to_card_id"),
-        @Index(name = "idx_transaction_timestamp", columnList = "timestamp")
+        @Index(name = "idx_transaction_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_transaction_status_timestamp", columnList = "status, timestamp DESC")
 })
 @Getter
 @Setter
@@ -45,9 +45,10 @@ public class User {
     private String password;
 
     /**
-     * Роли пользователя
+     * Роли пользователя (связь для ссылочной целостности и JPQL-запросов;
+     * для проверок прав используется roleMask)
      */
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -57,12 +58,29 @@ public class User {
     private Set<Role> roles = new HashSet<>();
 
     /**
-     * Карты пользователя
+     * Битовая маска ролей пользователя, см. RoleRegistry.
+     * Задается при создании, дальше ее пересчитывает триггер user_roles, поэтому JPA ее не обновляет
      */
-    @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Column(name = "role_mask", nullable = false, updatable = false)
+    @Builder.Default
+    private Integer roleMask = 0;
+
+    /**
+     * Карты пользователя (удаляются порциями через UserDeletionService, без каскада JPA)
+     */
+    @OneToMany(mappedBy = "owner")
     @Builder.Default
     private Set<Card> cards = new HashSet<>();
 
+    /**
+     * Количество карт пользователя (денормализованный счетчик).
+     * Изменяется только атомарным UPDATE через UserRepository.adjustCardsCount,
+     * поэтому Hibernate никогда не записывает это поле сам.
+     */
+    @Column(name = "cards_count", nullable = false, insertable = false, updatable = false)
+    @Builder.Default
+    private Integer cardsCount = 0;
+
     /**
      * Дата создания пользователя
      */
@@ -0,0 +1,62 @@
+package com.ayungi.cms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Сводка карт пользователя (количество и общий баланс).
+ * Изменяется атомарными UPDATE через {@link com.ayungi.cms.service.UserCardSummaryService}
+ * в транзакции изменения карт, через JPA только читается.
+ */
+@Entity
+@Immutable
+@Table(name = "user_card_summary")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserCardSummary {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    /**
+     * Количество карт пользователя
+     */
+    @Column(name = "cards_count", nullable = false)
+    private int cardsCount;
+
+    /**
+     * Количество активных карт
+     */
+    @Column(name = "active_cards_count", nullable = false)
+    private int activeCardsCount;
+
+    /**
+     * Общий баланс всех карт
+     */
+    @Column(name = "total_balance", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalBalance;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UserCardSummary summary)) return false;
+        return userId != null && userId.equals(summary.userId);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,115 @@
+package com.ayungi.cms.entity;
+
+import com.ayungi.cms.entity.enums.DeletionJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Задание на асинхронное удаление пользователя со всеми зависимыми данными
+ */
+@Entity
+@Table(name = "user_deletion_jobs", indexes = {
+        @Index(name = "idx_user_deletion_jobs_user_id", columnList = "user_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserDeletionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    /**
+     * ID удаляемого пользователя (без связи: пользователь удаляется раньше задания)
+     */
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    /**
+     * Имя удаляемого пользователя (для журнала)
+     */
+    @Column(nullable = false, length = 50)
+    private String username;
+
+    /**
+     * ID администратора, запросившего удаление
+     */
+    @Column(name = "requested_by")
+    private UUID requestedBy;
+
+    /**
+     * Статус задания
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private DeletionJobStatus status = DeletionJobStatus.PENDING;
+
+    /**
+     * Количество карт на момент запроса
+     */
+    @Column(name = "total_cards", nullable = false)
+    @Builder.Default
+    private Integer totalCards = 0;
+
+    /**
+     * Удалено карт
+     */
+    @Column(name = "cards_deleted", nullable = false)
+    @Builder.Default
+    private Integer cardsDeleted = 0;
+
+    /**
+     * Удалено транзакций
+     */
+    @Column(name = "transactions_deleted", nullable = false)
+    @Builder.Default
+    private Long transactionsDeleted = 0L;
+
+    /**
+     * Отвязано записей аудита (user_id = NULL)
+     */
+    @Column(name = "audit_logs_detached", nullable = false)
+    @Builder.Default
+    private Long auditLogsDetached = 0L;
+
+    /**
+     * Причина ошибки (если status = FAILED)
+     */
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Время завершения задания
+     */
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UserDeletionJob job)) return false;
+        return id != null && id.equals(job.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,76 @@
+package com.ayungi.cms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Сводка входов пользователя.
+ * Поддерживается конвейером аудита ({@link com.ayungi.cms.audit.LoginSummaryUpdater}), через JPA только читается.
+ */
+@Entity
+@Immutable
+@Table(name = "user_login_summary")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserLoginSummary {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    /**
+     * Время последнего входа
+     */
+    @Column(name = "last_login_at")
+    private LocalDateTime lastLoginAt;
+
+    /**
+     * IP-адрес последнего входа
+     */
+    @Column(name = "last_login_ip", length = 45)
+    private String lastLoginIp;
+
+    /**
+     * Общее количество входов
+     */
+    @Column(name = "total_logins", nullable = false)
+    private long totalLogins;
+
+    /**
+     * Суточные корзины скользящего окна входов (см. {@link com.ayungi.cms.audit.LoginBuckets})
+     */
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "daily_counts", nullable = false, columnDefinition = "integer[]")
+    private int[] dailyCounts;
+
+    /**
+     * Последний день, записанный в корзины
+     */
+    @Column(name = "bucket_day")
+    private LocalDate bucketDay;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UserLoginSummary summary)) return false;
+        return userId != null && userId.equals(summary.userId);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
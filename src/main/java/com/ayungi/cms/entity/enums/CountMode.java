@@ -0,0 +1,21 @@
+package com.ayungi.cms.entity.enums;
+
+/**
+ * Режимы подсчета общего количества для списков
+ */
+public enum CountMode {
+    /**
+     * Точный COUNT(*) (по умолчанию)
+     */
+    EXACT,
+
+    /**
+     * Оценка по статистике планировщика PostgreSQL (totalApproximate = true)
+     */
+    ESTIMATED,
+
+    /**
+     * Без подсчета: выбирается size + 1 строк, известен только hasNext
+     */
+    NONE
+}
@@ -0,0 +1,26 @@
+package com.ayungi.cms.entity.enums;
+
+/**
+ * Статусы задания на удаление пользователя
+ */
+public enum DeletionJobStatus {
+    /**
+     * Задание создано и ожидает выполнения
+     */
+    PENDING,
+
+    /**
+     * Выполняется удаление зависимых данных
+     */
+    RUNNING,
+
+    /**
+     * Пользователь и все его данные удалены
+     */
+    COMPLETED,
+
+    /**
+     * Удаление прервано ошибкой (может быть перезапущено)
+     */
+    FAILED
+}
@@ -0,0 +1,21 @@
+package com.ayungi.cms.entity.enums;
+
+/**
+ * Статусы сверки балансов
+ */
+public enum ReconciliationStatus {
+    /**
+     * Сверка выполняется
+     */
+    RUNNING,
+
+    /**
+     * Все диапазоны карт проверены
+     */
+    COMPLETED,
+
+    /**
+     * Сверка прервана ошибкой (найденные расхождения сохраняются)
+     */
+    FAILED
+}
@@ -0,0 +1,46 @@
+package com.ayungi.cms.entity.enums;
+
+import java.time.Duration;
+
+/**
+ * Гранулярность агрегатов переводов
+ */
+public enum RollupGranularity {
+    /**
+     * Почасовые корзины (transfer_rollup_hourly)
+     */
+    HOUR("transfer_rollup_hourly", "hour", Duration.ofDays(93)),
+
+    /**
+     * Суточные корзины (transfer_rollup_daily)
+     */
+    DAY("transfer_rollup_daily", "day", Duration.ofDays(3660));
+
+    private final String table;
+    private final String truncUnit;
+    private final Duration maxRange;
+
+    RollupGranularity(String table, String truncUnit, Duration maxRange) {
+        this.table = table;
+        this.truncUnit = truncUnit;
+        this.maxRange = maxRange;
+    }
+
+    public String table() {
+        return table;
+    }
+
+    /**
+     * Единица date_trunc
+     */
+    public String truncUnit() {
+        return truncUnit;
+    }
+
+    /**
+     * Максимальный период одного запроса временного ряда
+     */
+    public Duration maxRange() {
+        return maxRange;
+    }
+}
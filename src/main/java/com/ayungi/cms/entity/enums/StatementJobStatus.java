@@ -0,0 +1,21 @@
+package com.ayungi.cms.entity.enums;
+
+/**
+ * Статусы задания генерации месячных выписок
+ */
+public enum StatementJobStatus {
+    /**
+     * Выписки генерируются
+     */
+    RUNNING,
+
+    /**
+     * Выписки всех карт с операциями за месяц сохранены
+     */
+    COMPLETED,
+
+    /**
+     * Генерация прервана ошибкой (перезапуск продолжит с контрольной точки)
+     */
+    FAILED
+}
@@ -0,0 +1,26 @@
+package com.ayungi.cms.entity.enums;
+
+/**
+ * Показатели системной статистики (имена строк таблицы system_statistics).
+ * Денежные суммы хранятся в копейках
+ */
+public enum SystemStatistic {
+    USERS,
+    CARDS,
+    ACTIVE_CARDS,
+    BLOCKED_CARDS,
+    EXPIRED_CARDS,
+    TRANSACTIONS,
+    SUCCESSFUL_TRANSACTIONS,
+    FAILED_TRANSACTIONS,
+
+    /**
+     * Суммарный баланс карт
+     */
+    TOTAL_BALANCE,
+
+    /**
+     * Сумма успешных переводов
+     */
+    TRANSACTION_AMOUNT
+}
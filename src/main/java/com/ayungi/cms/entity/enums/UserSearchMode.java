@@ -0,0 +1,16 @@
+package com.ayungi.cms.entity.enums;
+
+/**
+ * Режимы поиска пользователей
+ */
+public enum UserSearchMode {
+    /**
+     * Поиск по подстроке имени или email (триграммный индекс)
+     */
+    CONTAINS,
+
+    /**
+     * Поиск по началу имени или email (type-ahead)
+     */
+    PREFIX
+}
@@ -13,6 +13,10 @@ public class AuthenticationException extends BaseException {
         return new AuthenticationException("AUTH_INVALID_TOKEN", "Неверный или просроченный токен");
     }
 
+    public static AuthenticationException refreshTokenReused() {
+        return new AuthenticationException("AUTH_REFRESH_TOKEN_REUSED", "Refresh токен уже использован, требуется повторный вход");
+    }
+
     public static AuthenticationException accessDenied() {
         return new AuthenticationException("AUTH_ACCESS_DENIED", "Недостаточно прав для выполнения операции");
     }
@@ -55,4 +55,20 @@ public class BusinessException extends BaseException {
     public static BusinessException cannotModifySelf() {
         return new BusinessException("CANNOT_MODIFY_SELF", "Нельзя изменить статус собственного аккаунта");
     }
+
+    public static BusinessException userDeletionInProgress() {
+        return new BusinessException("USER_DELETION_IN_PROGRESS", "Пользователь находится в процессе удаления");
+    }
+
+    public static BusinessException reconciliationInProgress() {
+        return new BusinessException("RECONCILIATION_IN_PROGRESS", "Сверка балансов уже выполняется");
+    }
+
+    public static BusinessException statementJobInProgress() {
+        return new BusinessException("STATEMENT_JOB_IN_PROGRESS", "Выписки за этот месяц уже генерируются");
+    }
+
+    public static BusinessException statementPeriodNotClosed() {
+        return new BusinessException("STATEMENT_PERIOD_NOT_CLOSED", "Выписки формируются только за завершенные месяцы");
+    }
 }
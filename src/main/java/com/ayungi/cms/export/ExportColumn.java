@@ -0,0 +1,30 @@
+package com.ayungi.cms.export;
+
+/**
+ * Колонка выгрузки: имя поля и способ чтения значения из ResultSet
+ */
+record ExportColumn(String name, Type type) {
+
+    enum Type {
+        STRING,
+        NUMBER,
+        TIMESTAMP,
+        JSON
+    }
+
+    static ExportColumn string(String name) {
+        return new ExportColumn(name, Type.STRING);
+    }
+
+    static ExportColumn number(String name) {
+        return new ExportColumn(name, Type.NUMBER);
+    }
+
+    static ExportColumn timestamp(String name) {
+        return new ExportColumn(name, Type.TIMESTAMP);
+    }
+
+    static ExportColumn json(String name) {
+        return new ExportColumn(name, Type.JSON);
+    }
+}
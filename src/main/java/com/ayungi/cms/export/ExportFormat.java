@@ -0,0 +1,35 @@
+package com.ayungi.cms.export;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Форматы потоковой выгрузки
+ */
+public enum ExportFormat {
+
+    /**
+     * JSON-объект на строку
+     */
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+
+    /**
+     * CSV с заголовком (RFC 4180)
+     */
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+}
@@ -0,0 +1,178 @@
+package com.ayungi.cms.export;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import com.ayungi.cms.entity.enums.TransactionStatus;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Потоковая выгрузка логов аудита и транзакций.
+ * <p>
+ * Строки читаются одним forward-only курсором с fetch size (PostgreSQL держит курсор только
+ * внутри транзакции) и сразу пишутся в поток ответа: память не зависит от объема выгрузки,
+ * запрос количества не выполняется. Выгружаются только живые секции аудита, без архива.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final List<ExportColumn> AUDIT_COLUMNS = List.of(
+            ExportColumn.string("id"),
+            ExportColumn.timestamp("timestamp"),
+            ExportColumn.string("userId"),
+            ExportColumn.string("username"),
+            ExportColumn.string("action"),
+            ExportColumn.string("entityType"),
+            ExportColumn.string("entityId"),
+            ExportColumn.json("details"),
+            ExportColumn.string("ipAddress"));
+
+    private static final List<ExportColumn> TRANSACTION_COLUMNS = List.of(
+            ExportColumn.string("id"),
+            ExportColumn.timestamp("timestamp"),
+            ExportColumn.string("fromCardId"),
+            ExportColumn.string("toCardId"),
+            ExportColumn.number("amount"),
+            ExportColumn.string("status"),
+            ExportColumn.string("failureReason"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final JsonFactory jsonFactory;
+    private final int fetchSize;
+
+    public ExportService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${export.fetch-size:2000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.jsonFactory = objectMapper.getFactory();
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Выгрузка логов аудита (период обязателен для отсечения секций, по умолчанию — весь)
+     */
+    public void exportAuditLogs(ExportFormat format, UUID userId, AuditAction action, String entityType,
+                                LocalDateTime startDate, LocalDateTime endDate, OutputStream out) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT a.id, a.timestamp, a.user_id, u.username, a.action, a.entity_type, a.entity_id,
+                       a.details, a.ip_address
+                FROM audit_logs a LEFT JOIN users u ON u.id = a.user_id
+                WHERE a.timestamp >= ? AND a.timestamp <= ?""");
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.valueOf(startDate != null ? startDate : MIN_TIMESTAMP));
+        params.add(Timestamp.valueOf(endDate != null ? endDate : MAX_TIMESTAMP));
+        if (userId != null) {
+            sql.append(" AND a.user_id = ?");
+            params.add(userId);
+        }
+        if (action != null) {
+            sql.append(" AND a.action = ?");
+            params.add(action.name());
+        }
+        if (entityType != null) {
+            sql.append(" AND a.entity_type = ?");
+            params.add(entityType);
+        }
+        sql.append(" ORDER BY a.timestamp DESC");
+
+        stream("audit_logs", sql.toString(), params, AUDIT_COLUMNS, format, out);
+    }
+
+    /**
+     * Выгрузка транзакций
+     */
+    public void exportTransactions(ExportFormat format, TransactionStatus status,
+                                   LocalDateTime startDate, LocalDateTime endDate, OutputStream out) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT t.id, t.timestamp, t.from_card_id, t.to_card_id, t.amount, t.status, t.failure_reason
+                FROM transactions t WHERE 1 = 1""");
+        List<Object> params = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND t.status = ?");
+            params.add(status.name());
+        }
+        if (startDate != null) {
+            sql.append(" AND t.timestamp >= ?");
+            params.add(Timestamp.valueOf(startDate));
+        }
+        if (endDate != null) {
+            sql.append(" AND t.timestamp <= ?");
+            params.add(Timestamp.valueOf(endDate));
+        }
+        sql.append(" ORDER BY t.timestamp DESC");
+
+        stream("transactions", sql.toString(), params, TRANSACTION_COLUMNS, format, out);
+    }
+
+    private void stream(String source, String sql, List<Object> params, List<ExportColumn> columns,
+                        ExportFormat format, OutputStream out) {
+        long startNanos = System.nanoTime();
+        ExportWriter writer = createWriter(format, out, columns);
+        long[] rows = new long[1];
+
+        PreparedStatementCreator statement = connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        };
+
+        readOnlyTransaction.executeWithoutResult(tx -> jdbcTemplate.query(statement, rs -> {
+            try {
+                writer.writeRow(rs);
+            } catch (IOException e) {
+                // Клиент закрыл соединение — прерываем курсор
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        }));
+
+        try {
+            writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Выгрузка {} в {}: {} строк за {} мс", source, format, rows[0],
+                (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private ExportWriter createWriter(ExportFormat format, OutputStream out, List<ExportColumn> columns) {
+        try {
+            return switch (format) {
+                case NDJSON -> new NdjsonExportWriter(jsonFactory, out, columns);
+                case CSV -> new CsvExportWriter(out, columns);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.ayungi.cms.export;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Построчная запись выгрузки прямо из текущей строки курсора (без промежуточных объектов)
+ */
+interface ExportWriter {
+
+    void writeRow(ResultSet rs) throws SQLException, IOException;
+
+    /**
+     * Дописывает буферы в поток ответа (сам поток не закрывает)
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,68 @@
+package com.ayungi.cms.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Выгрузка в NDJSON: один JSON-объект на строку, JSONB колонки пишутся как вложенные объекты
+ */
+final class NdjsonExportWriter implements ExportWriter {
+
+    private final JsonGenerator generator;
+    private final List<ExportColumn> columns;
+
+    NdjsonExportWriter(JsonFactory factory, OutputStream out, List<ExportColumn> columns) throws IOException {
+        this.generator = factory.createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(new SerializedString(""));
+        this.columns = columns;
+    }
+
+    @Override
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < columns.size(); i++) {
+            ExportColumn column = columns.get(i);
+            generator.writeFieldName(column.name());
+            switch (column.type()) {
+                case NUMBER -> {
+                    BigDecimal value = rs.getBigDecimal(i + 1);
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(value);
+                    }
+                }
+                case TIMESTAMP -> {
+                    Timestamp value = rs.getTimestamp(i + 1);
+                    generator.writeString(value != null ? value.toLocalDateTime().toString() : null);
+                }
+                case JSON -> {
+                    String value = rs.getString(i + 1);
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeRawValue(value);
+                    }
+                }
+                default -> generator.writeString(rs.getString(i + 1));
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.close();
+    }
+}
@@ -5,10 +5,13 @@ import com.ayungi.cms.entity.enums.AuditAction;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -17,7 +20,7 @@ import java.util.UUID;
  * Репозиторий для работы с логами аудита
  */
 @Repository
-public interface AuditLogRepository extends JpaRepository<AuditLog, UUID> {
+public interface AuditLogRepository extends JpaRepository<AuditLog, UUID>, JpaSpecificationExecutor<AuditLog> {
 
     /**
      * Поиск всех логов пользователя
@@ -97,21 +100,24 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, UUID> {
     Page<AuditLog> findByIpAddress(String ipAddress, Pageable pageable);
 
     /**
-     * Подсчет количества действий пользователя
+     * Подсчет количества действий пользователя (схлопнутая запись учитывается всеми событиями)
      *
      * @param userId ID пользователя
      * @return количество действий
      */
-    @Query("SELECT COUNT(a) FROM AuditLog a WHERE a.user.id = :userId")
+    @Query(value = "SELECT COALESCE(SUM(COALESCE(CAST(details->>'count' AS bigint), 1)), 0) " +
+            "FROM audit_logs WHERE user_id = :userId", nativeQuery = true)
     long countByUserId(@Param("userId") UUID userId);
 
     /**
-     * Подсчет количества действий по типу
+     * Подсчет количества действий по типу (схлопнутая запись учитывается всеми событиями)
      *
      * @param action тип действия
      * @return количество действий
      */
-    long countByAction(AuditAction action);
+    @Query(value = "SELECT COALESCE(SUM(COALESCE(CAST(details->>'count' AS bigint), 1)), 0) " +
+            "FROM audit_logs WHERE action = :#{#action.name()}", nativeQuery = true)
+    long countByAction(@Param("action") AuditAction action);
 
     /**
      * Поиск логов по типу сущности
@@ -123,36 +129,51 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, UUID> {
     Page<AuditLog> findByEntityType(String entityType, Pageable pageable);
 
     /**
-     * Поиск всех логов с фильтрацией (для админа)
+     * Исходящие переводы с карты не меньше указанной суммы
+     * (частичный индекс idx_audit_transfer_from_card по ключам details)
      *
-     * @param userId ID пользователя (опционально)
-     * @param action тип действия (опционально)
-     * @param entityType тип сущности (опционально)
-     * @param startDate начальная дата (опционально)
-     * @param endDate конечная дата (опционально)
-     * @param pageable параметры пагинации
+     * @param cardId ID карты-источника
+     * @param minAmount минимальная сумма
+     * @param startDate начальная дата
+     * @param endDate конечная дата
+     * @param pageable параметры пагинации (без сортировки, порядок задан запросом)
      * @return страница логов
      */
-    @Query("SELECT a FROM AuditLog a WHERE " +
-           "(:userId IS NULL OR a.user.id = :userId) AND " +
-           "(:action IS NULL OR a.action = :action) AND " +
-           "(:entityType IS NULL OR a.entityType = :entityType) AND " +
-           "(:startDate IS NULL OR a.timestamp >= :startDate) AND " +
-           "(:endDate IS NULL OR a.timestamp <= :endDate)")
-    Page<AuditLog> findAllWithFilters(@Param("userId") UUID userId,
-                                       @Param("action") AuditAction action,
-                                       @Param("entityType") String entityType,
-                                       @Param("startDate") LocalDateTime startDate,
-                                       @Param("endDate") LocalDateTime endDate,
-                                       Pageable pageable);
+    @Query(value = "SELECT * FROM audit_logs a WHERE a.action = 'TRANSFER' " +
+                   "AND a.details ->> 'fromCardId' = :cardId " +
+                   "AND CAST(a.details ->> 'amount' AS numeric) >= :minAmount " +
+                   "AND a.timestamp >= :startDate AND a.timestamp <= :endDate " +
+                   "ORDER BY a.timestamp DESC",
+           countQuery = "SELECT COUNT(*) FROM audit_logs a WHERE a.action = 'TRANSFER' " +
+                        "AND a.details ->> 'fromCardId' = :cardId " +
+                        "AND CAST(a.details ->> 'amount' AS numeric) >= :minAmount " +
+                        "AND a.timestamp >= :startDate AND a.timestamp <= :endDate",
+           nativeQuery = true)
+    Page<AuditLog> findTransfersFromCard(@Param("cardId") String cardId,
+                                         @Param("minAmount") BigDecimal minAmount,
+                                         @Param("startDate") LocalDateTime startDate,
+                                         @Param("endDate") LocalDateTime endDate,
+                                         Pageable pageable);
 
     /**
-     * Удаление старых логов (для очистки)
+     * Поиск логов, детали которых содержат все поля фильтра (GIN индекс idx_audit_details)
      *
-     * @param beforeDate дата, до которой удалять логи
+     * @param filter JSON объект с искомыми полями
+     * @param startDate начальная дата
+     * @param endDate конечная дата
+     * @param pageable параметры пагинации (без сортировки, порядок задан запросом)
+     * @return страница логов
      */
-    @Query("DELETE FROM AuditLog a WHERE a.timestamp < :beforeDate")
-    void deleteOldLogs(@Param("beforeDate") LocalDateTime beforeDate);
+    @Query(value = "SELECT * FROM audit_logs a WHERE a.details @> CAST(:filter AS jsonb) " +
+                   "AND a.timestamp >= :startDate AND a.timestamp <= :endDate " +
+                   "ORDER BY a.timestamp DESC",
+           countQuery = "SELECT COUNT(*) FROM audit_logs a WHERE a.details @> CAST(:filter AS jsonb) " +
+                        "AND a.timestamp >= :startDate AND a.timestamp <= :endDate",
+           nativeQuery = true)
+    Page<AuditLog> findByDetailsContaining(@Param("filter") String filter,
+                                           @Param("startDate") LocalDateTime startDate,
+                                           @Param("endDate") LocalDateTime endDate,
+                                           Pageable pageable);
 
     /**
      * Поиск логов входа пользователя
@@ -163,4 +184,17 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, UUID> {
      */
     @Query("SELECT a FROM AuditLog a WHERE a.user.id = :userId AND a.action = 'LOGIN' ORDER BY a.timestamp DESC")
     Page<AuditLog> findLoginHistoryByUserId(@Param("userId") UUID userId, Pageable pageable);
+
+    /**
+     * Отвязка порции логов от удаляемого пользователя (user_id = NULL)
+     *
+     * @param userId ID пользователя
+     * @param limit размер порции
+     * @return количество обновленных записей
+     */
+    @Modifying
+    @Query(value = "UPDATE audit_logs SET user_id = NULL WHERE id IN (" +
+                   "SELECT id FROM audit_logs WHERE user_id = :userId LIMIT :limit)",
+           nativeQuery = true)
+    int detachChunkFromUser(@Param("userId") UUID userId, @Param("limit") int limit);
 }
@@ -0,0 +1,53 @@
+package com.ayungi.cms.repository;
+
+import com.ayungi.cms.entity.BalanceReconciliationRun;
+import com.ayungi.cms.entity.enums.ReconciliationStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Репозиторий для работы с запусками сверки балансов
+ */
+@Repository
+public interface BalanceReconciliationRunRepository extends JpaRepository<BalanceReconciliationRun, UUID> {
+
+    /**
+     * Проверка наличия выполняющейся сверки
+     *
+     * @param status статус
+     * @return true если сверка выполняется
+     */
+    boolean existsByStatus(ReconciliationStatus status);
+
+    /**
+     * Пометка зависших сверок (экземпляр остановлен во время выполнения) как прерванных
+     *
+     * @param before сверки без прогресса с этого момента считаются зависшими
+     * @return количество помеченных сверок
+     */
+    @Modifying
+    @Query("UPDATE BalanceReconciliationRun r SET r.status = 'FAILED', r.errorMessage = 'Прервана без прогресса', " +
+           "r.finishedAt = CURRENT_TIMESTAMP WHERE r.status = 'RUNNING' AND r.updatedAt < :before")
+    int failStale(@Param("before") LocalDateTime before);
+
+    /**
+     * Учет прогресса сверки
+     *
+     * @param runId ID сверки
+     * @param cards проверено карт в диапазоне
+     * @param discrepancies найдено расхождений в диапазоне
+     */
+    @Modifying
+    @Query("UPDATE BalanceReconciliationRun r SET r.chunksDone = r.chunksDone + 1, " +
+           "r.cardsChecked = r.cardsChecked + :cards, r.discrepancies = r.discrepancies + :discrepancies, " +
+           "r.updatedAt = CURRENT_TIMESTAMP WHERE r.id = :runId")
+    void addProgress(@Param("runId") UUID runId,
+                     @Param("cards") long cards,
+                     @Param("discrepancies") long discrepancies);
+}
@@ -2,9 +2,11 @@ package com.ayungi.cms.repository;
 
 import com.ayungi.cms.entity.Card;
 import com.ayungi.cms.entity.enums.CardStatus;
+import com.ayungi.cms.repository.projection.DeletedCardsView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,7 +21,7 @@ import java.util.UUID;
  * Репозиторий для работы с банковскими картами
  */
 @Repository
-public interface CardRepository extends JpaRepository<Card, UUID> {
+public interface CardRepository extends JpaRepository<Card, UUID>, JpaSpecificationExecutor<Card> {
 
     /**
      * Поиск карты по номеру
@@ -97,15 +99,6 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
      */
     boolean existsByCardNumber(String cardNumber);
 
-    /**
-     * Подсчет количества карт владельца
-     *
-     * @param ownerId ID владельца
-     * @return количество карт
-     */
-    @Query("SELECT COUNT(c) FROM Card c WHERE c.owner.id = :ownerId")
-    long countByOwnerId(@Param("ownerId") UUID ownerId);
-
     /**
      * Подсчет количества карт по статусу
      *
@@ -125,26 +118,27 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
     Page<Card> findByBalanceGreaterThanEqual(@Param("amount") BigDecimal amount, Pageable pageable);
 
     /**
-     * Получение общего баланса всех карт пользователя
+     * Порция ID карт пользователя (для поэтапного удаления)
      *
      * @param ownerId ID владельца
-     * @return общий баланс
+     * @param limit размер порции
+     * @return список ID карт
      */
-    @Query("SELECT COALESCE(SUM(c.balance), 0) FROM Card c WHERE c.owner.id = :ownerId")
-    BigDecimal getTotalBalanceByOwnerId(@Param("ownerId") UUID ownerId);
+    @Query(value = "SELECT id FROM cards WHERE owner_id = :ownerId LIMIT :limit", nativeQuery = true)
+    List<UUID> findIdsByOwnerId(@Param("ownerId") UUID ownerId, @Param("limit") int limit);
 
     /**
-     * Поиск всех карт с фильтрацией (для админа)
+     * Удаление карт по списку ID одним запросом
      *
-     * @param status статус карты (опционально)
-     * @param ownerId ID владельца (опционально)
-     * @param pageable параметры пагинации
-     * @return страница карт
+     * @param ids ID карт
+     * @return количество удаленных карт по статусам и их суммарный баланс
      */
-    @Query("SELECT c FROM Card c WHERE " +
-           "(:status IS NULL OR c.status = :status) AND " +
-           "(:ownerId IS NULL OR c.owner.id = :ownerId)")
-    Page<Card> findAllWithFilters(@Param("status") CardStatus status,
-                                   @Param("ownerId") UUID ownerId,
-                                   Pageable pageable);
+    @Query(value = "WITH deleted AS (DELETE FROM cards WHERE id IN (:ids) RETURNING status, balance) " +
+                   "SELECT COUNT(*) AS count, " +
+                   "COUNT(*) FILTER (WHERE status = 'ACTIVE') AS active, " +
+                   "COUNT(*) FILTER (WHERE status = 'BLOCKED') AS blocked, " +
+                   "COUNT(*) FILTER (WHERE status = 'EXPIRED') AS expired, " +
+                   "COALESCE(SUM(balance), 0) AS balance FROM deleted",
+           nativeQuery = true)
+    DeletedCardsView deleteByIds(@Param("ids") List<UUID> ids);
 }
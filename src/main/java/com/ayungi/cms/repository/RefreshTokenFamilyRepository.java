@@ -0,0 +1,76 @@
+package com.ayungi.cms.repository;
+
+import com.ayungi.cms.entity.RefreshTokenFamily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Репозиторий для работы с семействами refresh токенов
+ */
+@Repository
+public interface RefreshTokenFamilyRepository extends JpaRepository<RefreshTokenFamily, UUID> {
+
+    /**
+     * Поиск всех действующих (не отозванных и не истекших) семейств
+     *
+     * @param now текущий момент времени
+     * @return список семейств
+     */
+    @Query("SELECT f FROM RefreshTokenFamily f WHERE f.revoked = false AND f.expiresAt > :now")
+    List<RefreshTokenFamily> findActive(@Param("now") LocalDateTime now);
+
+    /**
+     * Продвижение номера токена семейства (compare-and-set на стороне БД)
+     *
+     * @param familyId ID семейства
+     * @param expectedSequence ожидаемый текущий номер
+     * @param nextSequence новый номер
+     * @param expiresAt новый срок действия
+     * @return количество обновленных строк (0, если семейство уже ротировано или отозвано)
+     */
+    @Modifying
+    @Query("UPDATE RefreshTokenFamily f SET f.sequenceNumber = :nextSequence, f.expiresAt = :expiresAt, " +
+           "f.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE f.id = :familyId AND f.sequenceNumber = :expectedSequence AND f.revoked = false")
+    int advanceSequence(@Param("familyId") UUID familyId,
+                        @Param("expectedSequence") int expectedSequence,
+                        @Param("nextSequence") int nextSequence,
+                        @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Отзыв семейства токенов
+     *
+     * @param familyId ID семейства
+     */
+    @Modifying
+    @Query("UPDATE RefreshTokenFamily f SET f.revoked = true, f.updatedAt = CURRENT_TIMESTAMP WHERE f.id = :familyId")
+    void revoke(@Param("familyId") UUID familyId);
+
+    /**
+     * Отзыв всех семейств токенов пользователя
+     *
+     * @param userId ID пользователя
+     * @return количество отозванных семейств
+     */
+    @Modifying
+    @Query("UPDATE RefreshTokenFamily f SET f.revoked = true, f.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE f.user.id = :userId AND f.revoked = false")
+    int revokeByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Удаление истекших семейств
+     *
+     * @param now текущий момент времени
+     * @return количество удаленных семейств
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshTokenFamily f WHERE f.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,110 @@
+package com.ayungi.cms.repository;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import com.ayungi.cms.entity.enums.CardStatus;
+import com.ayungi.cms.entity.enums.TransactionStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Оценка количества строк списков по статистике планировщика PostgreSQL.
+ * <p>
+ * Выполняется EXPLAIN запроса с теми же условиями, что и фильтры админки, и берется
+ * ожидаемое число строк корневого узла плана: стоимость не зависит от размера таблицы,
+ * точность — как у ANALYZE (для секционированного audit_logs план суммирует секции).
+ */
+@Repository
+public class RowCountEstimator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public RowCountEstimator(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public long estimateUsers() {
+        return estimate(new Filter("users"));
+    }
+
+    public long estimateCards(CardStatus status, UUID ownerId) {
+        return estimate(new Filter("cards")
+                .equal("owner_id", ownerId)
+                .equal("status", status != null ? status.name() : null));
+    }
+
+    public long estimateTransactions(TransactionStatus status, LocalDateTime startDate, LocalDateTime endDate) {
+        return estimate(new Filter("transactions")
+                .equal("status", status != null ? status.name() : null)
+                .from("timestamp", startDate)
+                .to("timestamp", endDate));
+    }
+
+    public long estimateAuditLogs(UUID userId, AuditAction action, String entityType,
+                                  LocalDateTime startDate, LocalDateTime endDate) {
+        return estimate(new Filter("audit_logs")
+                .equal("user_id", userId)
+                .equal("action", action != null ? action.name() : null)
+                .equal("entity_type", entityType)
+                .from("timestamp", startDate)
+                .to("timestamp", endDate));
+    }
+
+    private long estimate(Filter filter) {
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN (FORMAT JSON) SELECT 1 FROM " + filter.sql(), String.class, filter.params.toArray());
+        try {
+            return objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows").asLong();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось разобрать план запроса", e);
+        }
+    }
+
+    /**
+     * Условия WHERE: в запрос попадают только заданные значения
+     */
+    private static final class Filter {
+
+        private final StringBuilder sql;
+        private final List<Object> params = new ArrayList<>();
+        private String separator = " WHERE ";
+
+        Filter(String table) {
+            this.sql = new StringBuilder(table);
+        }
+
+        Filter equal(String column, Object value) {
+            return append(column + " = ?", value);
+        }
+
+        Filter from(String column, LocalDateTime value) {
+            return append(column + " >= ?", value != null ? Timestamp.valueOf(value) : null);
+        }
+
+        Filter to(String column, LocalDateTime value) {
+            return append(column + " <= ?", value != null ? Timestamp.valueOf(value) : null);
+        }
+
+        String sql() {
+            return sql.toString();
+        }
+
+        private Filter append(String condition, Object value) {
+            if (value != null) {
+                sql.append(separator).append(condition);
+                params.add(value);
+                separator = " AND ";
+            }
+            return this;
+        }
+    }
+}
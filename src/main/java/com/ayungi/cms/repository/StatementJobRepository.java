@@ -0,0 +1,45 @@
+package com.ayungi.cms.repository;
+
+import com.ayungi.cms.entity.StatementJob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Репозиторий для работы с заданиями генерации выписок
+ */
+@Repository
+public interface StatementJobRepository extends JpaRepository<StatementJob, LocalDate> {
+
+    /**
+     * Задание месяца под блокировкой (запуск с нескольких экземпляров)
+     *
+     * @param period первое число месяца
+     * @return Optional с заданием
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM StatementJob j WHERE j.period = :period")
+    Optional<StatementJob> findForUpdate(@Param("period") LocalDate period);
+
+    /**
+     * Сдвиг контрольной точки
+     *
+     * @param period первое число месяца
+     * @param lastCardId последняя карта непрерывно завершенного префикса
+     * @param cards сохранено выписок с прошлой контрольной точки
+     */
+    @Modifying
+    @Query("UPDATE StatementJob j SET j.lastCardId = :lastCardId, j.cardsDone = j.cardsDone + :cards, " +
+           "j.updatedAt = CURRENT_TIMESTAMP WHERE j.period = :period")
+    void checkpoint(@Param("period") LocalDate period,
+                    @Param("lastCardId") UUID lastCardId,
+                    @Param("cards") long cards);
+}
@@ -2,9 +2,11 @@ package com.ayungi.cms.repository;
 
 import com.ayungi.cms.entity.Transaction;
 import com.ayungi.cms.entity.enums.TransactionStatus;
+import com.ayungi.cms.repository.projection.DeletedTransactionsView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -18,7 +20,7 @@ import java.util.UUID;
  * Репозиторий для работы с транзакциями
  */
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
+public interface TransactionRepository extends JpaRepository<Transaction, UUID>, JpaSpecificationExecutor<Transaction> {
 
     /**
      * Поиск всех транзакций карты (исходящие)
@@ -144,26 +146,29 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
                                                      @Param("endDate") LocalDateTime endDate);
 
     /**
-     * Поиск всех транзакций с фильтрацией (для админа)
+     * Удаление порции транзакций, связанных с картами (входящих и исходящих).
+     * Сумма удаляемых успешных переводов переносится в начальный баланс оставшихся карт-контрагентов
+     * (они блокируются в порядке ID), чтобы сверка балансов не находила расхождений
      *
-     * @param status статус (опционально)
-     * @param startDate начальная дата (опционально)
-     * @param endDate конечная дата (опционально)
-     * @param pageable параметры пагинации
-     * @return страница транзакций
+     * @param cardIds ID карт
+     * @param limit размер порции
+     * @return количество, статусы и сумма успешных среди удаленных транзакций
      */
-    @Query(value = "SELECT * FROM transactions t WHERE " +
-                   "(:status IS NULL OR t.status = CAST(:status AS VARCHAR)) AND " +
-                   "(:startDate IS NULL OR t.timestamp >= :startDate) AND " +
-                   "(:endDate IS NULL OR t.timestamp <= :endDate) " +
-                   "ORDER BY t.timestamp DESC",
-           countQuery = "SELECT COUNT(*) FROM transactions t WHERE " +
-                       "(:status IS NULL OR t.status = CAST(:status AS VARCHAR)) AND " +
-                       "(:startDate IS NULL OR t.timestamp >= :startDate) AND " +
-                       "(:endDate IS NULL OR t.timestamp <= :endDate)",
+    @Query(value = "WITH deleted AS (" +
+                   "DELETE FROM transactions WHERE id IN (" +
+                   "SELECT id FROM transactions WHERE from_card_id IN (:cardIds) OR to_card_id IN (:cardIds) " +
+                   "LIMIT :limit) RETURNING from_card_id, to_card_id, amount, status), " +
+                   "flows AS (SELECT card_id, SUM(delta) AS delta FROM (" +
+                   "SELECT to_card_id AS card_id, amount AS delta FROM deleted WHERE status = 'SUCCESS' " +
+                   "UNION ALL SELECT from_card_id, -amount FROM deleted WHERE status = 'SUCCESS') f " +
+                   "WHERE card_id NOT IN (:cardIds) GROUP BY card_id), " +
+                   "locked AS (SELECT c.id FROM cards c JOIN flows f ON f.card_id = c.id ORDER BY c.id FOR UPDATE OF c), " +
+                   "folded AS (UPDATE cards c SET opening_balance = c.opening_balance + f.delta " +
+                   "FROM flows f WHERE f.card_id = c.id AND c.id IN (SELECT id FROM locked) RETURNING c.id) " +
+                   "SELECT COUNT(*) AS count, " +
+                   "COUNT(*) FILTER (WHERE status = 'SUCCESS') AS successful, " +
+                   "COUNT(*) FILTER (WHERE status = 'FAILED') AS failed, " +
+                   "COALESCE(SUM(amount) FILTER (WHERE status = 'SUCCESS'), 0) AS amount FROM deleted",
            nativeQuery = true)
-    Page<Transaction> findAllWithFilters(@Param("status") String status,
-                                         @Param("startDate") LocalDateTime startDate,
-                                         @Param("endDate") LocalDateTime endDate,
-                                         Pageable pageable);
+    DeletedTransactionsView deleteChunkByCardIds(@Param("cardIds") List<UUID> cardIds, @Param("limit") int limit);
 }
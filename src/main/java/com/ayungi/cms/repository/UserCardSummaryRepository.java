@@ -0,0 +1,55 @@
+package com.ayungi.cms.repository;
+
+import com.ayungi.cms.entity.UserCardSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Репозиторий сводки карт пользователей
+ */
+@Repository
+public interface UserCardSummaryRepository extends JpaRepository<UserCardSummary, UUID> {
+
+    /**
+     * Атомарное изменение сводки на дельту (строка создается, если ее еще нет)
+     *
+     * @param userId ID пользователя
+     * @param cards изменение количества карт
+     * @param activeCards изменение количества активных карт
+     * @param balance изменение общего баланса
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_card_summary (user_id, cards_count, active_cards_count, total_balance, updated_at) " +
+                   "VALUES (:userId, :cards, :activeCards, :balance, now()) " +
+                   "ON CONFLICT (user_id) DO UPDATE SET " +
+                   "cards_count = user_card_summary.cards_count + EXCLUDED.cards_count, " +
+                   "active_cards_count = user_card_summary.active_cards_count + EXCLUDED.active_cards_count, " +
+                   "total_balance = user_card_summary.total_balance + EXCLUDED.total_balance, " +
+                   "updated_at = now()",
+           nativeQuery = true)
+    void adjust(@Param("userId") UUID userId,
+                @Param("cards") int cards,
+                @Param("activeCards") int activeCards,
+                @Param("balance") BigDecimal balance);
+
+    /**
+     * Пересчет сводки пользователя по его картам
+     *
+     * @param userId ID пользователя
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_card_summary (user_id, cards_count, active_cards_count, total_balance, updated_at) " +
+                   "SELECT :userId, COUNT(*), COUNT(*) FILTER (WHERE status = 'ACTIVE'), COALESCE(SUM(balance), 0), now() " +
+                   "FROM cards WHERE owner_id = :userId " +
+                   "ON CONFLICT (user_id) DO UPDATE SET " +
+                   "cards_count = EXCLUDED.cards_count, active_cards_count = EXCLUDED.active_cards_count, " +
+                   "total_balance = EXCLUDED.total_balance, updated_at = now()",
+           nativeQuery = true)
+    void recalculate(@Param("userId") UUID userId);
+}
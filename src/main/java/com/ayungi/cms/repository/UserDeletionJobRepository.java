@@ -0,0 +1,75 @@
+package com.ayungi.cms.repository;
+
+import com.ayungi.cms.entity.UserDeletionJob;
+import com.ayungi.cms.entity.enums.DeletionJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Репозиторий для работы с заданиями на удаление пользователей
+ */
+@Repository
+public interface UserDeletionJobRepository extends JpaRepository<UserDeletionJob, UUID> {
+
+    /**
+     * Проверка наличия незавершенного задания для пользователя
+     *
+     * @param userId ID пользователя
+     * @param statuses статусы незавершенных заданий
+     * @return true если задание существует
+     */
+    boolean existsByUserIdAndStatusIn(UUID userId, Collection<DeletionJobStatus> statuses);
+
+    /**
+     * Поиск заданий по статусам (для возобновления после рестарта)
+     *
+     * @param statuses статусы заданий
+     * @return список заданий
+     */
+    List<UserDeletionJob> findByStatusIn(Collection<DeletionJobStatus> statuses);
+
+    /**
+     * Захват задания исполнителем (compare-and-set на стороне БД): ожидающее задание
+     * или выполняющееся без прогресса с {@code staleBefore} (исполнитель остановлен)
+     *
+     * @param jobId ID задания
+     * @param pending статус ожидающего задания
+     * @param running статус выполняющегося задания
+     * @param staleBefore граница отсутствия прогресса
+     * @return 1 если задание захвачено, 0 если его выполняет другой исполнитель или оно завершено
+     */
+    @Modifying
+    @Query("UPDATE UserDeletionJob j SET j.status = :running, j.errorMessage = NULL, j.finishedAt = NULL, " +
+           "j.updatedAt = CURRENT_TIMESTAMP WHERE j.id = :jobId " +
+           "AND (j.status = :pending OR (j.status = :running AND j.updatedAt < :staleBefore))")
+    int claim(@Param("jobId") UUID jobId,
+              @Param("pending") DeletionJobStatus pending,
+              @Param("running") DeletionJobStatus running,
+              @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Учет прогресса удаления
+     *
+     * @param jobId ID задания
+     * @param cards удалено карт в текущей порции
+     * @param transactions удалено транзакций в текущей порции
+     * @param auditLogs отвязано записей аудита в текущей порции
+     */
+    @Modifying
+    @Query("UPDATE UserDeletionJob j SET j.cardsDeleted = j.cardsDeleted + :cards, " +
+           "j.transactionsDeleted = j.transactionsDeleted + :transactions, " +
+           "j.auditLogsDetached = j.auditLogsDetached + :auditLogs, " +
+           "j.updatedAt = CURRENT_TIMESTAMP WHERE j.id = :jobId")
+    void addProgress(@Param("jobId") UUID jobId,
+                     @Param("cards") int cards,
+                     @Param("transactions") long transactions,
+                     @Param("auditLogs") long auditLogs);
+}
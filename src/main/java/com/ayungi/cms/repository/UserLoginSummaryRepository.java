@@ -0,0 +1,14 @@
+package com.ayungi.cms.repository;
+
+import com.ayungi.cms.entity.UserLoginSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+/**
+ * Репозиторий для чтения сводки входов пользователей
+ */
+@Repository
+public interface UserLoginSummaryRepository extends JpaRepository<UserLoginSummary, UUID> {
+}
@@ -1,13 +1,17 @@
 package com.ayungi.cms.repository;
 
 import com.ayungi.cms.entity.User;
+import com.ayungi.cms.repository.projection.UserSearchView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -57,6 +61,35 @@ public interface UserRepository extends JpaRepository<User, UUID> {
      */
     Page<User> findByEnabledTrue(Pageable pageable);
 
+    /**
+     * Все пользователи без подсчета общего количества (выбирается size + 1 строк)
+     *
+     * @param pageable параметры пагинации
+     * @return срез пользователей
+     */
+    Slice<User> findAllBy(Pageable pageable);
+
+    /**
+     * Атомарное изменение счетчика карт пользователя
+     *
+     * @param userId ID пользователя
+     * @param delta изменение (+1 при выпуске карты, -1 при удалении)
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET cards_count = cards_count + :delta WHERE id = :userId", nativeQuery = true)
+    void adjustCardsCount(@Param("userId") UUID userId, @Param("delta") int delta);
+
+    /**
+     * Удаление строки пользователя без загрузки связей
+     * (user_roles и семейства refresh токенов удаляются каскадом FK)
+     *
+     * @param userId ID пользователя
+     * @return количество удаленных строк
+     */
+    @Modifying
+    @Query(value = "DELETE FROM users WHERE id = :userId", nativeQuery = true)
+    int deleteRowById(@Param("userId") UUID userId);
+
     /**
      * Поиск пользователей по имени роли
      *
@@ -68,13 +101,58 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Page<User> findByRoleName(@Param("roleName") String roleName, Pageable pageable);
 
     /**
-     * Поиск пользователей по части имени или email
+     * Поиск пользователей по части имени или email с ранжированием по схожести.
+     * Использует триграммные GIN-индексы idx_users_username_trgm / idx_users_email_trgm.
+     * Выдача ограничена {@code maxCandidates} лучшими совпадениями: кандидаты отбираются
+     * в том же детерминированном порядке (схожесть, затем username и id), поэтому соседние
+     * страницы не пересекаются и не теряют строк; срез выбирает size + 1 строк без подсчета.
      *
-     * @param searchTerm поисковый запрос
-     * @param pageable параметры пагинации
-     * @return страница пользователей
+     * @param term поисковый запрос в нижнем регистре
+     * @param pattern LIKE-шаблон вида %term% с экранированными спецсимволами
+     * @param maxCandidates максимальное количество ранжируемых совпадений
+     * @param pageable параметры пагинации (без сортировки, порядок задается релевантностью)
+     * @return срез пользователей
+     */
+    @Query(value = "WITH candidates AS (" +
+                   "SELECT u.*, GREATEST(similarity(lower(u.username), :term), similarity(lower(u.email), :term)) AS rank " +
+                   "FROM users u " +
+                   "WHERE lower(u.username) LIKE :pattern ESCAPE '\\' OR lower(u.email) LIKE :pattern ESCAPE '\\' " +
+                   "ORDER BY rank DESC, u.username, u.id " +
+                   "LIMIT :maxCandidates) " +
+                   "SELECT c.* FROM candidates c " +
+                   "ORDER BY c.rank DESC, c.username, c.id",
+           nativeQuery = true)
+    Slice<User> searchUsers(@Param("term") String term,
+                            @Param("pattern") String pattern,
+                            @Param("maxCandidates") int maxCandidates,
+                            Pageable pageable);
+
+    /**
+     * Префиксный поиск пользователей для подсказок (type-ahead).
+     * Кандидаты — первые {@code limit} совпадений по имени и по email в порядке
+     * B-tree индексов idx_users_username_prefix / idx_users_email_prefix (оператор ~<~
+     * класса text_pattern_ops), поэтому запрос не сортирует все совпадения.
+     * Совпадение по имени ранжируется выше совпадения по email.
+     *
+     * @param term поисковый запрос в нижнем регистре
+     * @param pattern LIKE-шаблон вида term% с экранированными спецсимволами
+     * @param limit максимальное количество результатов
+     * @return список проекций, отсортированный по релевантности
      */
-    @Query("SELECT u FROM User u WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<User> searchUsers(@Param("searchTerm") String searchTerm, Pageable pageable);
+    @Query(value = "SELECT c.id AS id, c.username AS username, c.email AS email, c.enabled AS enabled, " +
+                   "CAST((CASE WHEN lower(c.username) LIKE :pattern ESCAPE '\\' THEN 1 ELSE 0 END) " +
+                   "+ similarity(lower(c.username), :term) AS double precision) AS score " +
+                   "FROM ((SELECT u.id, u.username, u.email, u.enabled FROM users u " +
+                   "WHERE lower(u.username) LIKE :pattern ESCAPE '\\' " +
+                   "ORDER BY lower(u.username) USING ~<~ LIMIT :limit) " +
+                   "UNION " +
+                   "(SELECT u.id, u.username, u.email, u.enabled FROM users u " +
+                   "WHERE lower(u.email) LIKE :pattern ESCAPE '\\' " +
+                   "ORDER BY lower(u.email) USING ~<~ LIMIT :limit)) c " +
+                   "ORDER BY score DESC, lower(c.username) " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<UserSearchView> suggestByPrefix(@Param("term") String term,
+                                         @Param("pattern") String pattern,
+                                         @Param("limit") int limit);
 }
@@ -0,0 +1,22 @@
+package com.ayungi.cms.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Итог удаления порции карт (для дельт статистики)
+ */
+public interface DeletedCardsView {
+
+    Long getCount();
+
+    Long getActive();
+
+    Long getBlocked();
+
+    Long getExpired();
+
+    /**
+     * Суммарный баланс удаленных карт
+     */
+    BigDecimal getBalance();
+}
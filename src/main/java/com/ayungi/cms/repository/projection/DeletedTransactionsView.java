@@ -0,0 +1,20 @@
+package com.ayungi.cms.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Итог удаления порции транзакций (для дельт статистики)
+ */
+public interface DeletedTransactionsView {
+
+    Long getCount();
+
+    Long getSuccessful();
+
+    Long getFailed();
+
+    /**
+     * Сумма удаленных успешных переводов
+     */
+    BigDecimal getAmount();
+}
@@ -0,0 +1,22 @@
+package com.ayungi.cms.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Проекция результата поиска пользователей (без загрузки сущности и связей)
+ */
+public interface UserSearchView {
+
+    UUID getId();
+
+    String getUsername();
+
+    String getEmail();
+
+    Boolean getEnabled();
+
+    /**
+     * Релевантность результата (больше — выше в выдаче)
+     */
+    Double getScore();
+}
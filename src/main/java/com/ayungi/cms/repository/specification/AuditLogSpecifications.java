@@ -0,0 +1,50 @@
+package com.ayungi.cms.repository.specification;
+
+import com.ayungi.cms.entity.AuditLog;
+import com.ayungi.cms.entity.enums.AuditAction;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Условия выборки логов аудита для фильтров админки
+ */
+public final class AuditLogSpecifications {
+
+    private AuditLogSpecifications() {
+    }
+
+    /**
+     * Фильтр логов: необязательные условия попадают в запрос, только если заданы.
+     * Границы периода обязательны, чтобы PostgreSQL отсекал лишние секции audit_logs.
+     *
+     * @param userId ID пользователя (опционально)
+     * @param action тип действия (опционально)
+     * @param entityType тип сущности (опционально)
+     * @param startDate начальная дата
+     * @param endDate конечная дата
+     * @return спецификация
+     */
+    public static Specification<AuditLog> withFilters(UUID userId, AuditAction action, String entityType,
+                                                      LocalDateTime startDate, LocalDateTime endDate) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(5);
+            if (userId != null) {
+                predicates.add(cb.equal(root.get("user").get("id"), userId));
+            }
+            if (action != null) {
+                predicates.add(cb.equal(root.get("action"), action));
+            }
+            if (entityType != null) {
+                predicates.add(cb.equal(root.get("entityType"), entityType));
+            }
+            predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), startDate));
+            predicates.add(cb.lessThanOrEqualTo(root.get("timestamp"), endDate));
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+}
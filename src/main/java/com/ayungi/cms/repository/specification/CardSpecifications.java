@@ -0,0 +1,39 @@
+package com.ayungi.cms.repository.specification;
+
+import com.ayungi.cms.entity.Card;
+import com.ayungi.cms.entity.enums.CardStatus;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Условия выборки карт для фильтров админки
+ */
+public final class CardSpecifications {
+
+    private CardSpecifications() {
+    }
+
+    /**
+     * Фильтр карт: в запрос попадают только заданные условия
+     *
+     * @param status статус карты (опционально)
+     * @param ownerId ID владельца (опционально)
+     * @return спецификация
+     */
+    public static Specification<Card> withFilters(CardStatus status, UUID ownerId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(2);
+            if (ownerId != null) {
+                predicates.add(cb.equal(root.get("owner").get("id"), ownerId));
+            }
+            if (status != null) {
+                predicates.add(cb.equal(root.get("status"), status));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.ayungi.cms.repository.specification;
+
+import com.ayungi.cms.entity.Transaction;
+import com.ayungi.cms.entity.enums.TransactionStatus;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Условия выборки транзакций для фильтров админки
+ */
+public final class TransactionSpecifications {
+
+    private TransactionSpecifications() {
+    }
+
+    /**
+     * Фильтр транзакций: в запрос попадают только заданные условия
+     *
+     * @param status статус (опционально)
+     * @param startDate начальная дата (опционально)
+     * @param endDate конечная дата (опционально)
+     * @return спецификация
+     */
+    public static Specification<Transaction> withFilters(TransactionStatus status,
+                                                         LocalDateTime startDate,
+                                                         LocalDateTime endDate) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(3);
+            if (status != null) {
+                predicates.add(cb.equal(root.get("status"), status));
+            }
+            if (startDate != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), startDate));
+            }
+            if (endDate != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("timestamp"), endDate));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+}
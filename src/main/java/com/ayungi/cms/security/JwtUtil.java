@@ -13,6 +13,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -23,6 +24,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class JwtUtil {
 
+    private static final String FAMILY_CLAIM = "fid";
+    private static final String SEQUENCE_CLAIM = "seq";
+
     private final SecretKey secretKey;
     private final long accessTokenExpiration;
     private final long refreshTokenExpiration;
@@ -49,10 +53,18 @@ public class JwtUtil {
     }
 
     /**
-     * Генерация refresh токена
+     * Генерация refresh токена с привязкой к семейству ротаций
+     *
+     * @param userDetails пользователь
+     * @param familyId ID семейства токенов
+     * @param sequence порядковый номер токена в семействе
      */
-    public String generateRefreshToken(UserDetails userDetails) {
-        return createToken(new HashMap<>(), userDetails.getUsername(), refreshTokenExpiration);
+    public String generateRefreshToken(UserDetails userDetails, UUID familyId, int sequence) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(FAMILY_CLAIM, familyId.toString());
+        claims.put(SEQUENCE_CLAIM, sequence);
+
+        return createToken(claims, userDetails.getUsername(), refreshTokenExpiration);
     }
 
     /**
@@ -78,6 +90,30 @@ public class JwtUtil {
         return extractClaim(token, Claims::getSubject);
     }
 
+    /**
+     * Извлечение ID семейства из refresh токена
+     *
+     * @return ID семейства или null, если токен выпущен без ротации
+     */
+    public UUID extractFamilyId(String token) {
+        String familyId = extractClaim(token, claims -> claims.get(FAMILY_CLAIM, String.class));
+        return familyId != null ? UUID.fromString(familyId) : null;
+    }
+
+    /**
+     * Извлечение порядкового номера из refresh токена
+     */
+    public Integer extractSequence(String token) {
+        return extractClaim(token, claims -> claims.get(SEQUENCE_CLAIM, Integer.class));
+    }
+
+    /**
+     * Время жизни refresh токена в миллисекундах
+     */
+    public long getRefreshTokenExpiration() {
+        return refreshTokenExpiration;
+    }
+
     /**
      * Извлечение даты истечения из токена
      */
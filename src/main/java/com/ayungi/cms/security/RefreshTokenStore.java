@@ -0,0 +1,261 @@
+package com.ayungi.cms.security;
+
+import com.ayungi.cms.entity.RefreshTokenFamily;
+import com.ayungi.cms.entity.User;
+import com.ayungi.cms.exception.AuthenticationException;
+import com.ayungi.cms.repository.RefreshTokenFamilyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Хранилище семейств refresh токенов с ротацией и отзывом.
+ * <p>
+ * Для каждого семейства в памяти хранится только номер последнего выданного токена:
+ * токен с меньшим номером уже был ротирован, и его повторное предъявление отзывает
+ * семейство целиком. Проверка выполняется за O(1) без запроса к БД, таблица
+ * {@code refresh_token_families} служит источником истины между рестартами и узлами.
+ * <p>
+ * Номер продвигается условным UPDATE в БД, а в памяти — только после фиксации транзакции.
+ * Истекшие семейства периодически удаляются из памяти и из таблицы; индекс по пользователю
+ * позволяет отзывать семейства пользователя без обхода всех семейств.
+ */
+@Component
+@Slf4j
+public class RefreshTokenStore {
+
+    /**
+     * Маркер отозванного семейства вместо номера токена
+     */
+    private static final int REVOKED = -1;
+
+    private final RefreshTokenFamilyRepository familyRepository;
+    private final long refreshTokenExpiration;
+    private final Map<UUID, FamilyState> families = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<UUID>> familiesByUser = new ConcurrentHashMap<>();
+
+    public RefreshTokenStore(RefreshTokenFamilyRepository familyRepository, JwtUtil jwtUtil) {
+        this.familyRepository = familyRepository;
+        this.refreshTokenExpiration = jwtUtil.getRefreshTokenExpiration();
+    }
+
+    /**
+     * Загрузка действующих семейств при старте приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadActiveFamilies() {
+        List<RefreshTokenFamily> active = familyRepository.findActive(LocalDateTime.now());
+        active.forEach(family -> track(family.getId(), FamilyState.of(family)));
+        log.info("Загружено {} активных семейств refresh токенов", active.size());
+    }
+
+    /**
+     * Открытие нового семейства токенов (при входе или регистрации)
+     *
+     * @param user владелец токенов
+     * @return ID нового семейства, номер первого токена всегда 0
+     */
+    public UUID openFamily(User user) {
+        RefreshTokenFamily family = RefreshTokenFamily.builder()
+                .user(user)
+                .sequenceNumber(0)
+                .revoked(false)
+                .expiresAt(nextExpiration())
+                .build();
+
+        family = familyRepository.save(family);
+        UUID familyId = family.getId();
+        FamilyState state = FamilyState.of(family);
+        afterCommit(() -> track(familyId, state));
+        return familyId;
+    }
+
+    /**
+     * Ротация токена: проверяет предъявленный номер и выдает следующий.
+     * Повторное предъявление уже ротированного токена отзывает все семейство.
+     *
+     * @param familyId ID семейства
+     * @param sequence номер предъявленного токена
+     * @return номер нового токена
+     */
+    public int rotate(UUID familyId, int sequence) {
+        FamilyState state = families.get(familyId);
+        if (state != null && state.sequence.get() == REVOKED) {
+            log.warn("Предъявлен refresh токен отозванного семейства {}", familyId);
+            throw AuthenticationException.refreshTokenReused();
+        }
+        if (state == null || sequence > state.sequence.get()) {
+            // Промах или устаревшее состояние (ротация на другом узле) — точная проверка по таблице
+            state = reload(familyId);
+        }
+
+        if (state == null || state.isExpired()) {
+            untrack(familyId);
+            throw AuthenticationException.invalidToken();
+        }
+
+        if (sequence == state.sequence.get()) {
+            // Арбитр — условный UPDATE в БД; память продвигается только после фиксации
+            int next = sequence + 1;
+            LocalDateTime expiresAt = nextExpiration();
+            if (familyRepository.advanceSequence(familyId, sequence, next, expiresAt) == 1) {
+                FamilyState advanced = state;
+                afterCommit(() -> advanced.advance(next, expiresAt));
+                return next;
+            }
+        }
+
+        if (state.sequence.get() == REVOKED) {
+            log.warn("Предъявлен refresh токен отозванного семейства {}", familyId);
+        } else {
+            log.warn("Повторное использование refresh токена семейства {} (номер {}), семейство отозвано",
+                    familyId, sequence);
+            revokeFamily(familyId);
+        }
+        throw AuthenticationException.refreshTokenReused();
+    }
+
+    /**
+     * Отзыв семейства токенов
+     */
+    public void revokeFamily(UUID familyId) {
+        FamilyState state = families.get(familyId);
+        if (state != null) {
+            state.sequence.set(REVOKED);
+        }
+        familyRepository.revoke(familyId);
+    }
+
+    /**
+     * Отзыв всех семейств токенов пользователя (например, при блокировке)
+     */
+    public void revokeAllForUser(UUID userId) {
+        Set<UUID> familyIds = familiesByUser.get(userId);
+        if (familyIds != null) {
+            for (UUID familyId : familyIds) {
+                FamilyState state = families.get(familyId);
+                if (state != null) {
+                    state.sequence.set(REVOKED);
+                }
+            }
+        }
+        int revoked = familyRepository.revokeByUserId(userId);
+        log.info("Отозвано {} семейств refresh токенов пользователя {}", revoked, userId);
+    }
+
+    /**
+     * Удаление истекших семейств из памяти и из таблицы
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-family-purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = 0;
+        for (Map.Entry<UUID, FamilyState> entry : families.entrySet()) {
+            if (entry.getValue().isExpired()) {
+                untrack(entry.getKey());
+                purged++;
+            }
+        }
+        int deleted = familyRepository.deleteExpired(LocalDateTime.now());
+        log.debug("Удалено истекших семейств refresh токенов: {} из памяти, {} из БД", purged, deleted);
+    }
+
+    private FamilyState reload(UUID familyId) {
+        return familyRepository.findById(familyId)
+                .map(FamilyState::of)
+                .map(state -> {
+                    track(familyId, state);
+                    return state;
+                })
+                .orElse(null);
+    }
+
+    private void track(UUID familyId, FamilyState state) {
+        familiesByUser.compute(state.userId, (userId, familyIds) -> {
+            Set<UUID> ids = familyIds != null ? familyIds : ConcurrentHashMap.newKeySet();
+            ids.add(familyId);
+            return ids;
+        });
+        families.put(familyId, state);
+    }
+
+    private void untrack(UUID familyId) {
+        FamilyState state = families.remove(familyId);
+        if (state != null) {
+            familiesByUser.computeIfPresent(state.userId, (userId, familyIds) -> {
+                familyIds.remove(familyId);
+                return familyIds.isEmpty() ? null : familyIds;
+            });
+        }
+    }
+
+    /**
+     * Выполнение после фиксации текущей транзакции (без транзакции — сразу)
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private LocalDateTime nextExpiration() {
+        return LocalDateTime.now().plusNanos(refreshTokenExpiration * 1_000_000L);
+    }
+
+    /**
+     * Компактное состояние семейства в памяти
+     */
+    private static final class FamilyState {
+
+        private final UUID userId;
+        private final AtomicInteger sequence;
+        private volatile LocalDateTime expiresAt;
+
+        private FamilyState(UUID userId, int sequence, LocalDateTime expiresAt) {
+            this.userId = userId;
+            this.sequence = new AtomicInteger(sequence);
+            this.expiresAt = expiresAt;
+        }
+
+        private static FamilyState of(RefreshTokenFamily family) {
+            int sequence = family.getRevoked() ? REVOKED : family.getSequenceNumber();
+            return new FamilyState(family.getUser().getId(), sequence, family.getExpiresAt());
+        }
+
+        private boolean isExpired() {
+            return expiresAt.isBefore(LocalDateTime.now());
+        }
+
+        /**
+         * Продвижение номера после фиксации (отзыв и более новый номер с другого потока не затираются)
+         */
+        private void advance(int next, LocalDateTime nextExpiresAt) {
+            int previous = sequence.getAndAccumulate(next,
+                    (current, candidate) -> current == REVOKED ? REVOKED : Math.max(current, candidate));
+            if (previous != REVOKED && previous < next) {
+                expiresAt = nextExpiresAt;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ayungi.cms.security;
+
+import com.ayungi.cms.entity.Role;
+import com.ayungi.cms.entity.User;
+import com.ayungi.cms.repository.RoleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Реестр ролей, загружаемый при старте приложения.
+ * <p>
+ * Роли пользователя хранятся битовой маской {@code users.role_mask}: бит роли равен
+ * {@code 1 << (roles.id - 1)}. Проверка роли сводится к битовой операции, а имена ролей
+ * и authorities для каждой маски вычисляются один раз и кешируются.
+ */
+@Component
+@Slf4j
+public class RoleRegistry {
+
+    public static final String ADMIN = "ADMIN";
+    public static final String USER = "USER";
+
+    private final RoleRepository roleRepository;
+
+    private volatile Map<String, Long> idsByName = Map.of();
+    private final Map<Integer, Set<String>> namesByMask = new ConcurrentHashMap<>();
+    private final Map<Integer, List<GrantedAuthority>> authoritiesByMask = new ConcurrentHashMap<>();
+
+    public RoleRegistry(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    /**
+     * Загрузка ролей из БД (роли меняются только миграциями)
+     */
+    @PostConstruct
+    public void load() {
+        Map<String, Long> ids = new HashMap<>();
+        for (Role role : roleRepository.findAll()) {
+            if (role.getId() < 1 || role.getId() >= Integer.SIZE) {
+                throw new IllegalStateException("ID роли " + role.getName() + " не помещается в битовую маску: " + role.getId());
+            }
+            ids.put(role.getName(), role.getId());
+        }
+
+        idsByName = Map.copyOf(ids);
+        namesByMask.clear();
+        authoritiesByMask.clear();
+        log.info("Загружено ролей: {}", ids.keySet());
+    }
+
+    /**
+     * ID роли по названию
+     */
+    public Long idOf(String roleName) {
+        Long id = idsByName.get(roleName);
+        if (id == null) {
+            throw new IllegalStateException("Роль " + roleName + " не найдена");
+        }
+        return id;
+    }
+
+    /**
+     * Бит роли в маске
+     */
+    public int bitOf(String roleName) {
+        return bit(idOf(roleName));
+    }
+
+    /**
+     * Проверка наличия роли у пользователя
+     */
+    public boolean hasRole(User user, String roleName) {
+        return (user.getRoleMask() & bitOf(roleName)) != 0;
+    }
+
+    /**
+     * Проверка, является ли пользователь администратором
+     */
+    public boolean isAdmin(User user) {
+        return hasRole(user, ADMIN);
+    }
+
+    /**
+     * Названия ролей для маски
+     */
+    public Set<String> namesOf(int mask) {
+        return namesByMask.computeIfAbsent(mask, m -> idsByName.entrySet().stream()
+                .filter(entry -> (m & bit(entry.getValue())) != 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toUnmodifiableSet()));
+    }
+
+    /**
+     * Authorities Spring Security для маски
+     */
+    public List<GrantedAuthority> authoritiesOf(int mask) {
+        return authoritiesByMask.computeIfAbsent(mask, m -> namesOf(m).stream()
+                .map(name -> (GrantedAuthority) new SimpleGrantedAuthority("ROLE_" + name))
+                .toList());
+    }
+
+    private static int bit(long roleId) {
+        return 1 << (roleId - 1);
+    }
+}
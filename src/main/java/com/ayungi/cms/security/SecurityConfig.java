@@ -1,5 +1,6 @@
 package com.ayungi.cms.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -63,6 +64,9 @@ public class SecurityConfig {
                 
                 // Настройка авторизации
                 .authorizeHttpRequests(auth -> auth
+                        // Завершение асинхронного ответа (выгрузки): запрос уже авторизован, JwtFilter не повторяется
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Публичные эндпоинты
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/swagger-ui/**", "/api-docs/**", "/swagger-ui.html").permitAll()
@@ -1,20 +1,14 @@
 package com.ayungi.cms.security;
 
-import com.ayungi.cms.entity.Role;
 import com.ayungi.cms.entity.User;
 import com.ayungi.cms.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collection;
-import java.util.stream.Collectors;
-
 /**
  * Реализация UserDetailsService для загрузки пользователя
  */
@@ -23,9 +17,11 @@ import java.util.stream.Collectors;
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final RoleRegistry roleRegistry;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
+    public UserDetailsServiceImpl(UserRepository userRepository, RoleRegistry roleRegistry) {
         this.userRepository = userRepository;
+        this.roleRegistry = roleRegistry;
     }
 
     @Override
@@ -51,16 +47,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 true, // accountNonExpired
                 true, // credentialsNonExpired
                 true, // accountNonLocked
-                mapRolesToAuthorities(user.getRoles())
+                roleRegistry.authoritiesOf(user.getRoleMask())
         );
     }
-
-    /**
-     * Преобразование ролей в authorities для Spring Security
-     */
-    private Collection<? extends GrantedAuthority> mapRolesToAuthorities(Collection<Role> roles) {
-        return roles.stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getName()))
-                .collect(Collectors.toList());
-    }
 }
@@ -1,20 +1,47 @@
 package com.ayungi.cms.service;
 
+import com.ayungi.cms.audit.AuditArchiveQuery;
+import com.ayungi.cms.audit.AuditArchiveReader;
+import com.ayungi.cms.audit.AuditDetails;
+import com.ayungi.cms.audit.AuditDetailsJson;
+import com.ayungi.cms.audit.AuditEvent;
+import com.ayungi.cms.audit.AuditOutbox;
+import com.ayungi.cms.audit.AuditPartitionManager;
+import com.ayungi.cms.audit.AuditPipeline;
 import com.ayungi.cms.dto.mapper.AuditLogMapper;
 import com.ayungi.cms.dto.response.AuditLogResponse;
+import com.ayungi.cms.dto.response.SliceResponse;
 import com.ayungi.cms.entity.AuditLog;
 import com.ayungi.cms.entity.User;
 import com.ayungi.cms.entity.enums.AuditAction;
+import com.ayungi.cms.entity.enums.CountMode;
 import com.ayungi.cms.repository.AuditLogRepository;
+import com.ayungi.cms.repository.RowCountEstimator;
+import com.ayungi.cms.repository.SliceQueryExecutor;
+import com.ayungi.cms.repository.UserRepository;
+import com.ayungi.cms.repository.specification.AuditLogSpecifications;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для работы с системным аудитом
@@ -23,48 +50,165 @@ import java.util.UUID;
 @Slf4j
 public class AuditService {
 
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final AuditLogRepository auditLogRepository;
     private final AuditLogMapper auditLogMapper;
+    private final AuditPipeline auditPipeline;
+    private final AuditPartitionManager auditPartitionManager;
+    private final AuditArchiveReader archiveReader;
+    private final UserRepository userRepository;
+    private final AuditDetailsJson detailsJson;
+    private final AuditOutbox auditOutbox;
+    private final SliceQueryExecutor sliceQueryExecutor;
+    private final RowCountEstimator rowCountEstimator;
 
-    public AuditService(AuditLogRepository auditLogRepository, AuditLogMapper auditLogMapper) {
+    public AuditService(AuditLogRepository auditLogRepository, AuditLogMapper auditLogMapper,
+                        AuditPipeline auditPipeline, AuditPartitionManager auditPartitionManager,
+                        AuditArchiveReader archiveReader, UserRepository userRepository,
+                        AuditDetailsJson detailsJson, AuditOutbox auditOutbox,
+                        SliceQueryExecutor sliceQueryExecutor, RowCountEstimator rowCountEstimator) {
         this.auditLogRepository = auditLogRepository;
         this.auditLogMapper = auditLogMapper;
+        this.auditPipeline = auditPipeline;
+        this.auditPartitionManager = auditPartitionManager;
+        this.archiveReader = archiveReader;
+        this.userRepository = userRepository;
+        this.detailsJson = detailsJson;
+        this.auditOutbox = auditOutbox;
+        this.sliceQueryExecutor = sliceQueryExecutor;
+        this.rowCountEstimator = rowCountEstimator;
     }
 
     /**
-     * Логирование действия пользователя (асинхронно)
+     * Логирование действия пользователя.
+     * Внутри пишущей транзакции событие вставляется в outbox этой же транзакции и фиксируется
+     * (или откатывается) вместе с бизнес-операцией. Вне транзакции оно публикуется в конвейер аудита
+     * и записывается в БД пакетом, вызывающий поток не ждет БД.
      */
-    @Async
-    @Transactional
-    public void logAction(User user, AuditAction action, String entityType, 
-                         String entityId, String details, String ipAddress) {
-        try {
-            AuditLog auditLog = AuditLog.builder()
-                    .user(user)
-                    .action(action)
-                    .entityType(entityType)
-                    .entityId(entityId)
-                    .details(details)
-                    .ipAddress(ipAddress)
-                    .build();
-
-            auditLogRepository.save(auditLog);
+    public void logAction(User user, AuditAction action, String entityType,
+                         String entityId, AuditDetails details, String ipAddress) {
+        AuditEvent event = AuditEvent.of(user != null ? user.getId() : null, action, entityType,
+                entityId, details, ipAddress);
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            auditOutbox.append(event);
+            log.debug("Лог аудита {} добавлен в outbox транзакции", action);
+        } else if (auditPipeline.publish(event)) {
             log.debug("Создан лог аудита: {} для пользователя {}", action, user != null ? user.getUsername() : "system");
-        } catch (Exception e) {
-            log.error("Ошибка создания лога аудита", e);
         }
     }
 
     /**
-     * Получение всех логов с фильтрацией
+     * Получение всех логов с фильтрацией.
+     * Если период затрагивает заархивированные месяцы, после записей из БД (они новее)
+     * страница дополняется записями из архива.
      */
     @Transactional(readOnly = true)
-    public Page<AuditLogResponse> getAllLogs(UUID userId, AuditAction action, String entityType,
-                                             LocalDateTime startDate, LocalDateTime endDate,
-                                             Pageable pageable) {
-        log.debug("Получение логов аудита с фильтрами");
-        
-        return auditLogRepository.findAllWithFilters(userId, action, entityType, startDate, endDate, pageable)
+    public SliceResponse<AuditLogResponse> getAllLogs(UUID userId, AuditAction action, String entityType,
+                                                      LocalDateTime startDate, LocalDateTime endDate,
+                                                      Pageable pageable, CountMode countMode) {
+        log.debug("Получение логов аудита с фильтрами ({})", countMode);
+
+        // Границы периода подставляются всегда, чтобы PostgreSQL отсекал лишние секции audit_logs
+        Specification<AuditLog> specification = AuditLogSpecifications.withFilters(userId, action, entityType,
+                startDate != null ? startDate : MIN_TIMESTAMP,
+                endDate != null ? endDate : MAX_TIMESTAMP);
+        AuditArchiveQuery query = archiveReader.covers(startDate, endDate)
+                ? new AuditArchiveQuery(userId, action, entityType, startDate, endDate)
+                : null;
+
+        if (countMode == CountMode.EXACT) {
+            return SliceResponse.of(findLogsPage(specification, query, pageable));
+        }
+
+        Slice<AuditLogResponse> logs = findLogsSlice(specification, query, pageable);
+        Long total = null;
+        if (countMode == CountMode.ESTIMATED) {
+            total = rowCountEstimator.estimateAuditLogs(userId, action, entityType, startDate, endDate)
+                    + (query != null ? archiveReader.estimate(query) : 0);
+        }
+        return SliceResponse.of(logs, total, true);
+    }
+
+    private Page<AuditLogResponse> findLogsPage(Specification<AuditLog> specification, AuditArchiveQuery query,
+                                                Pageable pageable) {
+        Page<AuditLogResponse> hot = auditLogRepository.findAll(specification, pageable)
+                .map(auditLogMapper::toResponse);
+        if (query == null) {
+            return hot;
+        }
+
+        long archiveTotal = archiveReader.count(query);
+        List<AuditLogResponse> content = new ArrayList<>(hot.getContent());
+
+        int missing = pageable.getPageSize() - content.size();
+        if (missing > 0 && archiveTotal > 0) {
+            long archiveOffset = Math.max(0, pageable.getOffset() - hot.getTotalElements());
+            content.addAll(toArchiveResponses(archiveReader.find(query, archiveOffset, missing)));
+        }
+        return new PageImpl<>(content, pageable, hot.getTotalElements() + archiveTotal);
+    }
+
+    /**
+     * Срез логов без подсчета: архив читается, только когда записи БД закончились на этой странице
+     */
+    private Slice<AuditLogResponse> findLogsSlice(Specification<AuditLog> specification, AuditArchiveQuery query,
+                                                  Pageable pageable) {
+        Slice<AuditLogResponse> hot = sliceQueryExecutor.findSlice(AuditLog.class, specification, pageable)
+                .map(auditLogMapper::toResponse);
+        if (query == null || hot.hasNext()) {
+            return hot;
+        }
+
+        // Если страница целиком за последней записью БД, их число неизвестно — тогда нужен подсчет
+        long hotTotal = hot.hasContent() || pageable.getOffset() == 0
+                ? pageable.getOffset() + hot.getNumberOfElements()
+                : auditLogRepository.count(specification);
+        int missing = pageable.getPageSize() - hot.getNumberOfElements();
+        List<AuditEvent> archived = archiveReader.find(query, Math.max(0, pageable.getOffset() - hotTotal), missing + 1);
+        boolean hasNext = archived.size() > missing;
+
+        List<AuditLogResponse> content = new ArrayList<>(hot.getContent());
+        content.addAll(toArchiveResponses(hasNext ? archived.subList(0, missing) : archived));
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * Исходящие переводы с карты на сумму не меньше указанной.
+     * Ищутся по индексу ключей деталей среди записей в БД (архив не просматривается).
+     */
+    @Transactional(readOnly = true)
+    public Page<AuditLogResponse> getTransfersFromCard(UUID cardId, BigDecimal minAmount,
+                                                       LocalDateTime startDate, LocalDateTime endDate,
+                                                       Pageable pageable) {
+        log.debug("Поиск переводов с карты {} от суммы {}", cardId, minAmount);
+
+        return auditLogRepository.findTransfersFromCard(cardId.toString(),
+                        minAmount != null ? minAmount : BigDecimal.ZERO,
+                        startDate != null ? startDate : MIN_TIMESTAMP,
+                        endDate != null ? endDate : MAX_TIMESTAMP,
+                        PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()))
+                .map(auditLogMapper::toResponse);
+    }
+
+    /**
+     * Поиск логов, детали которых содержат все поля фильтра (GIN индекс по details)
+     */
+    @Transactional(readOnly = true)
+    public Page<AuditLogResponse> findByDetails(AuditDetails filter, LocalDateTime startDate,
+                                                LocalDateTime endDate, Pageable pageable) {
+        if (filter == null || filter.isEmpty()) {
+            throw new IllegalArgumentException("Фильтр по деталям не задан");
+        }
+        log.debug("Поиск логов по деталям: {}", filter);
+
+        return auditLogRepository.findByDetailsContaining(detailsJson.toJson(filter),
+                        startDate != null ? startDate : MIN_TIMESTAMP,
+                        endDate != null ? endDate : MAX_TIMESTAMP,
+                        PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()))
                 .map(auditLogMapper::toResponse);
     }
 
@@ -90,14 +234,30 @@ public class AuditService {
                 .map(auditLogMapper::toResponse);
     }
 
+    private List<AuditLogResponse> toArchiveResponses(List<AuditEvent> events) {
+        Set<UUID> userIds = events.stream()
+                .map(AuditEvent::userId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<UUID, String> usernames = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, User::getUsername));
+
+        return events.stream()
+                .map(event -> auditLogMapper.toResponse(event, usernames.get(event.userId())))
+                .toList();
+    }
+
     /**
-     * Удаление старых логов (для очистки)
+     * Удаление старых логов (для очистки): удаляются только целые месячные секции раньше
+     * месяца границы — после архивации и под блокировкой обслуживания секций.
+     * Строки граничного месяца остаются до удаления его секции
      */
-    @Transactional
     public void deleteOldLogs(int daysToKeep) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        log.info("Удаление логов старше {}", cutoffDate);
-        
-        auditLogRepository.deleteOldLogs(cutoffDate);
+        YearMonth cutoff = YearMonth.from(LocalDateTime.now().minusDays(daysToKeep));
+        log.info("Удаление секций логов раньше {}", cutoff);
+
+        if (!auditPartitionManager.purgeBefore(cutoff)) {
+            log.info("Секции аудита обслуживает другой узел, удаление пропущено");
+        }
     }
 }
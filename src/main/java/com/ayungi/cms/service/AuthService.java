@@ -1,14 +1,18 @@
 package com.ayungi.cms.service;
 
+import com.ayungi.cms.audit.AuditDetails;
 import com.ayungi.cms.dto.request.LoginRequest;
 import com.ayungi.cms.dto.request.RegisterRequest;
 import com.ayungi.cms.dto.response.AuthResponse;
 import com.ayungi.cms.entity.Role;
 import com.ayungi.cms.entity.User;
 import com.ayungi.cms.entity.enums.AuditAction;
+import com.ayungi.cms.exception.AuthenticationException;
 import com.ayungi.cms.repository.RoleRepository;
 import com.ayungi.cms.repository.UserRepository;
 import com.ayungi.cms.security.JwtUtil;
+import com.ayungi.cms.security.RefreshTokenStore;
+import com.ayungi.cms.security.RoleRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -21,7 +25,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
 /**
  * Сервис для аутентификации и регистрации пользователей
@@ -37,6 +41,9 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final UserDetailsService userDetailsService;
     private final AuditService auditService;
+    private final RefreshTokenStore refreshTokenStore;
+    private final RoleRegistry roleRegistry;
+    private final StatisticsService statisticsService;
 
     public AuthService(
             UserRepository userRepository,
@@ -45,7 +52,10 @@ public class AuthService {
             JwtUtil jwtUtil,
             AuthenticationManager authenticationManager,
             UserDetailsService userDetailsService,
-            AuditService auditService) {
+            AuditService auditService,
+            RefreshTokenStore refreshTokenStore,
+            RoleRegistry roleRegistry,
+            StatisticsService statisticsService) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
@@ -53,6 +63,9 @@ public class AuthService {
         this.authenticationManager = authenticationManager;
         this.userDetailsService = userDetailsService;
         this.auditService = auditService;
+        this.refreshTokenStore = refreshTokenStore;
+        this.roleRegistry = roleRegistry;
+        this.statisticsService = statisticsService;
     }
 
     /**
@@ -73,9 +86,8 @@ public class AuthService {
             throw new RuntimeException("Пользователь с таким email уже существует");
         }
 
-        // Получение роли USER
-        Role userRole = roleRepository.findByName("USER")
-                .orElseThrow(() -> new RuntimeException("Роль USER не найдена"));
+        // Получение роли USER из реестра (без запроса к таблице roles)
+        Role userRole = roleRepository.getReferenceById(roleRegistry.idOf(RoleRegistry.USER));
 
         // Создание пользователя
         User user = User.builder()
@@ -84,28 +96,28 @@ public class AuthService {
                 .password(passwordEncoder.encode(request.getPassword()))
                 .enabled(true)
                 .roles(new HashSet<>(Set.of(userRole)))
+                .roleMask(roleRegistry.bitOf(RoleRegistry.USER))
                 .build();
 
         user = userRepository.save(user);
+        statisticsService.userCreated();
         log.info("Пользователь {} успешно зарегистрирован", user.getUsername());
 
         // Аудит
         auditService.logAction(user, AuditAction.CREATE, "User", user.getId().toString(), 
-                "Регистрация нового пользователя", null);
+                AuditDetails.message("Регистрация нового пользователя"), null);
 
         // Генерация токенов
         UserDetails userDetails = userDetailsService.loadUserByUsername(user.getUsername());
         String accessToken = jwtUtil.generateAccessToken(userDetails);
-        String refreshToken = jwtUtil.generateRefreshToken(userDetails);
+        String refreshToken = jwtUtil.generateRefreshToken(userDetails, refreshTokenStore.openFamily(user), 0);
 
         return AuthResponse.builder()
                 .accessToken(accessToken)
                 .refreshToken(refreshToken)
                 .username(user.getUsername())
                 .email(user.getEmail())
-                .roles(user.getRoles().stream()
-                        .map(Role::getName)
-                        .collect(Collectors.toSet()))
+                .roles(roleRegistry.namesOf(user.getRoleMask()))
                 .build();
     }
 
@@ -131,29 +143,29 @@ public class AuthService {
         // Генерация токенов
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         String accessToken = jwtUtil.generateAccessToken(userDetails);
-        String refreshToken = jwtUtil.generateRefreshToken(userDetails);
+        String refreshToken = jwtUtil.generateRefreshToken(userDetails, refreshTokenStore.openFamily(user), 0);
 
         log.info("Пользователь {} успешно авторизован", user.getUsername());
 
         // Аудит
         auditService.logAction(user, AuditAction.LOGIN, null, null, 
-                "Успешный вход в систему", ipAddress);
+                AuditDetails.message("Успешный вход в систему"), ipAddress);
 
         return AuthResponse.builder()
                 .accessToken(accessToken)
                 .refreshToken(refreshToken)
                 .username(user.getUsername())
                 .email(user.getEmail())
-                .roles(user.getRoles().stream()
-                        .map(Role::getName)
-                        .collect(Collectors.toSet()))
+                .roles(roleRegistry.namesOf(user.getRoleMask()))
                 .build();
     }
 
     /**
-     * Обновление access токена через refresh токен
+     * Обновление access токена через refresh токен с ротацией refresh токена.
+     * Отзыв семейства при повторном использовании должен быть зафиксирован,
+     * поэтому AuthenticationException не откатывает транзакцию.
      */
-    @Transactional(readOnly = true)
+    @Transactional(noRollbackFor = AuthenticationException.class)
     public AuthResponse refreshToken(String refreshToken) {
         log.debug("Обновление access токена");
 
@@ -163,23 +175,32 @@ public class AuthService {
             throw new RuntimeException("Невалидный refresh токен");
         }
 
-        // Извлечение username и генерация нового access токена
+        UUID familyId = jwtUtil.extractFamilyId(refreshToken);
+        Integer sequence = jwtUtil.extractSequence(refreshToken);
+        if (familyId == null || sequence == null) {
+            log.warn("Refresh токен выпущен без семейства ротаций");
+            throw AuthenticationException.invalidToken();
+        }
+
+        // Ротация: старый refresh токен становится недействительным
+        int nextSequence = refreshTokenStore.rotate(familyId, sequence);
+
+        // Извлечение username и генерация новой пары токенов
         String username = jwtUtil.extractUsername(refreshToken);
         UserDetails userDetails = userDetailsService.loadUserByUsername(username);
         
         String newAccessToken = jwtUtil.generateAccessToken(userDetails);
+        String newRefreshToken = jwtUtil.generateRefreshToken(userDetails, familyId, nextSequence);
 
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
 
         return AuthResponse.builder()
                 .accessToken(newAccessToken)
-                .refreshToken(refreshToken)
+                .refreshToken(newRefreshToken)
                 .username(user.getUsername())
                 .email(user.getEmail())
-                .roles(user.getRoles().stream()
-                        .map(Role::getName)
-                        .collect(Collectors.toSet()))
+                .roles(roleRegistry.namesOf(user.getRoleMask()))
                 .build();
     }
 }
@@ -0,0 +1,138 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.dto.response.BalanceDiscrepancyResponse;
+import com.ayungi.cms.dto.response.BalanceReconciliationResponse;
+import com.ayungi.cms.entity.BalanceReconciliationRun;
+import com.ayungi.cms.entity.User;
+import com.ayungi.cms.entity.enums.ReconciliationStatus;
+import com.ayungi.cms.exception.BusinessException;
+import com.ayungi.cms.exception.ResourceNotFoundException;
+import com.ayungi.cms.repository.BalanceReconciliationRunRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сервис сверки балансов карт с историей переводов.
+ * <p>
+ * Одновременно выполняется не больше одной сверки (уникальный частичный индекс по статусу RUNNING);
+ * сверка, не обновлявшая прогресс дольше stale-after-minutes, считается прерванной.
+ * Саму сверку выполняет {@link BalanceReconciliationWorker}.
+ */
+@Service
+@Slf4j
+public class BalanceReconciliationService {
+
+    private static final String SAMPLE_SQL =
+            "SELECT card_id, balance, expected_balance, detected_at FROM balance_discrepancies " +
+            "WHERE run_id = ? ORDER BY id LIMIT ?";
+
+    private final BalanceReconciliationRunRepository runRepository;
+    private final BalanceReconciliationWorker worker;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long staleAfterMinutes;
+    private final int sampleSize;
+
+    public BalanceReconciliationService(
+            BalanceReconciliationRunRepository runRepository,
+            BalanceReconciliationWorker worker,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${reconciliation.balances.stale-after-minutes:30}") long staleAfterMinutes,
+            @Value("${reconciliation.balances.sample-size:100}") int sampleSize) {
+        this.runRepository = runRepository;
+        this.worker = worker;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.staleAfterMinutes = staleAfterMinutes;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Запуск сверки администратором
+     */
+    public BalanceReconciliationResponse start(User currentUser) {
+        BalanceReconciliationRun run = createRun(currentUser.getId());
+        worker.execute(run.getId());
+        return toResponse(run, List.of());
+    }
+
+    /**
+     * Запуск сверки по расписанию (пропускается, если сверка уже выполняется)
+     */
+    @Scheduled(cron = "${reconciliation.balances.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        try {
+            worker.execute(createRun(null).getId());
+        } catch (BusinessException e) {
+            log.info("Плановая сверка балансов пропущена: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Состояние сверки с первыми найденными расхождениями
+     */
+    @Transactional(readOnly = true)
+    public BalanceReconciliationResponse getRun(UUID runId) {
+        BalanceReconciliationRun run = runRepository.findById(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("Сверка балансов", "id", runId));
+        List<BalanceDiscrepancyResponse> sample = jdbcTemplate.query(SAMPLE_SQL, (rs, rowNum) ->
+                BalanceDiscrepancyResponse.builder()
+                        .cardId(rs.getObject("card_id", UUID.class))
+                        .balance(rs.getBigDecimal("balance"))
+                        .expectedBalance(rs.getBigDecimal("expected_balance"))
+                        .detectedAt(rs.getTimestamp("detected_at").toLocalDateTime())
+                        .build(), runId, sampleSize);
+        return toResponse(run, sample);
+    }
+
+    /**
+     * Создание запуска в отдельной транзакции (фиксируется до старта исполнителя)
+     */
+    private BalanceReconciliationRun createRun(UUID requestedBy) {
+        try {
+            return transactionTemplate.execute(status -> {
+                int stale = runRepository.failStale(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+                if (stale > 0) {
+                    log.warn("Прерванных сверок балансов помечено: {}", stale);
+                }
+                if (runRepository.existsByStatus(ReconciliationStatus.RUNNING)) {
+                    throw BusinessException.reconciliationInProgress();
+                }
+                return runRepository.saveAndFlush(BalanceReconciliationRun.builder()
+                        .requestedBy(requestedBy)
+                        .build());
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Другой экземпляр запустил сверку одновременно
+            throw BusinessException.reconciliationInProgress();
+        }
+    }
+
+    private BalanceReconciliationResponse toResponse(BalanceReconciliationRun run,
+                                                     List<BalanceDiscrepancyResponse> sample) {
+        return BalanceReconciliationResponse.builder()
+                .id(run.getId())
+                .status(run.getStatus())
+                .totalChunks(run.getTotalChunks())
+                .chunksDone(run.getChunksDone())
+                .cardsChecked(run.getCardsChecked())
+                .discrepancies(run.getDiscrepancies())
+                .sample(sample)
+                .errorMessage(run.getErrorMessage())
+                .createdAt(run.getCreatedAt())
+                .updatedAt(run.getUpdatedAt())
+                .finishedAt(run.getFinishedAt())
+                .build();
+    }
+}
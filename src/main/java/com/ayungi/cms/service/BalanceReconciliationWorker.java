@@ -0,0 +1,208 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.entity.enums.ReconciliationStatus;
+import com.ayungi.cms.repository.BalanceReconciliationRunRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Исполнитель сверки балансов карт с историей переводов.
+ * <p>
+ * Пространство ID карт делится на диапазоны, которые обрабатываются параллельно в ForkJoinPool.
+ * Для каждого диапазона один агрегирующий запрос считает чистый поток успешных переводов по картам,
+ * сравнивает opening_balance + поток с balance и записывает расхождения в balance_discrepancies.
+ * Запрос выполняется в одном снимке, поэтому параллельные переводы не дают ложных расхождений.
+ * Нагрузка на БД ограничена числом потоков и паузами между диапазонами (duty-cycle).
+ */
+@Component
+@Slf4j
+public class BalanceReconciliationWorker {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    // UUID в PostgreSQL сравниваются побайтно, как беззнаковые (старшие, младшие) 64 бита
+    private static final String CHUNK_SQL = """
+            WITH flows AS (
+                SELECT card_id, SUM(amount) AS net FROM (
+                    SELECT to_card_id AS card_id, amount FROM transactions
+                    WHERE status = 'SUCCESS' AND to_card_id BETWEEN ? AND ?
+                    UNION ALL
+                    SELECT from_card_id, -amount FROM transactions
+                    WHERE status = 'SUCCESS' AND from_card_id BETWEEN ? AND ?
+                ) t GROUP BY card_id
+            ), checked AS (
+                SELECT c.id, c.balance, c.opening_balance + COALESCE(f.net, 0) AS expected
+                FROM cards c LEFT JOIN flows f ON f.card_id = c.id
+                WHERE c.id BETWEEN ? AND ?
+            ), reported AS (
+                INSERT INTO balance_discrepancies (run_id, card_id, balance, expected_balance)
+                SELECT ?, id, balance, expected FROM checked WHERE balance <> expected
+                RETURNING 1
+            )
+            SELECT (SELECT COUNT(*) FROM checked), (SELECT COUNT(*) FROM reported)""";
+
+    private final BalanceReconciliationRunRepository runRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunks;
+    private final int parallelism;
+    private final double dutyCycle;
+
+    public BalanceReconciliationWorker(
+            BalanceReconciliationRunRepository runRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${reconciliation.balances.chunks:1024}") int chunks,
+            @Value("${reconciliation.balances.parallelism:4}") int parallelism,
+            @Value("${reconciliation.balances.duty-cycle:0.5}") double dutyCycle) {
+        this.runRepository = runRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chunks = chunks;
+        this.parallelism = parallelism;
+        this.dutyCycle = Math.min(1.0, Math.max(0.05, dutyCycle));
+    }
+
+    /**
+     * Выполнение сверки
+     */
+    @Async("taskExecutor")
+    public void execute(UUID runId) {
+        transactionTemplate.executeWithoutResult(status ->
+                runRepository.findById(runId).ifPresent(run -> run.setTotalChunks(chunks)));
+
+        long startNanos = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism, this::newWorkerThread, null, false);
+        try {
+            long[] totals = pool.invoke(new ChunkTask(runId, 0, chunks));
+            finish(runId, ReconciliationStatus.COMPLETED, null);
+            log.info("Сверка балансов {} завершена за {} с: проверено карт {}, расхождений {}", runId,
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos), totals[0], totals[1]);
+        } catch (RuntimeException e) {
+            log.error("Ошибка сверки балансов {}: {}", runId, e.getMessage(), e);
+            finish(runId, ReconciliationStatus.FAILED, truncate(e.getMessage()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Нижняя граница диапазона ID карт (включительно)
+     */
+    static UUID lowerBound(int chunk, int chunks) {
+        return new UUID(chunk * step(chunks), 0L);
+    }
+
+    /**
+     * Верхняя граница диапазона ID карт (включительно)
+     */
+    static UUID upperBound(int chunk, int chunks) {
+        if (chunk == chunks - 1) {
+            return new UUID(-1L, -1L);
+        }
+        return new UUID((chunk + 1) * step(chunks) - 1, -1L);
+    }
+
+    private static long step(int chunks) {
+        return Long.divideUnsigned(-1L, chunks) + 1;
+    }
+
+    /**
+     * Сверка одного диапазона и учет прогресса в одной транзакции
+     *
+     * @return {проверено карт, найдено расхождений}
+     */
+    private long[] reconcileChunk(UUID runId, int chunk) {
+        UUID from = lowerBound(chunk, chunks);
+        UUID to = upperBound(chunk, chunks);
+        long startNanos = System.nanoTime();
+
+        long[] result = transactionTemplate.execute(status -> {
+            long[] counts = jdbcTemplate.queryForObject(CHUNK_SQL,
+                    (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                    from, to, from, to, from, to, runId);
+            runRepository.addProgress(runId, counts[0], counts[1]);
+            return counts;
+        });
+
+        throttle(System.nanoTime() - startNanos);
+        return result;
+    }
+
+    /**
+     * Пауза после диапазона: доля времени работы потока с БД не превышает duty-cycle
+     */
+    private void throttle(long workNanos) {
+        if (dutyCycle >= 1.0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep((long) (workNanos * (1 - dutyCycle) / dutyCycle));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Сверка прервана", e);
+        }
+    }
+
+    private ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("balance-reconciliation-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    private void finish(UUID runId, ReconciliationStatus status, String errorMessage) {
+        transactionTemplate.executeWithoutResult(tx -> runRepository.findById(runId).ifPresent(run -> {
+            run.setStatus(status);
+            run.setErrorMessage(errorMessage);
+            run.setFinishedAt(LocalDateTime.now());
+        }));
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    /**
+     * Рекурсивное деление диапазонов [from, to) до одного диапазона на задачу
+     */
+    private final class ChunkTask extends RecursiveTask<long[]> {
+
+        private final UUID runId;
+        private final int from;
+        private final int to;
+
+        ChunkTask(UUID runId, int from, int to) {
+            this.runId = runId;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from == 1) {
+                return reconcileChunk(runId, from);
+            }
+
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(runId, from, middle);
+            left.fork();
+            long[] right = new ChunkTask(runId, middle, to).compute();
+            long[] leftResult = left.join();
+            return new long[]{leftResult[0] + right[0], leftResult[1] + right[1]};
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package com.ayungi.cms.service;
 
+import com.ayungi.cms.audit.AuditDetailKey;
+import com.ayungi.cms.audit.AuditDetails;
 import com.ayungi.cms.dto.mapper.CardMapper;
 import com.ayungi.cms.dto.request.CardCreateRequest;
 import com.ayungi.cms.dto.response.BalanceResponse;
 import com.ayungi.cms.dto.response.CardResponse;
+import com.ayungi.cms.dto.response.SliceResponse;
 import com.ayungi.cms.entity.Card;
 import com.ayungi.cms.entity.User;
 import com.ayungi.cms.entity.enums.AuditAction;
 import com.ayungi.cms.entity.enums.CardStatus;
+import com.ayungi.cms.entity.enums.CountMode;
 import com.ayungi.cms.repository.CardRepository;
+import com.ayungi.cms.repository.RowCountEstimator;
+import com.ayungi.cms.repository.SliceQueryExecutor;
+import com.ayungi.cms.repository.TransactionRepository;
 import com.ayungi.cms.repository.UserRepository;
+import com.ayungi.cms.repository.projection.DeletedTransactionsView;
+import com.ayungi.cms.repository.specification.CardSpecifications;
+import com.ayungi.cms.security.RoleRegistry;
 import com.ayungi.cms.util.CardMaskUtil;
 import com.ayungi.cms.util.CardNumberGenerator;
 import com.ayungi.cms.util.CardValidator;
@@ -17,6 +27,8 @@ import com.ayungi.cms.util.EncryptionUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,6 +51,13 @@ public class CardService {
     private final CardMaskUtil cardMaskUtil;
     private final CardValidator cardValidator;
     private final AuditService auditService;
+    private final RoleRegistry roleRegistry;
+    private final StatisticsService statisticsService;
+    private final UserCardSummaryService cardSummaryService;
+    private final TransactionRepository transactionRepository;
+    private final SliceQueryExecutor sliceQueryExecutor;
+    private final RowCountEstimator rowCountEstimator;
+    private final QueryFanOut queryFanOut;
 
     public CardService(
             CardRepository cardRepository,
@@ -48,7 +67,14 @@ public class CardService {
             EncryptionUtil encryptionUtil,
             CardMaskUtil cardMaskUtil,
             CardValidator cardValidator,
-            AuditService auditService) {
+            AuditService auditService,
+            RoleRegistry roleRegistry,
+            StatisticsService statisticsService,
+            UserCardSummaryService cardSummaryService,
+            TransactionRepository transactionRepository,
+            SliceQueryExecutor sliceQueryExecutor,
+            RowCountEstimator rowCountEstimator,
+            QueryFanOut queryFanOut) {
         this.cardRepository = cardRepository;
         this.userRepository = userRepository;
         this.cardMapper = cardMapper;
@@ -57,6 +83,13 @@ public class CardService {
         this.cardMaskUtil = cardMaskUtil;
         this.cardValidator = cardValidator;
         this.auditService = auditService;
+        this.roleRegistry = roleRegistry;
+        this.statisticsService = statisticsService;
+        this.cardSummaryService = cardSummaryService;
+        this.transactionRepository = transactionRepository;
+        this.sliceQueryExecutor = sliceQueryExecutor;
+        this.rowCountEstimator = rowCountEstimator;
+        this.queryFanOut = queryFanOut;
     }
 
     /**
@@ -85,14 +118,19 @@ public class CardService {
                 .expirationDate(request.getExpirationDate())
                 .status(CardStatus.ACTIVE)
                 .balance(request.getInitialBalance())
+                .openingBalance(request.getInitialBalance())
                 .build();
 
         card = cardRepository.save(card);
+        userRepository.adjustCardsCount(owner.getId(), 1);
+        statisticsService.cardCreated(card.getStatus(), card.getBalance());
+        cardSummaryService.cardCreated(owner.getId(), card.getStatus(), card.getBalance());
         log.info("Карта {} успешно создана для пользователя {}", 
                 cardMaskUtil.maskCardNumber(encryptedCardNumber), owner.getUsername());
 
         auditService.logAction(currentUser, AuditAction.CREATE, "Card", card.getId().toString(),
-                "Создание карты для пользователя: " + owner.getUsername(), null);
+                AuditDetails.message("Создание карты")
+                        .with(AuditDetailKey.USERNAME, owner.getUsername()), null);
 
         return cardMapper.toResponse(card);
     }
@@ -120,7 +158,7 @@ public class CardService {
 
         // Проверка прав доступа
         if (!card.getOwner().getId().equals(currentUser.getId()) &&
-            currentUser.getRoles().stream().noneMatch(role -> role.getName().equals("ADMIN"))) {
+            !roleRegistry.isAdmin(currentUser)) {
             throw new RuntimeException("Недостаточно прав для просмотра карты");
         }
 
@@ -139,7 +177,7 @@ public class CardService {
 
         // Проверка прав доступа
         if (!card.getOwner().getId().equals(currentUser.getId()) &&
-            currentUser.getRoles().stream().noneMatch(role -> role.getName().equals("ADMIN"))) {
+            !roleRegistry.isAdmin(currentUser)) {
             throw new RuntimeException("Недостаточно прав для просмотра баланса");
         }
 
@@ -162,7 +200,7 @@ public class CardService {
 
         // Пользователь может блокировать только свои карты, админ - любые
         if (!card.getOwner().getId().equals(currentUser.getId()) &&
-            currentUser.getRoles().stream().noneMatch(role -> role.getName().equals("ADMIN"))) {
+            !roleRegistry.isAdmin(currentUser)) {
             throw new RuntimeException("Недостаточно прав для блокировки карты");
         }
 
@@ -170,13 +208,16 @@ public class CardService {
             throw new RuntimeException("Карта уже заблокирована");
         }
 
+        CardStatus previousStatus = card.getStatus();
         card.setStatus(CardStatus.BLOCKED);
         card = cardRepository.save(card);
+        statisticsService.cardStatusChanged(previousStatus, CardStatus.BLOCKED);
+        cardSummaryService.cardStatusChanged(card.getOwner().getId(), previousStatus, CardStatus.BLOCKED);
         
         log.info("Карта {} успешно заблокирована", cardMaskUtil.maskCardNumber(card.getCardNumber()));
 
         auditService.logAction(currentUser, AuditAction.BLOCK, "Card", card.getId().toString(),
-                "Блокировка карты", null);
+                AuditDetails.message("Блокировка карты"), null);
 
         return cardMapper.toResponse(card);
     }
@@ -199,13 +240,16 @@ public class CardService {
             throw new RuntimeException("Невозможно активировать карту с истекшим сроком действия");
         }
 
+        CardStatus previousStatus = card.getStatus();
         card.setStatus(CardStatus.ACTIVE);
         card = cardRepository.save(card);
+        statisticsService.cardStatusChanged(previousStatus, CardStatus.ACTIVE);
+        cardSummaryService.cardStatusChanged(card.getOwner().getId(), previousStatus, CardStatus.ACTIVE);
         
         log.info("Карта {} успешно активирована", cardMaskUtil.maskCardNumber(card.getCardNumber()));
 
         auditService.logAction(currentUser, AuditAction.ACTIVATE, "Card", card.getId().toString(),
-                "Активация карты", null);
+                AuditDetails.message("Активация карты"), null);
 
         return cardMapper.toResponse(card);
     }
@@ -221,23 +265,46 @@ public class CardService {
                 .orElseThrow(() -> new RuntimeException("Карта не найдена"));
 
         String maskedNumber = cardMaskUtil.maskCardNumber(card.getCardNumber());
+        UUID ownerId = card.getOwner().getId();
+        // Переводы удаляются заранее, чтобы их сумма перешла в начальный баланс карт-контрагентов
+        DeletedTransactionsView removed = transactionRepository.deleteChunkByCardIds(List.of(cardId), Integer.MAX_VALUE);
+        statisticsService.transactionsDeleted(removed.getSuccessful(), removed.getFailed(), removed.getAmount());
         cardRepository.delete(card);
+        userRepository.adjustCardsCount(ownerId, -1);
+        statisticsService.cardDeleted(card.getStatus(), card.getBalance());
+        cardSummaryService.cardDeleted(ownerId, card.getStatus(), card.getBalance());
         
         log.info("Карта {} успешно удалена", maskedNumber);
 
         auditService.logAction(currentUser, AuditAction.DELETE, "Card", cardId.toString(),
-                "Удаление карты: " + maskedNumber, null);
+                AuditDetails.message("Удаление карты")
+                        .with(AuditDetailKey.CARD_MASK, maskedNumber), null);
     }
 
     /**
      * Получение всех карт с фильтрацией (для ADMIN)
      */
     @Transactional(readOnly = true)
-    public Page<CardResponse> getAllCards(CardStatus status, UUID ownerId, Pageable pageable) {
-        log.debug("Получение всех карт с фильтрами");
+    public SliceResponse<CardResponse> getAllCards(CardStatus status, UUID ownerId, Pageable pageable,
+                                                   CountMode countMode) {
+        log.debug("Получение всех карт с фильтрами ({})", countMode);
+
+        Specification<Card> specification = CardSpecifications.withFilters(status, ownerId);
+        if (countMode == CountMode.EXACT) {
+            // Подсчет выполняется параллельно с выборкой страницы; при ошибке подсчета total не заполняется
+            try (QueryFanOut.Scope scope = queryFanOut.open()) {
+                QueryFanOut.Field<Long> total = scope.fork("total", () -> cardRepository.count(specification));
+                Slice<CardResponse> cards = sliceQueryExecutor.findSlice(Card.class, specification, pageable)
+                        .map(cardMapper::toResponse);
+                scope.join();
+                return SliceResponse.of(cards, total.get(), false);
+            }
+        }
 
-        return cardRepository.findAllWithFilters(status, ownerId, pageable)
+        Slice<CardResponse> cards = sliceQueryExecutor.findSlice(Card.class, specification, pageable)
                 .map(cardMapper::toResponse);
+        Long total = countMode == CountMode.ESTIMATED ? rowCountEstimator.estimateCards(status, ownerId) : null;
+        return SliceResponse.of(cards, total, true);
     }
 
     /**
@@ -250,8 +317,11 @@ public class CardService {
         List<Card> expiredCards = cardRepository.findExpiredCards(LocalDate.now());
         
         for (Card card : expiredCards) {
+            CardStatus previousStatus = card.getStatus();
             card.setStatus(CardStatus.EXPIRED);
             cardRepository.save(card);
+            statisticsService.cardStatusChanged(previousStatus, CardStatus.EXPIRED);
+            cardSummaryService.cardStatusChanged(card.getOwner().getId(), previousStatus, CardStatus.EXPIRED);
             log.debug("Карта {} помечена как истекшая", card.getId());
         }
 
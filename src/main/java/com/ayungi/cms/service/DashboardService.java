@@ -0,0 +1,251 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.audit.AuditPipeline;
+import com.ayungi.cms.dto.response.DashboardSnapshot;
+import com.ayungi.cms.dto.response.StatisticsResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Живая панель администратора через Server-Sent Events.
+ * <p>
+ * Один общий агрегатор раз в интервал строит снимок (счетчики {@link StatisticsService} и очередь
+ * конвейера аудита — O(1)), вычисляет изменившиеся поля и один раз сериализует их в JSON;
+ * подписчикам рассылается готовая строка, поэтому стоимость расчета не зависит от числа зрителей.
+ * У каждого подписчика ограниченный буфер и свой виртуальный поток отправки: медленный клиент
+ * не задерживает остальных, а при переполнении его буфер заменяется полным снимком.
+ */
+@Service
+@Slf4j
+public class DashboardService {
+
+    private static final String SNAPSHOT_EVENT = "snapshot";
+    private static final String DELTA_EVENT = "delta";
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() { };
+
+    private final StatisticsService statisticsService;
+    private final AuditPipeline auditPipeline;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final long emitterTimeoutMs;
+    private final int bufferSize;
+    private final long keepAliveNanos;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final LongAdder overflows = new LongAdder();
+
+    private volatile Message snapshot;
+    private Map<String, Object> lastValues = Map.of();
+    private long lastSuccessful = -1;
+    private long lastFailed;
+    private long lastTickNanos;
+    private long lastSendNanos;
+
+    public DashboardService(
+            StatisticsService statisticsService,
+            AuditPipeline auditPipeline,
+            ObjectMapper objectMapper,
+            @Value("${dashboard.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+            @Value("${dashboard.buffer-size:16}") int bufferSize,
+            @Value("${dashboard.keep-alive-seconds:15}") long keepAliveSeconds) {
+        this.statisticsService = statisticsService;
+        this.auditPipeline = auditPipeline;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.bufferSize = bufferSize;
+        this.keepAliveNanos = TimeUnit.SECONDS.toNanos(keepAliveSeconds);
+    }
+
+    /**
+     * Подписка: сразу отправляется полный снимок, далее — только изменившиеся поля
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        Message current = snapshot;
+        if (current != null) {
+            subscriber.queue.offer(current);
+        }
+        subscribers.add(subscriber);
+        subscriber.start();
+        log.debug("Новый подписчик панели, всего: {}", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Расчет снимка и рассылка изменений (один раз на всех подписчиков)
+     */
+    @Scheduled(fixedRateString = "${dashboard.interval-ms:2000}")
+    public synchronized void tick() {
+        long now = System.nanoTime();
+        Map<String, Object> values = objectMapper.convertValue(buildSnapshot(now), MAP_TYPE);
+
+        Map<String, Object> changed = new LinkedHashMap<>();
+        values.forEach((field, value) -> {
+            if (!Objects.equals(lastValues.get(field), value)) {
+                changed.put(field, value);
+            }
+        });
+        lastValues = values;
+        snapshot = new Message(SNAPSHOT_EVENT, serialize(values));
+
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        // timestamp меняется всегда: без других изменений шлется только keep-alive
+        Message message;
+        if (changed.size() > 1) {
+            message = new Message(DELTA_EVENT, serialize(changed));
+        } else if (now - lastSendNanos >= keepAliveNanos) {
+            message = Message.KEEP_ALIVE;
+        } else {
+            return;
+        }
+        lastSendNanos = now;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(message);
+        }
+    }
+
+    /**
+     * Количество подписчиков
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private DashboardSnapshot buildSnapshot(long now) {
+        StatisticsResponse statistics = statisticsService.getStatistics();
+        long successful = statistics.getSuccessfulTransactions();
+        long failed = statistics.getFailedTransactions();
+
+        double transfersPerSecond = 0;
+        double failureRate = 0;
+        if (lastSuccessful >= 0) {
+            // Сверка статистики может скорректировать счетчики вниз — отрицательные приросты не учитываются
+            long successDelta = Math.max(0, successful - lastSuccessful);
+            long failedDelta = Math.max(0, failed - lastFailed);
+            double seconds = Math.max(1e-3, (now - lastTickNanos) / 1e9);
+            transfersPerSecond = Math.round((successDelta + failedDelta) / seconds * 100) / 100.0;
+            failureRate = successDelta + failedDelta == 0 ? 0
+                    : Math.round((double) failedDelta / (successDelta + failedDelta) * 10_000) / 10_000.0;
+        }
+        lastSuccessful = successful;
+        lastFailed = failed;
+        lastTickNanos = now;
+
+        return DashboardSnapshot.builder()
+                .timestamp(LocalDateTime.now())
+                .transfersPerSecond(transfersPerSecond)
+                .failureRate(failureRate)
+                .activeCards(statistics.getActiveCards())
+                .totalTransactions(statistics.getTotalTransactions())
+                .auditQueueDepth(auditPipeline.getStats().queued())
+                .build();
+    }
+
+    private String serialize(Map<String, Object> values) {
+        try {
+            return writer.writeValueAsString(values);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать снимок панели", e);
+        }
+    }
+
+    private record Message(String event, String data) {
+
+        static final Message KEEP_ALIVE = new Message(null, null);
+    }
+
+    /**
+     * Подписчик: ограниченный буфер сообщений и виртуальный поток отправки
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Message> queue;
+        private volatile Thread sender;
+
+        Subscriber(SseEmitter emitter, BlockingQueue<Message> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        void start() {
+            sender = Thread.ofVirtual().name("dashboard-sse").start(this::sendLoop);
+        }
+
+        /**
+         * Постановка в буфер; при переполнении пропущенные изменения заменяются полным снимком
+         */
+        void offer(Message message) {
+            if (queue.offer(message)) {
+                return;
+            }
+            overflows.increment();
+            queue.clear();
+            Message current = snapshot;
+            queue.offer(current != null ? current : message);
+        }
+
+        void close() {
+            subscribers.remove(this);
+            Thread thread = sender;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        private void sendLoop() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Message message = queue.take();
+                    if (message == Message.KEEP_ALIVE) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else {
+                        emitter.send(SseEmitter.event().name(message.event()).data(message.data(), MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Подписчик панели отключен: {}", e.getMessage());
+                emitter.completeWithError(e);
+            } finally {
+                subscribers.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.ayungi.cms.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Параллельное выполнение независимых запросов на чтение (fan-out).
+ * <p>
+ * Каждый запрос выполняется в своем виртуальном потоке области {@link Scope}; у всех запросов
+ * области общий дедлайн, незавершенные к дедлайну отменяются, а при закрытии области потоки
+ * гарантированно прерываются (поведение StructuredTaskScope, который в Java 21 еще preview).
+ * Ошибка одного запроса не отменяет остальные и сообщается по имени поля.
+ * <p>
+ * Запросы выполняются вне транзакции вызывающего потока, каждый в своей транзакции на отдельном
+ * соединении. Прерывание потока не останавливает выполняющийся JDBC-запрос, поэтому транзакция
+ * начинается с {@code SET LOCAL statement_timeout} на остаток дедлайна: PostgreSQL сам отменяет
+ * запрос, и соединение возвращается в пул не позже дедлайна.
+ */
+@Component
+@Slf4j
+public class QueryFanOut {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration deadline;
+
+    public QueryFanOut(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${admin.fan-out.timeout-ms:5000}") long timeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Не readOnly: маршрутизация запросов та же, что и без транзакции (без перехода на реплику)
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deadline = Duration.ofMillis(timeoutMs);
+    }
+
+    /**
+     * Открытие области с дедлайном по умолчанию
+     */
+    public Scope open() {
+        return new Scope(this, System.nanoTime() + deadline.toNanos());
+    }
+
+    /**
+     * Выполнение запроса в транзакции с таймаутом выполнения на остаток дедлайна
+     */
+    private <T> T withStatementTimeout(Supplier<T> query, long deadlineNanos) {
+        return transactionTemplate.execute(status -> {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMillis <= 0) {
+                throw new QueryTimeoutException("Дедлайн истек до начала запроса");
+            }
+            jdbcTemplate.execute("SET LOCAL statement_timeout = " + remainingMillis);
+            return query.get();
+        });
+    }
+
+    /**
+     * Область параллельных запросов (закрывается через try-with-resources)
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final ExecutorService executor =
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fan-out-", 0).factory());
+        private final QueryFanOut fanOut;
+        private final long deadlineNanos;
+        private final List<Field<?>> fields = new ArrayList<>();
+
+        private Scope(QueryFanOut fanOut, long deadlineNanos) {
+            this.fanOut = fanOut;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Запуск запроса в отдельном виртуальном потоке
+         */
+        public <T> Field<T> fork(String name, Supplier<T> query) {
+            Field<T> field = new Field<>(name, executor.submit(() -> fanOut.withStatementTimeout(query, deadlineNanos)));
+            fields.add(field);
+            return field;
+        }
+
+        /**
+         * Ожидание всех запросов, но не дольше общего дедлайна
+         */
+        public Scope join() {
+            for (Field<?> field : fields) {
+                field.await(deadlineNanos);
+            }
+            return this;
+        }
+
+        /**
+         * Ошибки по полям (пусто, если все запросы выполнены)
+         */
+        public Map<String, String> errors() {
+            Map<String, String> errors = new LinkedHashMap<>();
+            for (Field<?> field : fields) {
+                if (field.error != null) {
+                    errors.put(field.name, field.error);
+                }
+            }
+            return errors;
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Результат одного запроса области
+     */
+    public static final class Field<T> {
+
+        private final String name;
+        private final Future<T> future;
+        private T value;
+        private String error;
+
+        private Field(String name, Future<T> future) {
+            this.name = name;
+            this.future = future;
+        }
+
+        /**
+         * Значение или null, если запрос завершился ошибкой (см. {@link Scope#errors()})
+         */
+        public T get() {
+            return value;
+        }
+
+        /**
+         * Значение; ошибка запроса пробрасывается
+         */
+        public T require() {
+            if (error != null) {
+                throw new IllegalStateException("Запрос " + name + " не выполнен: " + error);
+            }
+            return value;
+        }
+
+        private void await(long deadlineNanos) {
+            try {
+                value = future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                error = "превышено время ожидания";
+            } catch (ExecutionException e) {
+                error = e.getCause().getMessage();
+                log.warn("Ошибка параллельного запроса {}: {}", name, error);
+            } catch (CancellationException e) {
+                error = "запрос отменен";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                error = "запрос прерван";
+            }
+        }
+    }
+}
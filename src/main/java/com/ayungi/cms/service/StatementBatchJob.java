@@ -0,0 +1,423 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.dto.response.CardStatementResponse;
+import com.ayungi.cms.dto.response.TransactionResponse;
+import com.ayungi.cms.entity.enums.StatementJobStatus;
+import com.ayungi.cms.entity.enums.TransactionStatus;
+import com.ayungi.cms.repository.StatementJobRepository;
+import com.ayungi.cms.util.CardMaskUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Пакетная генерация месячных выписок.
+ * <p>
+ * Переводы месяца читаются одним forward-only курсором в порядке ID карты (каждый перевод —
+ * строка для карты-отправителя и для карты-получателя) и группируются в памяти по картам.
+ * Пакеты карт отрисовываются и сохраняются пулом потоков; число пакетов в работе ограничено,
+ * при заполнении читающий поток ждет, поэтому память ограничена. Курсор читается в транзакции
+ * на основном сервере (не на реплике), запись пакетов и контрольной точки идет в отдельных
+ * транзакциях потоков записи, а не в транзакции курсора. Контрольная точка — последняя карта
+ * непрерывного префикса сохраненных пакетов: перезапуск продолжает чтение после нее,
+ * повторно обработанные карты перезаписываются (upsert).
+ */
+@Component
+@Slf4j
+public class StatementBatchJob {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final String STREAM_SQL = """
+            SELECT card_id, id, timestamp, from_card_id, to_card_id, amount, status, failure_reason FROM (
+                SELECT t.from_card_id AS card_id, t.* FROM transactions t
+                WHERE t.timestamp >= ? AND t.timestamp < ? AND t.from_card_id > ?
+                UNION ALL
+                SELECT t.to_card_id AS card_id, t.* FROM transactions t
+                WHERE t.timestamp >= ? AND t.timestamp < ? AND t.to_card_id > ?
+            ) s ORDER BY card_id, timestamp, id""";
+
+    // Остаток на конец месяца = текущий баланс − успешные переводы после месяца (одним снимком)
+    private static final String CLOSING_BALANCES_SQL = """
+            SELECT c.id, c.card_number, c.balance - COALESCE(f.net, 0) AS closing_balance
+            FROM cards c LEFT JOIN (
+                SELECT card_id, SUM(amount) AS net FROM (
+                    SELECT to_card_id AS card_id, amount FROM transactions
+                    WHERE status = 'SUCCESS' AND timestamp >= ? AND to_card_id = ANY(?)
+                    UNION ALL
+                    SELECT from_card_id, -amount FROM transactions
+                    WHERE status = 'SUCCESS' AND timestamp >= ? AND from_card_id = ANY(?)
+                ) t GROUP BY card_id
+            ) f ON f.card_id = c.id
+            WHERE c.id = ANY(?)""";
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO card_statements (card_id, period, opening_balance, closing_balance, total_incoming,
+                                         total_outgoing, transaction_count, content, generated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?)
+            ON CONFLICT (card_id, period) DO UPDATE SET
+                opening_balance = EXCLUDED.opening_balance, closing_balance = EXCLUDED.closing_balance,
+                total_incoming = EXCLUDED.total_incoming, total_outgoing = EXCLUDED.total_outgoing,
+                transaction_count = EXCLUDED.transaction_count, content = EXCLUDED.content,
+                generated_at = EXCLUDED.generated_at""";
+
+    private static final UUID MIN_CARD_ID = new UUID(0L, 0L);
+
+    private final StatementJobRepository jobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final CardMaskUtil cardMaskUtil;
+    private final ObjectWriter writer;
+    private final int fetchSize;
+    private final int batchSize;
+    private final int parallelism;
+
+    public StatementBatchJob(
+            StatementJobRepository jobRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            PlatformTransactionManager transactionManager,
+            CardMaskUtil cardMaskUtil,
+            ObjectMapper objectMapper,
+            @Value("${statements.fetch-size:2000}") int fetchSize,
+            @Value("${statements.batch-size:500}") int batchSize,
+            @Value("${statements.parallelism:4}") int parallelism) {
+        this.jobRepository = jobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cardMaskUtil = cardMaskUtil;
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Генерация выписок за месяц с контрольной точки задания
+     */
+    @Async("taskExecutor")
+    public void execute(YearMonth period) {
+        UUID lastCardId = transactionTemplate.execute(status -> jobRepository.findById(period.atDay(1))
+                .map(job -> job.getLastCardId() != null ? job.getLastCardId() : MIN_CARD_ID)
+                .orElse(null));
+        if (lastCardId == null) {
+            return;
+        }
+
+        log.info("Генерация выписок за {} начата после карты {}", period, lastCardId);
+        long startNanos = System.nanoTime();
+        Checkpoint checkpoint = new Checkpoint(period);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        ThreadPoolExecutor workers = newWorkerPool();
+        Semaphore inFlight = new Semaphore(2 * parallelism);
+
+        try {
+            stream(period, lastCardId, batch -> {
+                RuntimeException error = failure.get();
+                if (error != null) {
+                    // Останавливаем курсор: продолжение — с контрольной точки
+                    throw error;
+                }
+                // Ждем свободного места: пакет никогда не выполняется в читающем потоке
+                acquire(inFlight);
+                int sequence = checkpoint.register(batch);
+                workers.execute(() -> {
+                    try {
+                        writeBatch(period, batch);
+                        checkpoint.complete(sequence);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
+            workers.shutdown();
+            awaitTermination(workers);
+
+            RuntimeException error = failure.get();
+            if (error != null) {
+                throw error;
+            }
+            finish(period, StatementJobStatus.COMPLETED, null);
+            log.info("Выписки за {} сформированы: {} карт за {} с", period, checkpoint.cards,
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos));
+        } catch (RuntimeException e) {
+            log.error("Ошибка генерации выписок за {}: {}", period, e.getMessage(), e);
+            finish(period, StatementJobStatus.FAILED, truncate(e.getMessage()));
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Чтение переводов месяца одним курсором и группировка по картам в пакеты
+     */
+    private void stream(YearMonth period, UUID afterCardId, BatchHandler handler) {
+        Timestamp from = Timestamp.valueOf(period.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(period.plusMonths(1).atDay(1).atStartOfDay());
+
+        PreparedStatementCreator statement = connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    STREAM_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            ps.setObject(3, afterCardId);
+            ps.setTimestamp(4, from);
+            ps.setTimestamp(5, to);
+            ps.setObject(6, afterCardId);
+            return ps;
+        };
+
+        List<CardActivity> batch = new ArrayList<>(batchSize);
+        CardActivity[] current = new CardActivity[1];
+        // Не readOnly: такая транзакция ушла бы на реплику, где курсор может быть отменен при репликации
+        transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.query(statement, rs -> {
+            UUID cardId = rs.getObject("card_id", UUID.class);
+            if (current[0] == null || !current[0].cardId.equals(cardId)) {
+                if (current[0] != null) {
+                    batch.add(current[0]);
+                    if (batch.size() >= batchSize) {
+                        handler.accept(List.copyOf(batch));
+                        batch.clear();
+                    }
+                }
+                current[0] = new CardActivity(cardId);
+            }
+            current[0].add(toEntry(rs));
+        }));
+
+        if (current[0] != null) {
+            batch.add(current[0]);
+        }
+        if (!batch.isEmpty()) {
+            handler.accept(List.copyOf(batch));
+        }
+    }
+
+    /**
+     * Отрисовка и сохранение выписок пакета карт (карты, удаленные после месяца, пропускаются)
+     */
+    private void writeBatch(YearMonth period, List<CardActivity> batch) {
+        UUID[] cardIds = batch.stream().map(activity -> activity.cardId).toArray(UUID[]::new);
+        Timestamp periodEnd = Timestamp.valueOf(period.plusMonths(1).atDay(1).atStartOfDay());
+        Map<UUID, CardSnapshot> cards = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(CLOSING_BALANCES_SQL);
+            Array ids = connection.createArrayOf("uuid", cardIds);
+            ps.setTimestamp(1, periodEnd);
+            ps.setArray(2, ids);
+            ps.setTimestamp(3, periodEnd);
+            ps.setArray(4, ids);
+            ps.setArray(5, ids);
+            return ps;
+        }, rs -> {
+            cards.put(rs.getObject("id", UUID.class),
+                    new CardSnapshot(rs.getString("card_number"), rs.getBigDecimal("closing_balance")));
+        });
+
+        LocalDateTime generatedAt = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (CardActivity activity : batch) {
+            CardSnapshot card = cards.get(activity.cardId);
+            if (card != null) {
+                rows.add(toRow(period, activity, card, generatedAt));
+            }
+        }
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, rows));
+    }
+
+    private Object[] toRow(YearMonth period, CardActivity activity, CardSnapshot card, LocalDateTime generatedAt) {
+        BigDecimal incoming = BigDecimal.ZERO;
+        BigDecimal outgoing = BigDecimal.ZERO;
+        for (TransactionResponse entry : activity.entries) {
+            if (entry.getStatus() != TransactionStatus.SUCCESS) {
+                continue;
+            }
+            if (activity.cardId.equals(entry.getFromCardId())) {
+                outgoing = outgoing.add(entry.getAmount());
+            } else {
+                incoming = incoming.add(entry.getAmount());
+            }
+        }
+        BigDecimal opening = card.closingBalance().subtract(incoming).add(outgoing);
+
+        CardStatementResponse statement = CardStatementResponse.builder()
+                .cardId(activity.cardId)
+                .cardMaskedNumber(cardMaskUtil.maskCardNumber(card.cardNumber()))
+                .period(period.toString())
+                .openingBalance(opening)
+                .closingBalance(card.closingBalance())
+                .totalIncoming(incoming)
+                .totalOutgoing(outgoing)
+                .transactionCount(activity.entries.size())
+                .transactions(activity.entries)
+                .generatedAt(generatedAt)
+                .build();
+
+        try {
+            return new Object[]{activity.cardId, period.atDay(1), opening, card.closingBalance(), incoming, outgoing,
+                    activity.entries.size(), writer.writeValueAsString(statement), Timestamp.valueOf(generatedAt)};
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать выписку карты " + activity.cardId, e);
+        }
+    }
+
+    private static TransactionResponse toEntry(ResultSet rs) throws SQLException {
+        return TransactionResponse.builder()
+                .id(rs.getObject("id", UUID.class))
+                .fromCardId(rs.getObject("from_card_id", UUID.class))
+                .toCardId(rs.getObject("to_card_id", UUID.class))
+                .amount(rs.getBigDecimal("amount"))
+                .status(TransactionStatus.valueOf(rs.getString("status")))
+                .failureReason(rs.getString("failure_reason"))
+                .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+                .build();
+    }
+
+    /**
+     * Пул отрисовки: размер очереди ограничивает {@code inFlight} в {@link #execute(YearMonth)}
+     */
+    private ThreadPoolExecutor newWorkerPool() {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "statement-writer-" + counter.incrementAndGet()));
+    }
+
+    private void acquire(Semaphore inFlight) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Генерация выписок прервана", e);
+        }
+    }
+
+    private void awaitTermination(ThreadPoolExecutor workers) {
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("Ожидание записи выписок: в очереди {}", workers.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Генерация выписок прервана", e);
+        }
+    }
+
+    private void finish(YearMonth period, StatementJobStatus status, String errorMessage) {
+        transactionTemplate.executeWithoutResult(tx -> jobRepository.findById(period.atDay(1)).ifPresent(job -> {
+            job.setStatus(status);
+            job.setErrorMessage(errorMessage);
+            job.setFinishedAt(LocalDateTime.now());
+        }));
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    @FunctionalInterface
+    private interface BatchHandler {
+        void accept(List<CardActivity> batch);
+    }
+
+    private record CardSnapshot(String cardNumber, BigDecimal closingBalance) {
+    }
+
+    /**
+     * Переводы одной карты за месяц
+     */
+    private static final class CardActivity {
+
+        private final UUID cardId;
+        private final List<TransactionResponse> entries = new ArrayList<>();
+
+        CardActivity(UUID cardId) {
+            this.cardId = cardId;
+        }
+
+        void add(TransactionResponse entry) {
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * Контрольная точка: пакеты завершаются в любом порядке, сохраняется непрерывный префикс
+     */
+    private final class Checkpoint {
+
+        private final YearMonth period;
+        private final TreeMap<Integer, List<CardActivity>> pending = new TreeMap<>();
+        private final Map<Integer, Boolean> completed = new HashMap<>();
+        private int nextSequence;
+        private int committedSequence;
+        private long cards;
+
+        Checkpoint(YearMonth period) {
+            this.period = period;
+        }
+
+        synchronized int register(List<CardActivity> batch) {
+            pending.put(nextSequence, batch);
+            return nextSequence++;
+        }
+
+        synchronized void complete(int sequence) {
+            completed.put(sequence, Boolean.TRUE);
+            UUID lastCardId = null;
+            long advanced = 0;
+            while (completed.remove(committedSequence) != null) {
+                List<CardActivity> batch = pending.remove(committedSequence);
+                lastCardId = batch.get(batch.size() - 1).cardId;
+                advanced += batch.size();
+                committedSequence++;
+            }
+            if (lastCardId != null) {
+                UUID checkpointCardId = lastCardId;
+                long checkpointCards = advanced;
+                writeTransaction.executeWithoutResult(status ->
+                        jobRepository.checkpoint(period.atDay(1), checkpointCardId, checkpointCards));
+                cards += advanced;
+            }
+        }
+    }
+}
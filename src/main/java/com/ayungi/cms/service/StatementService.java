@@ -0,0 +1,181 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.dto.response.StatementJobResponse;
+import com.ayungi.cms.entity.Card;
+import com.ayungi.cms.entity.StatementJob;
+import com.ayungi.cms.entity.User;
+import com.ayungi.cms.entity.enums.StatementJobStatus;
+import com.ayungi.cms.exception.BusinessException;
+import com.ayungi.cms.exception.ResourceNotFoundException;
+import com.ayungi.cms.repository.CardRepository;
+import com.ayungi.cms.repository.StatementJobRepository;
+import com.ayungi.cms.security.RoleRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сервис месячных выписок по картам.
+ * <p>
+ * Выписки формируются только за закрытые месяцы и только для карт с переводами в этом месяце.
+ * На месяц одно задание (statement_jobs): завершенное запускается заново с начала,
+ * упавшее или прерванное (без прогресса дольше stale-after-minutes) — продолжается
+ * с контрольной точки. Саму генерацию выполняет {@link StatementBatchJob}.
+ */
+@Service
+@Slf4j
+public class StatementService {
+
+    private static final String CONTENT_SQL =
+            "SELECT content FROM card_statements WHERE card_id = ? AND period = ?";
+
+    private final StatementJobRepository jobRepository;
+    private final StatementBatchJob batchJob;
+    private final CardRepository cardRepository;
+    private final RoleRegistry roleRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long staleAfterMinutes;
+
+    public StatementService(
+            StatementJobRepository jobRepository,
+            StatementBatchJob batchJob,
+            CardRepository cardRepository,
+            RoleRegistry roleRegistry,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${statements.stale-after-minutes:30}") long staleAfterMinutes) {
+        this.jobRepository = jobRepository;
+        this.batchJob = batchJob;
+        this.cardRepository = cardRepository;
+        this.roleRegistry = roleRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.staleAfterMinutes = staleAfterMinutes;
+    }
+
+    /**
+     * Запуск (или продолжение) генерации выписок администратором
+     */
+    public StatementJobResponse start(YearMonth period, User currentUser) {
+        if (!period.isBefore(YearMonth.now())) {
+            throw BusinessException.statementPeriodNotClosed();
+        }
+        StatementJob job = claim(period, currentUser.getId(), true);
+        batchJob.execute(period);
+        return toResponse(job);
+    }
+
+    /**
+     * Генерация выписок за прошлый месяц по расписанию (завершенные и выполняющиеся задания пропускаются)
+     */
+    @Scheduled(cron = "${statements.cron:0 0 2 * * *}")
+    public void scheduledRun() {
+        YearMonth period = YearMonth.now().minusMonths(1);
+        try {
+            if (claim(period, null, false) != null) {
+                batchJob.execute(period);
+            }
+        } catch (BusinessException e) {
+            log.info("Плановая генерация выписок за {} пропущена: {}", period, e.getMessage());
+        }
+    }
+
+    /**
+     * Состояние генерации выписок за месяц
+     */
+    @Transactional(readOnly = true)
+    public StatementJobResponse getJob(YearMonth period) {
+        return jobRepository.findById(period.atDay(1))
+                .map(this::toResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Генерация выписок", "period", period));
+    }
+
+    /**
+     * Выписка карты за месяц (JSON хранится готовым и отдается без преобразования)
+     */
+    @Transactional(readOnly = true)
+    public String getStatement(UUID cardId, YearMonth period, User currentUser) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new RuntimeException("Карта не найдена"));
+
+        // Проверка прав доступа
+        if (!card.getOwner().getId().equals(currentUser.getId()) &&
+            !roleRegistry.isAdmin(currentUser)) {
+            throw new RuntimeException("Недостаточно прав для просмотра выписки");
+        }
+
+        List<String> content = jdbcTemplate.queryForList(CONTENT_SQL, String.class, cardId, period.atDay(1));
+        if (content.isEmpty()) {
+            throw new ResourceNotFoundException("Выписка", "period", period);
+        }
+        return content.get(0);
+    }
+
+    /**
+     * Захват задания месяца под блокировкой строки (фиксируется до старта исполнителя)
+     *
+     * @param restartCompleted запускать ли заново завершенное задание
+     * @return задание или null, если завершенное задание не перезапускается
+     */
+    private StatementJob claim(YearMonth period, UUID requestedBy, boolean restartCompleted) {
+        try {
+            return transactionTemplate.execute(status -> {
+                StatementJob job = jobRepository.findForUpdate(period.atDay(1)).orElse(null);
+                if (job == null) {
+                    return jobRepository.saveAndFlush(StatementJob.builder()
+                            .period(period.atDay(1))
+                            .requestedBy(requestedBy)
+                            .build());
+                }
+
+                LocalDateTime lastProgress = job.getUpdatedAt() != null ? job.getUpdatedAt() : job.getCreatedAt();
+                if (job.getStatus() == StatementJobStatus.RUNNING &&
+                    lastProgress.isAfter(LocalDateTime.now().minusMinutes(staleAfterMinutes))) {
+                    throw BusinessException.statementJobInProgress();
+                }
+                if (job.getStatus() == StatementJobStatus.COMPLETED) {
+                    if (!restartCompleted) {
+                        return null;
+                    }
+                    job.setLastCardId(null);
+                    job.setCardsDone(0L);
+                } else if (job.getStatus() == StatementJobStatus.RUNNING) {
+                    log.warn("Прерванная генерация выписок за {} продолжена с карты {}", period, job.getLastCardId());
+                }
+
+                job.setStatus(StatementJobStatus.RUNNING);
+                job.setRequestedBy(requestedBy);
+                job.setErrorMessage(null);
+                job.setFinishedAt(null);
+                return jobRepository.saveAndFlush(job);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Другой экземпляр создал задание одновременно
+            throw BusinessException.statementJobInProgress();
+        }
+    }
+
+    private StatementJobResponse toResponse(StatementJob job) {
+        return StatementJobResponse.builder()
+                .period(YearMonth.from(job.getPeriod()).toString())
+                .status(job.getStatus())
+                .lastCardId(job.getLastCardId())
+                .cardsDone(job.getCardsDone())
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
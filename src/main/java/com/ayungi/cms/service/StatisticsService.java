@@ -0,0 +1,386 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.dto.response.StatisticsResponse;
+import com.ayungi.cms.entity.enums.CardStatus;
+import com.ayungi.cms.entity.enums.SystemStatistic;
+import com.ayungi.cms.entity.enums.TransactionStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Системная статистика, поддерживаемая инкрементально.
+ * <p>
+ * Сервисы сообщают об изменениях карт и переводов; дельты применяются к LongAdder после фиксации
+ * транзакции, поэтому чтение статистики — O(1) без запросов к БД. Значения периодически
+ * сохраняются в system_statistics (быстрый старт) и сверяются с агрегатами SQL: расхождение
+ * (другие узлы, массовое удаление, сбои) добавляется к счетчикам, не теряя параллельных дельт.
+ * <p>
+ * Транзакция с дельтой держит блокировку чтения {@code commitLock} от beforeCommit до afterCompletion,
+ * сверка берет блокировку записи на время фиксации снимка БД и снимка счетчиков: каждая
+ * зафиксированная транзакция попадает либо в оба снимка, либо ни в один.
+ */
+@Service
+@Slf4j
+public class StatisticsService {
+
+    private static final int MONEY_SCALE = 2;
+    private static final SystemStatistic[] STATISTICS = SystemStatistic.values();
+
+    private static final String LOAD_SQL = "SELECT name, value FROM system_statistics";
+
+    private static final String CHECKPOINT_SQL =
+            "INSERT INTO system_statistics (name, value, updated_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (name) DO UPDATE SET value = EXCLUDED.value, updated_at = EXCLUDED.updated_at";
+
+    private static final String USERS_SQL = "SELECT count(*) AS users FROM users";
+
+    private static final String CARDS_SQL = """
+            SELECT count(*) AS cards,
+                   count(*) FILTER (WHERE status = 'ACTIVE') AS active_cards,
+                   count(*) FILTER (WHERE status = 'BLOCKED') AS blocked_cards,
+                   count(*) FILTER (WHERE status = 'EXPIRED') AS expired_cards,
+                   COALESCE(sum(balance), 0) AS total_balance
+            FROM cards""";
+
+    private static final String TRANSACTIONS_SQL = """
+            SELECT count(*) AS transactions,
+                   count(*) FILTER (WHERE status = 'SUCCESS') AS successful_transactions,
+                   count(*) FILTER (WHERE status = 'FAILED') AS failed_transactions,
+                   COALESCE(sum(amount) FILTER (WHERE status = 'SUCCESS'), 0) AS transaction_amount
+            FROM transactions""";
+
+    // Для сверки — один запрос, т.е. один снимок БД для всех показателей
+    private static final String AGGREGATE_SQL =
+            "SELECT u.*, c.*, t.* FROM (" + USERS_SQL + ") u, (" + CARDS_SQL + ") c, (" + TRANSACTIONS_SQL + ") t";
+
+    // Первый запрос транзакции REPEATABLE READ фиксирует ее снимок
+    private static final String SNAPSHOT_SQL = "SELECT 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryFanOut queryFanOut;
+    private final TransactionTemplate snapshotTransaction;
+    private final LongAdder[] values = new LongAdder[STATISTICS.length];
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    public StatisticsService(
+            JdbcTemplate jdbcTemplate,
+            QueryFanOut queryFanOut,
+            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryFanOut = queryFanOut;
+        // Не readOnly: снимок должен браться на основном сервере, а не на реплике
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        Arrays.setAll(values, i -> new LongAdder());
+    }
+
+    /**
+     * Загрузка сохраненных значений при старте; без сохраненных значений — полная сверка
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<SystemStatistic, Long> saved = new EnumMap<>(SystemStatistic.class);
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            saved.put(SystemStatistic.valueOf(rs.getString("name")), rs.getLong("value"));
+        });
+
+        if (saved.size() < STATISTICS.length) {
+            reconcile();
+            return;
+        }
+        saved.forEach((statistic, value) -> values[statistic.ordinal()].add(value));
+        log.info("Статистика загружена из контрольной точки");
+    }
+
+    /**
+     * Текущая статистика (без обращения к БД)
+     */
+    public StatisticsResponse getStatistics() {
+        return StatisticsResponse.builder()
+                .totalUsers(get(SystemStatistic.USERS))
+                .totalCards(get(SystemStatistic.CARDS))
+                .activeCards(get(SystemStatistic.ACTIVE_CARDS))
+                .blockedCards(get(SystemStatistic.BLOCKED_CARDS))
+                .expiredCards(get(SystemStatistic.EXPIRED_CARDS))
+                .totalTransactions(get(SystemStatistic.TRANSACTIONS))
+                .successfulTransactions(get(SystemStatistic.SUCCESSFUL_TRANSACTIONS))
+                .failedTransactions(get(SystemStatistic.FAILED_TRANSACTIONS))
+                .totalBalance(BigDecimal.valueOf(get(SystemStatistic.TOTAL_BALANCE), MONEY_SCALE))
+                .totalTransactionAmount(BigDecimal.valueOf(get(SystemStatistic.TRANSACTION_AMOUNT), MONEY_SCALE))
+                .build();
+    }
+
+    /**
+     * Точная статистика по агрегатам SQL: независимые запросы выполняются параллельно,
+     * время ответа — время самого медленного из них. Ошибка запроса оставляет его поля пустыми
+     * и попадает в errors
+     */
+    public StatisticsResponse getExactStatistics() {
+        try (QueryFanOut.Scope scope = queryFanOut.open()) {
+            QueryFanOut.Field<Map<String, Object>> users = scope.fork("users", () -> jdbcTemplate.queryForMap(USERS_SQL));
+            QueryFanOut.Field<Map<String, Object>> cards = scope.fork("cards", () -> jdbcTemplate.queryForMap(CARDS_SQL));
+            QueryFanOut.Field<Map<String, Object>> transactions =
+                    scope.fork("transactions", () -> jdbcTemplate.queryForMap(TRANSACTIONS_SQL));
+            Map<String, String> errors = scope.join().errors();
+
+            return StatisticsResponse.builder()
+                    .totalUsers(count(users.get(), "users"))
+                    .totalCards(count(cards.get(), "cards"))
+                    .activeCards(count(cards.get(), "active_cards"))
+                    .blockedCards(count(cards.get(), "blocked_cards"))
+                    .expiredCards(count(cards.get(), "expired_cards"))
+                    .totalTransactions(count(transactions.get(), "transactions"))
+                    .successfulTransactions(count(transactions.get(), "successful_transactions"))
+                    .failedTransactions(count(transactions.get(), "failed_transactions"))
+                    .totalBalance(amount(cards.get(), "total_balance"))
+                    .totalTransactionAmount(amount(transactions.get(), "transaction_amount"))
+                    .errors(errors.isEmpty() ? null : errors)
+                    .build();
+        }
+    }
+
+    public void userCreated() {
+        apply(new Delta().add(SystemStatistic.USERS, 1));
+    }
+
+    public void cardCreated(CardStatus status, BigDecimal balance) {
+        apply(new Delta()
+                .add(SystemStatistic.CARDS, 1)
+                .add(statusStatistic(status), 1)
+                .add(SystemStatistic.TOTAL_BALANCE, toMinorUnits(balance)));
+    }
+
+    public void cardStatusChanged(CardStatus from, CardStatus to) {
+        if (from == to) {
+            return;
+        }
+        apply(new Delta()
+                .add(statusStatistic(from), -1)
+                .add(statusStatistic(to), 1));
+    }
+
+    public void cardDeleted(CardStatus status, BigDecimal balance) {
+        apply(new Delta()
+                .add(SystemStatistic.CARDS, -1)
+                .add(statusStatistic(status), -1)
+                .add(SystemStatistic.TOTAL_BALANCE, -toMinorUnits(balance)));
+    }
+
+    public void userDeleted() {
+        apply(new Delta().add(SystemStatistic.USERS, -1));
+    }
+
+    /**
+     * Массовое удаление карт (итоги по статусам и балансу из RETURNING удаления)
+     */
+    public void cardsDeleted(long active, long blocked, long expired, BigDecimal balance) {
+        apply(new Delta()
+                .add(SystemStatistic.CARDS, -(active + blocked + expired))
+                .add(SystemStatistic.ACTIVE_CARDS, -active)
+                .add(SystemStatistic.BLOCKED_CARDS, -blocked)
+                .add(SystemStatistic.EXPIRED_CARDS, -expired)
+                .add(SystemStatistic.TOTAL_BALANCE, -toMinorUnits(balance)));
+    }
+
+    /**
+     * Массовое удаление переводов (amount — сумма удаленных успешных переводов)
+     */
+    public void transactionsDeleted(long successful, long failed, BigDecimal amount) {
+        apply(new Delta()
+                .add(SystemStatistic.TRANSACTIONS, -(successful + failed))
+                .add(SystemStatistic.SUCCESSFUL_TRANSACTIONS, -successful)
+                .add(SystemStatistic.FAILED_TRANSACTIONS, -failed)
+                .add(SystemStatistic.TRANSACTION_AMOUNT, -toMinorUnits(amount)));
+    }
+
+    /**
+     * Записанный перевод (переводы между картами не меняют суммарный баланс)
+     */
+    public void transactionRecorded(TransactionStatus status, BigDecimal amount) {
+        Delta delta = new Delta().add(SystemStatistic.TRANSACTIONS, 1);
+        if (status == TransactionStatus.SUCCESS) {
+            delta.add(SystemStatistic.SUCCESSFUL_TRANSACTIONS, 1)
+                    .add(SystemStatistic.TRANSACTION_AMOUNT, toMinorUnits(amount));
+        } else if (status == TransactionStatus.FAILED) {
+            delta.add(SystemStatistic.FAILED_TRANSACTIONS, 1);
+        }
+        apply(delta);
+    }
+
+    /**
+     * Сверка с агрегатами SQL: к каждому счетчику добавляется (значение в снимке БД − значение
+     * счетчика в момент снимка). Дельты, примененные после снимка, сохраняются
+     */
+    @Scheduled(cron = "${statistics.reconcile-cron:0 */10 * * * *}")
+    public void reconcile() {
+        long[][] before = new long[1][];
+        try {
+            long[] actual = snapshotTransaction.execute(status -> {
+                // Ждем дельты фиксируемых транзакций и не даем новым фиксироваться до снимка БД
+                commitLock.writeLock().lock();
+                try {
+                    jdbcTemplate.queryForObject(SNAPSHOT_SQL, Integer.class);
+                    before[0] = snapshot();
+                } finally {
+                    commitLock.writeLock().unlock();
+                }
+                return jdbcTemplate.queryForObject(AGGREGATE_SQL, (rs, rowNum) -> {
+                    long[] row = new long[STATISTICS.length];
+                    for (SystemStatistic statistic : STATISTICS) {
+                        row[statistic.ordinal()] = isMoney(statistic)
+                                ? toMinorUnits(rs.getBigDecimal(statistic.name()))
+                                : rs.getLong(statistic.name());
+                    }
+                    return row;
+                });
+            });
+
+            int drifted = 0;
+            for (int i = 0; i < values.length; i++) {
+                long drift = actual[i] - before[0][i];
+                if (drift != 0) {
+                    values[i].add(drift);
+                    drifted++;
+                    log.debug("Расхождение статистики {}: {}", STATISTICS[i], drift);
+                }
+            }
+            log.info("Сверка статистики завершена, скорректировано показателей: {}", drifted);
+            checkpoint();
+        } catch (RuntimeException e) {
+            log.error("Ошибка сверки статистики: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Сохранение текущих значений в контрольную точку
+     */
+    @Scheduled(fixedDelayString = "${statistics.checkpoint-interval-ms:60000}",
+            initialDelayString = "${statistics.checkpoint-interval-ms:60000}")
+    @PreDestroy
+    public void checkpoint() {
+        long[] current = snapshot();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.batchUpdate(CHECKPOINT_SQL, Arrays.asList(STATISTICS), STATISTICS.length,
+                    (ps, statistic) -> {
+                        ps.setString(1, statistic.name());
+                        ps.setLong(2, current[statistic.ordinal()]);
+                        ps.setTimestamp(3, now);
+                    });
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сохранить контрольную точку статистики: {}", e.getMessage());
+        }
+    }
+
+    private static Long count(Map<String, Object> row, String column) {
+        return row != null ? ((Number) row.get(column)).longValue() : null;
+    }
+
+    private static BigDecimal amount(Map<String, Object> row, String column) {
+        return row != null ? ((BigDecimal) row.get(column)).setScale(MONEY_SCALE, RoundingMode.HALF_UP) : null;
+    }
+
+    private long get(SystemStatistic statistic) {
+        return values[statistic.ordinal()].sum();
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            snapshot[i] = values[i].sum();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Применение дельты после фиксации текущей транзакции (без транзакции — сразу).
+     * От начала фиксации до применения дельты транзакция держит блокировку чтения {@code commitLock}
+     */
+    private void apply(Delta delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                private boolean locked;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    commitLock.readLock().lock();
+                    locked = true;
+                }
+
+                @Override
+                public void afterCommit() {
+                    delta.applyTo(values);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (locked) {
+                        locked = false;
+                        commitLock.readLock().unlock();
+                    }
+                }
+            });
+        } else {
+            delta.applyTo(values);
+        }
+    }
+
+    private static SystemStatistic statusStatistic(CardStatus status) {
+        return switch (status) {
+            case ACTIVE -> SystemStatistic.ACTIVE_CARDS;
+            case BLOCKED -> SystemStatistic.BLOCKED_CARDS;
+            case EXPIRED -> SystemStatistic.EXPIRED_CARDS;
+        };
+    }
+
+    private static boolean isMoney(SystemStatistic statistic) {
+        return statistic == SystemStatistic.TOTAL_BALANCE || statistic == SystemStatistic.TRANSACTION_AMOUNT;
+    }
+
+    private static long toMinorUnits(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(MONEY_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Изменения нескольких показателей одной операции
+     */
+    private static final class Delta {
+
+        private final long[] changes = new long[STATISTICS.length];
+
+        Delta add(SystemStatistic statistic, long value) {
+            changes[statistic.ordinal()] += value;
+            return this;
+        }
+
+        void applyTo(LongAdder[] values) {
+            for (int i = 0; i < changes.length; i++) {
+                if (changes[i] != 0) {
+                    values[i].add(changes[i]);
+                }
+            }
+        }
+    }
+}
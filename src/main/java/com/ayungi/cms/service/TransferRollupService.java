@@ -0,0 +1,226 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.dto.response.TransferTimeseriesPoint;
+import com.ayungi.cms.entity.enums.RollupGranularity;
+import com.ayungi.cms.entity.enums.TransactionStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Почасовые и суточные агрегаты переводов (количество и сумма по статусам).
+ * <p>
+ * Агрегаты наращиваются инкрементально от отметки processed_until в rollup_watermarks:
+ * каждый проход добавляет к корзинам переводы из окна [отметка, now − lag) и сдвигает отметку
+ * в той же транзакции (строка отметки блокируется, поэтому узлы не обрабатывают окно дважды).
+ * Лаг дает зафиксироваться переводам, время которых уже назначено. Временной ряд читается из
+ * агрегатов, а хвост после отметки параллельно досчитывается по transactions (узкий диапазон по индексу).
+ */
+@Service
+@Slf4j
+public class TransferRollupService {
+
+    private static final String WATERMARK = "transfers";
+
+    private static final String LOCK_WATERMARK_SQL =
+            "SELECT processed_until FROM rollup_watermarks WHERE name = ? FOR UPDATE";
+
+    private static final String READ_WATERMARK_SQL =
+            "SELECT processed_until FROM rollup_watermarks WHERE name = ?";
+
+    private static final String UPDATE_WATERMARK_SQL =
+            "UPDATE rollup_watermarks SET processed_until = ? WHERE name = ?";
+
+    private static final String ROLLUP_SQL = """
+            INSERT INTO %1$s (bucket_start, status, tx_count, amount_sum)
+            SELECT date_trunc('%2$s', timestamp), status, count(*), sum(amount)
+            FROM transactions
+            WHERE timestamp >= ? AND timestamp < ?
+            GROUP BY 1, 2
+            ON CONFLICT (bucket_start, status) DO UPDATE
+            SET tx_count = %1$s.tx_count + EXCLUDED.tx_count,
+                amount_sum = %1$s.amount_sum + EXCLUDED.amount_sum""";
+
+    private static final String SERIES_SQL =
+            "SELECT bucket_start, status, tx_count, amount_sum FROM %s " +
+            "WHERE bucket_start >= ? AND bucket_start < ?";
+
+    private static final String TAIL_SQL = """
+            SELECT date_trunc('%s', timestamp) AS bucket_start, status,
+                   count(*) AS tx_count, sum(amount) AS amount_sum
+            FROM transactions
+            WHERE timestamp >= ? AND timestamp < ?
+            GROUP BY 1, 2""";
+
+    private static final RowMapper<RollupRow> ROW_MAPPER = (rs, rowNum) -> new RollupRow(
+            rs.getTimestamp("bucket_start").toLocalDateTime(),
+            TransactionStatus.valueOf(rs.getString("status")),
+            rs.getLong("tx_count"),
+            rs.getBigDecimal("amount_sum"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final QueryFanOut queryFanOut;
+    private final Duration lag;
+    private final Duration maxWindow;
+    private final int maxWindowsPerRun;
+
+    public TransferRollupService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            QueryFanOut queryFanOut,
+            @Value("${rollup.transfers.lag-seconds:60}") long lagSeconds,
+            @Value("${rollup.transfers.max-window-hours:24}") long maxWindowHours,
+            @Value("${rollup.transfers.max-windows-per-run:30}") int maxWindowsPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.queryFanOut = queryFanOut;
+        this.lag = Duration.ofSeconds(lagSeconds);
+        this.maxWindow = Duration.ofHours(maxWindowHours);
+        this.maxWindowsPerRun = maxWindowsPerRun;
+    }
+
+    /**
+     * Наращивание агрегатов до now − lag (первичное заполнение идет окнами по max-window-hours)
+     */
+    @Scheduled(fixedDelayString = "${rollup.transfers.interval-ms:60000}")
+    public void rollup() {
+        try {
+            for (int i = 0; i < maxWindowsPerRun; i++) {
+                Boolean caughtUp = transactionTemplate.execute(status -> rollupWindow());
+                if (Boolean.TRUE.equals(caughtUp)) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка агрегации переводов: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Временной ряд переводов за период (по умолчанию — последние 7 суток почасово или год посуточно)
+     */
+    public List<TransferTimeseriesPoint> getTimeseries(RollupGranularity granularity,
+                                                       LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = truncate(granularity, from != null ? from
+                : end.minus(granularity == RollupGranularity.HOUR ? Duration.ofDays(7) : Duration.ofDays(365)));
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца");
+        }
+        if (Duration.between(start, end).compareTo(granularity.maxRange()) > 0) {
+            throw new IllegalArgumentException("Период для гранулярности " + granularity
+                    + " не должен превышать " + granularity.maxRange().toDays() + " дней");
+        }
+
+        // Агрегаты и хвост после отметки читаются параллельно
+        List<RollupRow> rollupRows;
+        List<RollupRow> tailRows;
+        try (QueryFanOut.Scope scope = queryFanOut.open()) {
+            QueryFanOut.Field<List<RollupRow>> rollup = scope.fork("rollup", () -> jdbcTemplate.query(
+                    SERIES_SQL.formatted(granularity.table()), ROW_MAPPER,
+                    Timestamp.valueOf(start), Timestamp.valueOf(end)));
+            QueryFanOut.Field<List<RollupRow>> tail = scope.fork("tail", () -> readTail(granularity, start, end));
+            scope.join();
+            rollupRows = rollup.require();
+            tailRows = tail.require();
+        }
+
+        Map<LocalDateTime, Bucket> buckets = new TreeMap<>();
+        rollupRows.forEach(row -> buckets.computeIfAbsent(row.bucketStart(), key -> new Bucket()).add(row));
+        tailRows.forEach(row -> buckets.computeIfAbsent(row.bucketStart(), key -> new Bucket()).add(row));
+
+        List<TransferTimeseriesPoint> points = new ArrayList<>(buckets.size());
+        buckets.forEach((bucketStart, bucket) -> points.add(bucket.toPoint(bucketStart)));
+        return points;
+    }
+
+    /**
+     * Переводы после отметки, еще не попавшие в агрегаты
+     */
+    private List<RollupRow> readTail(RollupGranularity granularity, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime watermark = jdbcTemplate.query(READ_WATERMARK_SQL,
+                rs -> rs.next() ? rs.getTimestamp(1).toLocalDateTime() : start, WATERMARK);
+        if (!watermark.isBefore(end)) {
+            return List.of();
+        }
+        LocalDateTime tailStart = watermark.isAfter(start) ? watermark : start;
+        return jdbcTemplate.query(TAIL_SQL.formatted(granularity.truncUnit()), ROW_MAPPER,
+                Timestamp.valueOf(tailStart), Timestamp.valueOf(end));
+    }
+
+    /**
+     * @return true если агрегаты догнали now − lag
+     */
+    private boolean rollupWindow() {
+        LocalDateTime from = jdbcTemplate.queryForObject(LOCK_WATERMARK_SQL,
+                (rs, rowNum) -> rs.getTimestamp(1).toLocalDateTime(), WATERMARK);
+        LocalDateTime limit = LocalDateTime.now().minus(lag);
+        LocalDateTime to = from.plus(maxWindow).isBefore(limit) ? from.plus(maxWindow) : limit;
+        if (!to.isAfter(from)) {
+            return true;
+        }
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            jdbcTemplate.update(ROLLUP_SQL.formatted(granularity.table(), granularity.truncUnit()),
+                    Timestamp.valueOf(from), Timestamp.valueOf(to));
+        }
+        jdbcTemplate.update(UPDATE_WATERMARK_SQL, Timestamp.valueOf(to), WATERMARK);
+        log.debug("Агрегаты переводов обновлены за [{}, {})", from, to);
+        return to.equals(limit);
+    }
+
+    private static LocalDateTime truncate(RollupGranularity granularity, LocalDateTime time) {
+        return granularity == RollupGranularity.HOUR
+                ? time.truncatedTo(ChronoUnit.HOURS)
+                : time.truncatedTo(ChronoUnit.DAYS);
+    }
+
+    private record RollupRow(LocalDateTime bucketStart, TransactionStatus status, long count, BigDecimal amount) {
+    }
+
+    /**
+     * Накопитель одной корзины (агрегат + хвост)
+     */
+    private static final class Bucket {
+
+        private long successCount;
+        private long failedCount;
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        void add(RollupRow row) {
+            if (row.status() == TransactionStatus.SUCCESS) {
+                successCount += row.count();
+                amount = amount.add(row.amount());
+            } else {
+                failedCount += row.count();
+            }
+        }
+
+        TransferTimeseriesPoint toPoint(LocalDateTime bucketStart) {
+            long total = successCount + failedCount;
+            return TransferTimeseriesPoint.builder()
+                    .bucketStart(bucketStart)
+                    .totalCount(total)
+                    .successCount(successCount)
+                    .failedCount(failedCount)
+                    .totalAmount(amount)
+                    .failureRate(total == 0 ? 0.0 : (double) failedCount / total)
+                    .build();
+        }
+    }
+}
@@ -1,20 +1,30 @@
 package com.ayungi.cms.service;
 
+import com.ayungi.cms.audit.AuditDetailKey;
+import com.ayungi.cms.audit.AuditDetails;
+import com.ayungi.cms.datasource.ReadYourWritesTracker;
 import com.ayungi.cms.dto.mapper.TransactionMapper;
 import com.ayungi.cms.dto.request.TransferRequest;
+import com.ayungi.cms.dto.response.SliceResponse;
 import com.ayungi.cms.dto.response.TransactionResponse;
 import com.ayungi.cms.entity.Card;
 import com.ayungi.cms.entity.Transaction;
 import com.ayungi.cms.entity.User;
 import com.ayungi.cms.entity.enums.AuditAction;
+import com.ayungi.cms.entity.enums.CountMode;
 import com.ayungi.cms.entity.enums.TransactionStatus;
 import com.ayungi.cms.repository.CardRepository;
+import com.ayungi.cms.repository.RowCountEstimator;
+import com.ayungi.cms.repository.SliceQueryExecutor;
 import com.ayungi.cms.repository.TransactionRepository;
-import com.ayungi.cms.util.CardMaskUtil;
+import com.ayungi.cms.repository.specification.TransactionSpecifications;
+import com.ayungi.cms.security.RoleRegistry;
 import com.ayungi.cms.util.CardValidator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,22 +43,40 @@ public class TransferService {
     private final TransactionRepository transactionRepository;
     private final TransactionMapper transactionMapper;
     private final CardValidator cardValidator;
-    private final CardMaskUtil cardMaskUtil;
     private final AuditService auditService;
+    private final RoleRegistry roleRegistry;
+    private final StatisticsService statisticsService;
+    private final UserCardSummaryService cardSummaryService;
+    private final SliceQueryExecutor sliceQueryExecutor;
+    private final RowCountEstimator rowCountEstimator;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final QueryFanOut queryFanOut;
 
     public TransferService(
             CardRepository cardRepository,
             TransactionRepository transactionRepository,
             TransactionMapper transactionMapper,
             CardValidator cardValidator,
-            CardMaskUtil cardMaskUtil,
-            AuditService auditService) {
+            AuditService auditService,
+            RoleRegistry roleRegistry,
+            StatisticsService statisticsService,
+            UserCardSummaryService cardSummaryService,
+            SliceQueryExecutor sliceQueryExecutor,
+            RowCountEstimator rowCountEstimator,
+            ReadYourWritesTracker readYourWritesTracker,
+            QueryFanOut queryFanOut) {
         this.cardRepository = cardRepository;
         this.transactionRepository = transactionRepository;
         this.transactionMapper = transactionMapper;
         this.cardValidator = cardValidator;
-        this.cardMaskUtil = cardMaskUtil;
         this.auditService = auditService;
+        this.roleRegistry = roleRegistry;
+        this.statisticsService = statisticsService;
+        this.cardSummaryService = cardSummaryService;
+        this.sliceQueryExecutor = sliceQueryExecutor;
+        this.rowCountEstimator = rowCountEstimator;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.queryFanOut = queryFanOut;
     }
 
     /**
@@ -59,6 +87,9 @@ public class TransferService {
         log.info("Перевод {} с карты {} на карту {}", 
                 request.getAmount(), request.getFromCardId(), request.getToCardId());
 
+        // Следующие чтения пользователя — из основной БД, пока реплика не догонит перевод
+        readYourWritesTracker.recordWrite(currentUser.getUsername());
+
         // Загрузка карт
         Card fromCard = cardRepository.findById(request.getFromCardId())
                 .orElseThrow(() -> new RuntimeException("Карта-источник не найдена"));
@@ -102,15 +133,18 @@ public class TransferService {
                     .build();
 
             transaction = transactionRepository.save(transaction);
+            statisticsService.transactionRecorded(TransactionStatus.SUCCESS, request.getAmount());
+            cardSummaryService.balanceTransferred(fromCard.getOwner().getId(), toCard.getOwner().getId(),
+                    request.getAmount());
 
             log.info("Перевод {} успешно выполнен", request.getAmount());
 
             auditService.logAction(currentUser, AuditAction.TRANSFER, "Transaction", 
                     transaction.getId().toString(),
-                    String.format("Перевод %s с карты %s на карту %s", 
-                            request.getAmount(),
-                            cardMaskUtil.maskCardNumber(fromCard.getCardNumber()),
-                            cardMaskUtil.maskCardNumber(toCard.getCardNumber())),
+                    AuditDetails.message("Перевод между картами")
+                            .with(AuditDetailKey.AMOUNT, request.getAmount())
+                            .with(AuditDetailKey.FROM_CARD_ID, fromCard.getId())
+                            .with(AuditDetailKey.TO_CARD_ID, toCard.getId()),
                     null);
 
             return transactionMapper.toResponse(transaction);
@@ -136,6 +170,7 @@ public class TransferService {
                 .build();
 
         transaction = transactionRepository.save(transaction);
+        statisticsService.transactionRecorded(TransactionStatus.FAILED, amount);
         
         return transactionMapper.toResponse(transaction);
     }
@@ -163,7 +198,7 @@ public class TransferService {
 
         // Проверка прав доступа
         if (!card.getOwner().getId().equals(currentUser.getId()) &&
-            currentUser.getRoles().stream().noneMatch(role -> role.getName().equals("ADMIN"))) {
+            !roleRegistry.isAdmin(currentUser)) {
             throw new RuntimeException("Недостаточно прав для просмотра транзакций");
         }
 
@@ -184,7 +219,7 @@ public class TransferService {
         // Проверка прав доступа
         boolean hasAccess = transaction.getFromCard().getOwner().getId().equals(currentUser.getId()) ||
                            transaction.getToCard().getOwner().getId().equals(currentUser.getId()) ||
-                           currentUser.getRoles().stream().anyMatch(role -> role.getName().equals("ADMIN"));
+                           roleRegistry.isAdmin(currentUser);
 
         if (!hasAccess) {
             throw new RuntimeException("Недостаточно прав для просмотра транзакции");
@@ -221,13 +256,29 @@ public class TransferService {
      * Получение всех транзакций с фильтрацией (для ADMIN)
      */
     @Transactional(readOnly = true)
-    public Page<TransactionResponse> getAllTransactions(
-            TransactionStatus status, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
-        log.debug("Получение всех транзакций с фильтрами");
+    public SliceResponse<TransactionResponse> getAllTransactions(
+            TransactionStatus status, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable,
+            CountMode countMode) {
+        log.debug("Получение всех транзакций с фильтрами ({})", countMode);
+
+        Specification<Transaction> specification = TransactionSpecifications.withFilters(status, startDate, endDate);
+        if (countMode == CountMode.EXACT) {
+            // Подсчет выполняется параллельно с выборкой страницы; при ошибке подсчета total не заполняется
+            try (QueryFanOut.Scope scope = queryFanOut.open()) {
+                QueryFanOut.Field<Long> total = scope.fork("total", () -> transactionRepository.count(specification));
+                Slice<TransactionResponse> transactions =
+                        sliceQueryExecutor.findSlice(Transaction.class, specification, pageable)
+                                .map(transactionMapper::toResponse);
+                scope.join();
+                return SliceResponse.of(transactions, total.get(), false);
+            }
+        }
 
-        String statusStr = status != null ? status.name() : null;
-        return transactionRepository.findAllWithFilters(statusStr, startDate, endDate, pageable)
+        Slice<TransactionResponse> transactions = sliceQueryExecutor.findSlice(Transaction.class, specification, pageable)
                 .map(transactionMapper::toResponse);
+        Long total = countMode == CountMode.ESTIMATED
+                ? rowCountEstimator.estimateTransactions(status, startDate, endDate) : null;
+        return SliceResponse.of(transactions, total, true);
     }
 
     /**
@@ -0,0 +1,175 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.dto.response.CardSummaryResponse;
+import com.ayungi.cms.entity.enums.CardStatus;
+import com.ayungi.cms.repository.UserCardSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сводка карт пользователя (user_card_summary): количество карт, активных карт и общий баланс.
+ * <p>
+ * Изменяется дельтами в транзакции, которая меняет карты (создание, удаление, смена статуса, перевод),
+ * поэтому чтение — один поиск по первичному ключу вместо агрегации по картам.
+ * Периодическая проверка пересчитывает сводки порциями пользователей и исправляет расхождения.
+ */
+@Service
+@Slf4j
+public class UserCardSummaryService {
+
+    private static final String CHUNK_SQL = "SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String ENSURE_SQL =
+            "INSERT INTO user_card_summary (user_id) SELECT id FROM users WHERE id = ANY(?) " +
+            "ON CONFLICT (user_id) DO NOTHING";
+
+    // Блокировка строк до пересчета: снимок карт берется после фиксации конкурирующих изменений сводки
+    private static final String LOCK_SQL =
+            "SELECT user_id FROM user_card_summary WHERE user_id = ANY(?) ORDER BY user_id FOR UPDATE";
+
+    private static final String REPAIR_SQL = """
+            UPDATE user_card_summary s SET cards_count = a.cards_count, active_cards_count = a.active_cards_count,
+                total_balance = a.total_balance, updated_at = now()
+            FROM (
+                SELECT u.id AS user_id, COUNT(c.id) AS cards_count,
+                       COUNT(c.id) FILTER (WHERE c.status = 'ACTIVE') AS active_cards_count,
+                       COALESCE(SUM(c.balance), 0) AS total_balance
+                FROM unnest(?::uuid[]) AS u(id) LEFT JOIN cards c ON c.owner_id = u.id
+                GROUP BY u.id
+            ) a
+            WHERE s.user_id = a.user_id
+              AND (s.cards_count <> a.cards_count OR s.active_cards_count <> a.active_cards_count
+                   OR s.total_balance <> a.total_balance)""";
+
+    private static final UUID MIN_USER_ID = new UUID(0L, 0L);
+
+    private final UserCardSummaryRepository summaryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int verifyBatchSize;
+
+    public UserCardSummaryService(
+            UserCardSummaryRepository summaryRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${card-summary.verify-batch-size:500}") int verifyBatchSize) {
+        this.summaryRepository = summaryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.verifyBatchSize = verifyBatchSize;
+    }
+
+    /**
+     * Сводка карт пользователя
+     */
+    @Transactional(readOnly = true)
+    public CardSummaryResponse getSummary(UUID userId) {
+        return summaryRepository.findById(userId)
+                .map(summary -> CardSummaryResponse.builder()
+                        .cardsCount(summary.getCardsCount())
+                        .activeCardsCount(summary.getActiveCardsCount())
+                        .totalBalance(summary.getTotalBalance())
+                        .build())
+                .orElseGet(() -> CardSummaryResponse.builder()
+                        .cardsCount(0)
+                        .activeCardsCount(0)
+                        .totalBalance(BigDecimal.ZERO)
+                        .build());
+    }
+
+    public void cardCreated(UUID ownerId, CardStatus status, BigDecimal balance) {
+        summaryRepository.adjust(ownerId, 1, active(status), balance);
+    }
+
+    public void cardDeleted(UUID ownerId, CardStatus status, BigDecimal balance) {
+        summaryRepository.adjust(ownerId, -1, -active(status), balance.negate());
+    }
+
+    public void cardStatusChanged(UUID ownerId, CardStatus previous, CardStatus current) {
+        int delta = active(current) - active(previous);
+        if (delta != 0) {
+            summaryRepository.adjust(ownerId, 0, delta, BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Перевод между картами: между картами одного владельца общий баланс не меняется
+     */
+    public void balanceTransferred(UUID fromOwnerId, UUID toOwnerId, BigDecimal amount) {
+        if (fromOwnerId.equals(toOwnerId)) {
+            return;
+        }
+        // Строки сводок блокируются в порядке ID, чтобы встречные переводы не взаимоблокировались
+        if (fromOwnerId.compareTo(toOwnerId) < 0) {
+            summaryRepository.adjust(fromOwnerId, 0, 0, amount.negate());
+            summaryRepository.adjust(toOwnerId, 0, 0, amount);
+        } else {
+            summaryRepository.adjust(toOwnerId, 0, 0, amount);
+            summaryRepository.adjust(fromOwnerId, 0, 0, amount.negate());
+        }
+    }
+
+    /**
+     * Пересчет сводки пользователя по картам (после пакетного удаления карт)
+     */
+    public void recalculate(UUID userId) {
+        summaryRepository.recalculate(userId);
+    }
+
+    /**
+     * Проверка всех сводок порциями пользователей с исправлением расхождений
+     */
+    @Scheduled(cron = "${card-summary.verify-cron:0 20 * * * *}")
+    public void verify() {
+        UUID after = MIN_USER_ID;
+        long users = 0;
+        long repaired = 0;
+        List<UUID> chunk;
+        while (!(chunk = jdbcTemplate.queryForList(CHUNK_SQL, UUID.class, after, verifyBatchSize)).isEmpty()) {
+            UUID[] ids = chunk.toArray(UUID[]::new);
+            Integer fixed = transactionTemplate.execute(status -> verifyChunk(ids));
+            repaired += fixed != null ? fixed : 0;
+            users += ids.length;
+            after = ids[ids.length - 1];
+        }
+
+        if (repaired > 0) {
+            log.warn("Сводки карт: исправлено расхождений {} из {} пользователей", repaired, users);
+        } else {
+            log.debug("Сводки карт проверены: {} пользователей, расхождений нет", users);
+        }
+    }
+
+    private int verifyChunk(UUID[] ids) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(ENSURE_SQL);
+            ps.setArray(1, connection.createArrayOf("uuid", ids));
+            return ps;
+        });
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(LOCK_SQL);
+            ps.setArray(1, connection.createArrayOf("uuid", ids));
+            return ps;
+        }, rs -> {
+        });
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(REPAIR_SQL);
+            ps.setArray(1, connection.createArrayOf("uuid", ids));
+            return ps;
+        });
+    }
+
+    private static int active(CardStatus status) {
+        return status == CardStatus.ACTIVE ? 1 : 0;
+    }
+}
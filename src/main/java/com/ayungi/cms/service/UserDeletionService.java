@@ -0,0 +1,153 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.audit.AuditDetailKey;
+import com.ayungi.cms.audit.AuditDetails;
+import com.ayungi.cms.dto.response.UserDeletionJobResponse;
+import com.ayungi.cms.entity.User;
+import com.ayungi.cms.entity.UserDeletionJob;
+import com.ayungi.cms.entity.enums.AuditAction;
+import com.ayungi.cms.entity.enums.DeletionJobStatus;
+import com.ayungi.cms.exception.BusinessException;
+import com.ayungi.cms.exception.ResourceNotFoundException;
+import com.ayungi.cms.repository.UserDeletionJobRepository;
+import com.ayungi.cms.repository.UserRepository;
+import com.ayungi.cms.security.RefreshTokenStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Сервис асинхронного удаления пользователей.
+ * <p>
+ * Запрос на удаление блокирует пользователя, отзывает его refresh токены и создает задание;
+ * удаление данных выполняет {@link UserDeletionWorker} после фиксации транзакции.
+ */
+@Service
+@Slf4j
+public class UserDeletionService {
+
+    /**
+     * Статусы незавершенных заданий
+     */
+    static final Set<DeletionJobStatus> ACTIVE_STATUSES = EnumSet.of(DeletionJobStatus.PENDING, DeletionJobStatus.RUNNING);
+
+    private final UserDeletionJobRepository jobRepository;
+    private final UserRepository userRepository;
+    private final UserDeletionWorker deletionWorker;
+    private final RefreshTokenStore refreshTokenStore;
+    private final AuditService auditService;
+
+    public UserDeletionService(
+            UserDeletionJobRepository jobRepository,
+            UserRepository userRepository,
+            UserDeletionWorker deletionWorker,
+            RefreshTokenStore refreshTokenStore,
+            AuditService auditService) {
+        this.jobRepository = jobRepository;
+        this.userRepository = userRepository;
+        this.deletionWorker = deletionWorker;
+        this.refreshTokenStore = refreshTokenStore;
+        this.auditService = auditService;
+    }
+
+    /**
+     * Запрос на удаление пользователя (только для ADMIN)
+     */
+    @Transactional
+    public UserDeletionJobResponse requestDeletion(UUID userId, User currentUser) {
+        log.info("Запрос на удаление пользователя: {}", userId);
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+
+        // Нельзя удалить самого себя
+        if (user.getId().equals(currentUser.getId())) {
+            throw BusinessException.cannotDeleteSelf();
+        }
+
+        if (jobRepository.existsByUserIdAndStatusIn(userId, ACTIVE_STATUSES)) {
+            throw BusinessException.userDeletionInProgress();
+        }
+
+        // Пользователь остается заблокированным, пока удаляются его данные
+        user.setEnabled(false);
+        userRepository.save(user);
+        refreshTokenStore.revokeAllForUser(userId);
+
+        UserDeletionJob job = jobRepository.save(UserDeletionJob.builder()
+                .userId(userId)
+                .username(user.getUsername())
+                .requestedBy(currentUser.getId())
+                .totalCards(user.getCardsCount())
+                .build());
+
+        auditService.logAction(currentUser, AuditAction.DELETE, "User", userId.toString(),
+                AuditDetails.message("Запрошено удаление пользователя")
+                        .with(AuditDetailKey.USERNAME, user.getUsername()), null);
+
+        submitAfterCommit(job.getId());
+        return toResponse(job);
+    }
+
+    /**
+     * Получение состояния задания на удаление
+     */
+    @Transactional(readOnly = true)
+    public UserDeletionJobResponse getJob(UUID jobId) {
+        return jobRepository.findById(jobId)
+                .map(this::toResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Задание на удаление", "id", jobId));
+    }
+
+    /**
+     * Возобновление заданий, прерванных остановкой приложения (при старте и периодически).
+     * Задание выполняет только исполнитель, захвативший его в {@link UserDeletionWorker}
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${user-deletion.resume-interval-ms:300000}",
+            initialDelayString = "${user-deletion.resume-interval-ms:300000}")
+    public void resumeUnfinished() {
+        for (UserDeletionJob job : jobRepository.findByStatusIn(ACTIVE_STATUSES)) {
+            log.debug("Попытка возобновления удаления пользователя {} (задание {})", job.getUsername(), job.getId());
+            deletionWorker.execute(job.getId());
+        }
+    }
+
+    /**
+     * Запуск задания только после фиксации транзакции, чтобы исполнитель увидел задание
+     */
+    private void submitAfterCommit(UUID jobId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deletionWorker.execute(jobId);
+            }
+        });
+    }
+
+    private UserDeletionJobResponse toResponse(UserDeletionJob job) {
+        return UserDeletionJobResponse.builder()
+                .id(job.getId())
+                .userId(job.getUserId())
+                .username(job.getUsername())
+                .status(job.getStatus())
+                .totalCards(job.getTotalCards())
+                .cardsDeleted(job.getCardsDeleted())
+                .transactionsDeleted(job.getTransactionsDeleted())
+                .auditLogsDetached(job.getAuditLogsDetached())
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
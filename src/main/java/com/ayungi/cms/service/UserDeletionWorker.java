@@ -0,0 +1,192 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.audit.AuditDetailKey;
+import com.ayungi.cms.audit.AuditDetails;
+import com.ayungi.cms.entity.UserDeletionJob;
+import com.ayungi.cms.entity.enums.AuditAction;
+import com.ayungi.cms.entity.enums.DeletionJobStatus;
+import com.ayungi.cms.repository.AuditLogRepository;
+import com.ayungi.cms.repository.CardRepository;
+import com.ayungi.cms.repository.TransactionRepository;
+import com.ayungi.cms.repository.UserDeletionJobRepository;
+import com.ayungi.cms.repository.UserRepository;
+import com.ayungi.cms.repository.projection.DeletedCardsView;
+import com.ayungi.cms.repository.projection.DeletedTransactionsView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Исполнитель заданий на удаление пользователей.
+ * <p>
+ * Зависимые строки удаляются порциями фиксированного размера, каждая порция в своей
+ * короткой транзакции: транзакции карт, затем сами карты, затем отвязка логов аудита,
+ * и только в конце строка пользователя. Прогресс фиксируется вместе с каждой порцией,
+ * поэтому прерванное задание можно безопасно продолжить.
+ * <p>
+ * Задание захватывается условным UPDATE: его выполняет ровно один узел, а выполняющееся
+ * задание перехватывается, только если его прогресс не обновлялся дольше stale-after-minutes.
+ */
+@Component
+@Slf4j
+public class UserDeletionWorker {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final UserDeletionJobRepository jobRepository;
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final TransactionRepository transactionRepository;
+    private final AuditLogRepository auditLogRepository;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+    private final StatisticsService statisticsService;
+    private final UserCardSummaryService cardSummaryService;
+
+    @Value("${user-deletion.card-chunk-size:100}")
+    private int cardChunkSize;
+
+    @Value("${user-deletion.transaction-chunk-size:5000}")
+    private int transactionChunkSize;
+
+    @Value("${user-deletion.audit-chunk-size:5000}")
+    private int auditChunkSize;
+
+    @Value("${user-deletion.stale-after-minutes:10}")
+    private long staleAfterMinutes;
+
+    public UserDeletionWorker(
+            UserDeletionJobRepository jobRepository,
+            UserRepository userRepository,
+            CardRepository cardRepository,
+            TransactionRepository transactionRepository,
+            AuditLogRepository auditLogRepository,
+            AuditService auditService,
+            TransactionTemplate transactionTemplate,
+            StatisticsService statisticsService,
+            UserCardSummaryService cardSummaryService) {
+        this.jobRepository = jobRepository;
+        this.userRepository = userRepository;
+        this.cardRepository = cardRepository;
+        this.transactionRepository = transactionRepository;
+        this.auditLogRepository = auditLogRepository;
+        this.auditService = auditService;
+        this.transactionTemplate = transactionTemplate;
+        this.statisticsService = statisticsService;
+        this.cardSummaryService = cardSummaryService;
+    }
+
+    /**
+     * Выполнение задания на удаление
+     */
+    @Async("taskExecutor")
+    public void execute(UUID jobId) {
+        UserDeletionJob job = transactionTemplate.execute(status -> start(jobId));
+        if (job == null) {
+            return;
+        }
+
+        UUID userId = job.getUserId();
+        log.info("Начато удаление пользователя {} (задание {})", job.getUsername(), jobId);
+
+        try {
+            deleteCards(jobId, userId);
+            detachAuditLogs(jobId, userId);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                if (userRepository.deleteRowById(userId) > 0) {
+                    statisticsService.userDeleted();
+                }
+                finish(jobId, DeletionJobStatus.COMPLETED, null);
+            });
+            log.info("Пользователь {} успешно удален (задание {})", job.getUsername(), jobId);
+
+            auditService.logAction(
+                    job.getRequestedBy() == null ? null : userRepository.findById(job.getRequestedBy()).orElse(null),
+                    AuditAction.DELETE, "User", userId.toString(),
+                    AuditDetails.message("Удаление пользователя завершено")
+                            .with(AuditDetailKey.USERNAME, job.getUsername()), null);
+        } catch (RuntimeException e) {
+            log.error("Ошибка удаления пользователя {} (задание {}): {}", job.getUsername(), jobId, e.getMessage(), e);
+            transactionTemplate.executeWithoutResult(status ->
+                    finish(jobId, DeletionJobStatus.FAILED, truncate(e.getMessage())));
+        }
+    }
+
+    private UserDeletionJob start(UUID jobId) {
+        LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+        if (jobRepository.claim(jobId, DeletionJobStatus.PENDING, DeletionJobStatus.RUNNING, staleBefore) == 0) {
+            log.debug("Задание {} выполняется другим исполнителем или уже завершено", jobId);
+            return null;
+        }
+        return jobRepository.findById(jobId).orElse(null);
+    }
+
+    /**
+     * Удаление карт порциями: сначала все транзакции порции карт, затем сами карты.
+     * Итоги каждой порции применяются к статистике как дельты после ее фиксации
+     */
+    private void deleteCards(UUID jobId, UUID userId) {
+        List<UUID> cardIds;
+        while (!(cardIds = cardRepository.findIdsByOwnerId(userId, cardChunkSize)).isEmpty()) {
+            List<UUID> chunk = cardIds;
+
+            Integer deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> {
+                    DeletedTransactionsView removed = transactionRepository.deleteChunkByCardIds(chunk, transactionChunkSize);
+                    int count = removed.getCount().intValue();
+                    jobRepository.addProgress(jobId, 0, count, 0);
+                    statisticsService.transactionsDeleted(removed.getSuccessful(), removed.getFailed(), removed.getAmount());
+                    return count;
+                });
+            } while (deleted != null && deleted > 0);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                DeletedCardsView removed = cardRepository.deleteByIds(chunk);
+                int count = removed.getCount().intValue();
+                userRepository.adjustCardsCount(userId, -count);
+                statisticsService.cardsDeleted(removed.getActive(), removed.getBlocked(), removed.getExpired(),
+                        removed.getBalance());
+                cardSummaryService.recalculate(userId);
+                jobRepository.addProgress(jobId, count, 0, 0);
+            });
+        }
+    }
+
+    /**
+     * Отвязка логов аудита порциями (логи сохраняются без ссылки на пользователя)
+     */
+    private void detachAuditLogs(UUID jobId, UUID userId) {
+        Integer detached;
+        do {
+            detached = transactionTemplate.execute(status -> {
+                int count = auditLogRepository.detachChunkFromUser(userId, auditChunkSize);
+                jobRepository.addProgress(jobId, 0, 0, count);
+                return count;
+            });
+        } while (detached != null && detached > 0);
+    }
+
+    private void finish(UUID jobId, DeletionJobStatus status, String errorMessage) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(status);
+            job.setErrorMessage(errorMessage);
+            job.setFinishedAt(LocalDateTime.now());
+            jobRepository.save(job);
+        });
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
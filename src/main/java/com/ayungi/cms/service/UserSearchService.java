@@ -0,0 +1,104 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.dto.mapper.UserMapper;
+import com.ayungi.cms.dto.response.SliceResponse;
+import com.ayungi.cms.dto.response.UserResponse;
+import com.ayungi.cms.dto.response.UserSearchResponse;
+import com.ayungi.cms.entity.enums.UserSearchMode;
+import com.ayungi.cms.repository.UserRepository;
+import com.ayungi.cms.repository.projection.UserSearchView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Сервис поиска пользователей (триграммный поиск по подстроке и префиксные подсказки)
+ */
+@Service
+@Slf4j
+public class UserSearchService {
+
+    /**
+     * Минимальная длина запроса, при которой триграммный индекс эффективен
+     */
+    private static final int MIN_TRIGRAM_LENGTH = 3;
+
+    private static final int MAX_SUGGESTIONS = 50;
+
+    /**
+     * Максимальное количество ранжируемых совпадений поиска (дальше запрос стоит уточнить)
+     */
+    static final int MAX_SEARCH_CANDIDATES = 1000;
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+
+    public UserSearchService(UserRepository userRepository, UserMapper userMapper) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+    }
+
+    /**
+     * Поиск пользователей по имени или email с ранжированием по релевантности.
+     * Для запросов короче трех символов поиск по подстроке не может использовать
+     * триграммный индекс, поэтому выполняется префиксный поиск.
+     * Выдаются {@link #MAX_SEARCH_CANDIDATES} самых релевантных совпадений, общее количество не считается.
+     */
+    @Transactional(readOnly = true)
+    public SliceResponse<UserResponse> searchUsers(String query, UserSearchMode mode, Pageable pageable) {
+        String term = normalize(query);
+        log.debug("Поиск пользователей: '{}', режим {}", term, mode);
+
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        String pattern = mode == UserSearchMode.PREFIX || term.length() < MIN_TRIGRAM_LENGTH
+                ? escapeLike(term) + "%"
+                : "%" + escapeLike(term) + "%";
+
+        return SliceResponse.of(userRepository.searchUsers(term, pattern, MAX_SEARCH_CANDIDATES, unsorted)
+                .map(userMapper::toResponse), null, false);
+    }
+
+    /**
+     * Подсказки для type-ahead: префиксный поиск, ранжированный, без загрузки сущностей
+     */
+    @Transactional(readOnly = true)
+    public List<UserSearchResponse> suggest(String query, int limit) {
+        String term = normalize(query);
+        if (term.isEmpty()) {
+            return List.of();
+        }
+
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        return userRepository.suggestByPrefix(term, escapeLike(term) + "%", boundedLimit).stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    private UserSearchResponse toResponse(UserSearchView view) {
+        return UserSearchResponse.builder()
+                .id(view.getId())
+                .username(view.getUsername())
+                .email(view.getEmail())
+                .enabled(view.getEnabled())
+                .score(view.getScore())
+                .build();
+    }
+
+    private String normalize(String query) {
+        return query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Экранирование спецсимволов LIKE, чтобы пользовательский ввод не становился шаблоном
+     */
+    private String escapeLike(String term) {
+        return term.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
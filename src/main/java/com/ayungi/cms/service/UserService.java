@@ -1,19 +1,36 @@
 package com.ayungi.cms.service;
 
+import com.ayungi.cms.audit.AuditDetailKey;
+import com.ayungi.cms.audit.AuditDetails;
+import com.ayungi.cms.audit.LoginBuckets;
 import com.ayungi.cms.dto.mapper.UserMapper;
 import com.ayungi.cms.dto.request.UpdateUserRequest;
+import com.ayungi.cms.dto.response.SliceResponse;
 import com.ayungi.cms.dto.response.UserResponse;
 import com.ayungi.cms.entity.User;
+import com.ayungi.cms.entity.UserLoginSummary;
 import com.ayungi.cms.entity.enums.AuditAction;
+import com.ayungi.cms.entity.enums.CountMode;
+import com.ayungi.cms.exception.BusinessException;
+import com.ayungi.cms.repository.RowCountEstimator;
+import com.ayungi.cms.repository.UserDeletionJobRepository;
+import com.ayungi.cms.repository.UserLoginSummaryRepository;
 import com.ayungi.cms.repository.UserRepository;
+import com.ayungi.cms.security.RefreshTokenStore;
+import com.ayungi.cms.security.RoleRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для управления пользователями
@@ -26,27 +43,67 @@ public class UserService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final AuditService auditService;
+    private final RefreshTokenStore refreshTokenStore;
+    private final RoleRegistry roleRegistry;
+    private final UserDeletionJobRepository deletionJobRepository;
+    private final UserLoginSummaryRepository loginSummaryRepository;
+    private final RowCountEstimator rowCountEstimator;
+    private final QueryFanOut queryFanOut;
 
     public UserService(
             UserRepository userRepository,
             UserMapper userMapper,
             PasswordEncoder passwordEncoder,
-            AuditService auditService) {
+            AuditService auditService,
+            RefreshTokenStore refreshTokenStore,
+            RoleRegistry roleRegistry,
+            UserDeletionJobRepository deletionJobRepository,
+            UserLoginSummaryRepository loginSummaryRepository,
+            RowCountEstimator rowCountEstimator,
+            QueryFanOut queryFanOut) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
         this.auditService = auditService;
+        this.refreshTokenStore = refreshTokenStore;
+        this.roleRegistry = roleRegistry;
+        this.deletionJobRepository = deletionJobRepository;
+        this.loginSummaryRepository = loginSummaryRepository;
+        this.rowCountEstimator = rowCountEstimator;
+        this.queryFanOut = queryFanOut;
     }
 
     /**
      * Получение всех пользователей
      */
     @Transactional(readOnly = true)
-    public Page<UserResponse> getAllUsers(Pageable pageable) {
-        log.debug("Получение всех пользователей");
-        
-        return userRepository.findAll(pageable)
-                .map(userMapper::toResponse);
+    public SliceResponse<UserResponse> getAllUsers(Pageable pageable, CountMode countMode) {
+        log.debug("Получение всех пользователей ({})", countMode);
+
+        if (countMode == CountMode.EXACT) {
+            // Подсчет выполняется параллельно с выборкой страницы; при ошибке подсчета total не заполняется
+            try (QueryFanOut.Scope scope = queryFanOut.open()) {
+                QueryFanOut.Field<Long> total = scope.fork("total", userRepository::count);
+                Slice<UserResponse> users = withLoginActivity(userRepository.findAllBy(pageable));
+                scope.join();
+                return SliceResponse.of(users, total.get(), false);
+            }
+        }
+
+        Slice<UserResponse> users = withLoginActivity(userRepository.findAllBy(pageable));
+        Long total = countMode == CountMode.ESTIMATED ? rowCountEstimator.estimateUsers() : null;
+        return SliceResponse.of(users, total, true);
+    }
+
+    /**
+     * Преобразование среза пользователей с активностью входов (одна выборка сводок на страницу)
+     */
+    private Slice<UserResponse> withLoginActivity(Slice<User> users) {
+        Map<UUID, UserLoginSummary> summaries = loginSummaryRepository
+                .findAllById(users.map(User::getId).getContent()).stream()
+                .collect(Collectors.toMap(UserLoginSummary::getUserId, Function.identity()));
+
+        return users.map(user -> withLoginActivity(userMapper.toResponse(user), summaries.get(user.getId())));
     }
 
     /**
@@ -59,7 +116,7 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
         
-        return userMapper.toResponse(user);
+        return withLoginActivity(userMapper.toResponse(user), loginSummaryRepository.findById(userId).orElse(null));
     }
 
     /**
@@ -87,7 +144,7 @@ public class UserService {
 
         // Проверка прав (пользователь может обновлять только свои данные)
         if (!user.getId().equals(currentUser.getId()) && 
-            currentUser.getRoles().stream().noneMatch(role -> role.getName().equals("ADMIN"))) {
+            !roleRegistry.isAdmin(currentUser)) {
             throw new RuntimeException("Недостаточно прав для обновления данных пользователя");
         }
 
@@ -111,45 +168,12 @@ public class UserService {
             log.info("Пользователь {} успешно обновлен", user.getUsername());
             
             auditService.logAction(currentUser, AuditAction.UPDATE, "User", user.getId().toString(),
-                    "Обновление данных пользователя", null);
+                    AuditDetails.message("Обновление данных пользователя"), null);
         }
 
         return userMapper.toResponse(user);
     }
 
-    /**
-     * Удаление пользователя (только для ADMIN)
-     */
-    @Transactional
-    public void deleteUser(UUID userId, User currentUser) {
-        log.info("Удаление пользователя: {}", userId);
-        
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
-
-        // Нельзя удалить самого себя
-        if (user.getId().equals(currentUser.getId())) {
-            throw new RuntimeException("Нельзя удалить собственный аккаунт");
-        }
-
-        userRepository.delete(user);
-        log.info("Пользователь {} успешно удален", user.getUsername());
-        
-        auditService.logAction(currentUser, AuditAction.DELETE, "User", user.getId().toString(),
-                "Удаление пользователя: " + user.getUsername(), null);
-    }
-
-    /**
-     * Поиск пользователей
-     */
-    @Transactional(readOnly = true)
-    public Page<UserResponse> searchUsers(String searchTerm, Pageable pageable) {
-        log.debug("Поиск пользователей: {}", searchTerm);
-        
-        return userRepository.searchUsers(searchTerm, pageable)
-                .map(userMapper::toResponse);
-    }
-
     /**
      * Получение активных пользователей
      */
@@ -187,15 +211,44 @@ public class UserService {
             throw new RuntimeException("Нельзя изменить статус собственного аккаунта");
         }
 
+        // Пользователь в процессе удаления не может быть разблокирован
+        if (!user.getEnabled() &&
+            deletionJobRepository.existsByUserIdAndStatusIn(userId, UserDeletionService.ACTIVE_STATUSES)) {
+            throw BusinessException.userDeletionInProgress();
+        }
+
         user.setEnabled(!user.getEnabled());
         user = userRepository.save(user);
+
+        // Заблокированный пользователь не должен продлевать сессии через refresh токены
+        if (!user.getEnabled()) {
+            refreshTokenStore.revokeAllForUser(user.getId());
+        }
         
         String action = user.getEnabled() ? "Разблокировка" : "Блокировка";
         log.info("{} пользователя {}", action, user.getUsername());
         
         auditService.logAction(currentUser, AuditAction.UPDATE, "User", user.getId().toString(),
-                action + " пользователя", null);
+                AuditDetails.message(action + " пользователя")
+                        .with(AuditDetailKey.ENABLED, user.getEnabled()), null);
 
         return userMapper.toResponse(user);
     }
+
+    /**
+     * Дополнение ответа активностью входов из сводки (без обращения к истории аудита)
+     */
+    private UserResponse withLoginActivity(UserResponse response, UserLoginSummary summary) {
+        if (summary == null) {
+            response.setLoginsLast30Days(0L);
+            response.setTotalLogins(0L);
+            return response;
+        }
+        response.setLastLoginAt(summary.getLastLoginAt());
+        response.setLastLoginIp(summary.getLastLoginIp());
+        response.setLoginsLast30Days(LoginBuckets.rollingCount(
+                summary.getDailyCounts(), summary.getBucketDay(), LocalDate.now()));
+        response.setTotalLogins(summary.getTotalLogins());
+        return response;
+    }
 }
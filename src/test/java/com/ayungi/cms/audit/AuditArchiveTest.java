@@ -0,0 +1,112 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты записи и чтения архива аудита
+ */
+class AuditArchiveTest {
+
+    private static final LocalDateTime MONTH_START = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final List<AuditEvent> events = new ArrayList<>();
+
+    private AuditArchiveReader reader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            UUID userId = i % 10 == 0 ? bob : alice;
+            AuditAction action = i % 10 == 0 ? AuditAction.TRANSFER : AuditAction.LOGIN;
+            events.add(new AuditEvent(UUID.randomUUID(), userId, action, "User", userId.toString(),
+                    AuditDetails.message("event " + i).with(AuditDetailKey.AMOUNT, BigDecimal.valueOf(i, 2)),
+                    "127.0.0.1", MONTH_START.plusMinutes(i)));
+        }
+
+        try (AuditArchiveWriter writer = new AuditArchiveWriter(directory.resolve("audit-2024-03-000.arc"), 64)) {
+            for (AuditEvent event : events) {
+                writer.add(event);
+            }
+            writer.finish();
+        }
+        reader = new AuditArchiveReader(directory.toString());
+    }
+
+    @Test
+    void find_ShouldReturnNewestFirstWithOffset() {
+        // Given
+        AuditArchiveQuery query = new AuditArchiveQuery(null, null, null, null, null);
+        List<AuditEvent> expected = events.stream()
+                .sorted(Comparator.comparing(AuditEvent::timestamp).reversed())
+                .skip(130)
+                .limit(20)
+                .toList();
+
+        // When
+        List<AuditEvent> page = reader.find(query, 130, 20);
+
+        // Then
+        assertEquals(expected, page);
+        assertEquals(1000, reader.count(query));
+    }
+
+    @Test
+    void find_WithUserActionAndPeriod_ShouldFilterAcrossBlocks() {
+        // Given
+        LocalDateTime start = MONTH_START.plusMinutes(100);
+        LocalDateTime end = MONTH_START.plusMinutes(399);
+        AuditArchiveQuery query = new AuditArchiveQuery(bob, AuditAction.TRANSFER, null, start, end);
+
+        // When
+        List<AuditEvent> result = reader.find(query, 0, 100);
+
+        // Then
+        assertEquals(30, result.size());
+        assertEquals(30, reader.count(query));
+        assertTrue(result.stream().allMatch(event -> bob.equals(event.userId())));
+        assertEquals(MONTH_START.plusMinutes(390), result.get(0).timestamp());
+    }
+
+    @Test
+    void count_WithPeriodCoveringSegment_ShouldMatchUnboundedCount() {
+        // Given
+        AuditArchiveQuery unbounded = new AuditArchiveQuery(alice, null, null, null, null);
+        AuditArchiveQuery covering = new AuditArchiveQuery(alice, null, null,
+                MONTH_START.minusDays(1), MONTH_START.plusMonths(1));
+        AuditArchiveQuery partial = new AuditArchiveQuery(alice, null, null, null, MONTH_START.plusMinutes(99));
+
+        // When / Then: повторные подсчеты берутся из кэша сегмента и не смешиваются
+        assertEquals(900, reader.count(unbounded));
+        assertEquals(900, reader.count(covering));
+        assertEquals(90, reader.count(partial));
+        assertEquals(900, reader.count(unbounded));
+        assertEquals(90, reader.count(partial));
+    }
+
+    @Test
+    void covers_ShouldMatchOnlyArchivedMonths() {
+        assertTrue(reader.covers(null, null));
+        assertTrue(reader.covers(LocalDateTime.of(2024, 3, 31, 12, 0), null));
+        assertFalse(reader.covers(LocalDateTime.of(2024, 4, 1, 0, 0), null));
+        assertFalse(reader.covers(null, LocalDateTime.of(2024, 2, 29, 23, 59)));
+    }
+}
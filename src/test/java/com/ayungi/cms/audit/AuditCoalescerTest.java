@@ -0,0 +1,91 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для AuditCoalescer
+ */
+class AuditCoalescerTest {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
+    private static final LocalDateTime START = LocalDateTime.of(2025, 10, 1, 12, 0);
+
+    private final UUID userId = UUID.randomUUID();
+    private final AuditCoalescer coalescer =
+            new AuditCoalescer(List.of(AuditAction.LOGIN, AuditAction.TRANSFER), 1000, 100);
+
+    @Test
+    void accept_SameKeyWithinWindow_ShouldWriteOneRecordWithCount() {
+        // Given
+        List<AuditEvent> events = List.of(
+                event(AuditAction.LOGIN, 0, "10.0.0.1"),
+                event(AuditAction.LOGIN, 1, "10.0.0.2"),
+                event(AuditAction.LOGIN, 2, "10.0.0.3"));
+        List<AuditEvent> out = new ArrayList<>();
+
+        // When
+        int merged = coalescer.accept(events, out, 0);
+        coalescer.drainExpired(out, WINDOW_NANOS - 1);
+
+        // Then: до истечения окна ничего не записано
+        assertEquals(2, merged);
+        assertTrue(out.isEmpty());
+
+        coalescer.drainExpired(out, WINDOW_NANOS);
+        assertEquals(1, out.size());
+        AuditEvent record = out.get(0);
+        assertEquals(events.get(0).id(), record.id());
+        assertEquals(START, record.timestamp());
+        assertEquals(3, record.count());
+        assertEquals(START.plusSeconds(2), record.lastTimestamp());
+        assertEquals("10.0.0.3", record.ipAddress());
+        assertEquals(0, coalescer.pendingGroups());
+    }
+
+    @Test
+    void accept_TransferAndOtherActions_ShouldPassThroughImmediately() {
+        // Given
+        List<AuditEvent> events = List.of(
+                event(AuditAction.TRANSFER, 0, null),
+                event(AuditAction.TRANSFER, 1, null),
+                event(AuditAction.UPDATE, 2, null));
+        List<AuditEvent> out = new ArrayList<>();
+
+        // When
+        int merged = coalescer.accept(events, out, 0);
+
+        // Then
+        assertEquals(0, merged);
+        assertEquals(events, out);
+        assertTrue(out.stream().allMatch(event -> event.count() == 1));
+    }
+
+    @Test
+    void drainAll_ShouldKeepSingleEventUnchanged() {
+        // Given
+        AuditEvent login = event(AuditAction.LOGIN, 0, "10.0.0.1");
+        List<AuditEvent> out = new ArrayList<>();
+        coalescer.accept(List.of(login), out, 0);
+
+        // When
+        coalescer.drainAll(out);
+
+        // Then
+        assertEquals(List.of(login), out);
+        assertNull(login.details().get(AuditDetailKey.COUNT));
+    }
+
+    private AuditEvent event(AuditAction action, int seconds, String ip) {
+        return new AuditEvent(UUID.randomUUID(), userId, action, "User", userId.toString(),
+                AuditDetails.message("test"), ip, START.plusSeconds(seconds));
+    }
+}
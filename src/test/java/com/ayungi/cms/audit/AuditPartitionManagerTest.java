@@ -0,0 +1,72 @@
+package com.ayungi.cms.audit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для AuditPartitionManager на PostgreSQL (схема из миграций, с секцией audit_logs_default).
+ * Без Docker пропускаются
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class AuditPartitionManagerTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.liquibase.enabled", () -> "true");
+        registry.add("audit.archive.enabled", () -> "false");
+    }
+
+    @Autowired
+    private AuditPartitionManager partitionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void purgeBefore_WithDefaultPartition_ShouldDetachAndDropOldPartition() {
+        // Given: секция давнего месяца с записью при существующей секции по умолчанию
+        YearMonth old = YearMonth.now().minusYears(3);
+        partitionManager.createPartition(old);
+        jdbcTemplate.update("INSERT INTO audit_logs (id, action, timestamp) VALUES (?, 'LOGIN', ?)",
+                UUID.randomUUID(), Timestamp.valueOf(old.atDay(2).atStartOfDay()));
+        assertTrue(tableExists("audit_logs_default"));
+
+        // When
+        boolean done = partitionManager.purgeBefore(old.plusMonths(1));
+
+        // Then
+        assertTrue(done);
+        assertFalse(tableExists(AuditPartitionManager.partitionName(old)));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM audit_logs WHERE timestamp < ?", Integer.class,
+                Timestamp.valueOf(old.plusMonths(1).atDay(1).atStartOfDay())));
+    }
+
+    private boolean tableExists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+}
@@ -0,0 +1,77 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Нагрузочный тест конвейера аудита (устойчивая пропускная способность, событий/с).
+ * Запуск: mvn test -Dtest=AuditPipelineBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AuditPipelineBenchmarkTest {
+
+    private static final int PRODUCERS = 8;
+    private static final int EVENTS_PER_PRODUCER = 500_000;
+
+    @Test
+    void sustainedThroughput() throws InterruptedException {
+        // Given: запись в БД заменена счетчиком, измеряется сам конвейер
+        LongAdder writtenEvents = new LongAdder();
+        AuditWriter writer = new AuditWriter(null, null) {
+            @Override
+            public void writeBatch(List<AuditEvent> events) {
+                writtenEvents.add(events.size());
+            }
+        };
+        AuditPipeline pipeline = new AuditPipeline(writer, Optional.empty(), Optional.empty(), List.of(), new SimpleMeterRegistry(),
+                65536, 500, AuditBackpressurePolicy.BLOCK, 1000, 3, 0.75);
+        pipeline.start();
+
+        UUID userId = UUID.randomUUID();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(PRODUCERS);
+
+        for (int p = 0; p < PRODUCERS; p++) {
+            Thread.ofPlatform().start(() -> {
+                try {
+                    startSignal.await();
+                    for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                        pipeline.publish(AuditEvent.of(userId, AuditAction.LOGIN, "User",
+                                userId.toString(), AuditDetails.message("Вход в систему"), "127.0.0.1"));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        // When
+        long startNanos = System.nanoTime();
+        startSignal.countDown();
+        done.await(5, TimeUnit.MINUTES);
+        pipeline.stop();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        // Then
+        long total = (long) PRODUCERS * EVENTS_PER_PRODUCER;
+        AuditPipelineStats stats = pipeline.getStats();
+        System.out.printf("Конвейер аудита: %d событий за %d мс, %.0f событий/с, отброшено %d%n",
+                total, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                total * 1_000_000_000.0 / elapsedNanos, stats.dropped());
+        assertEquals(total, stats.written() + stats.dropped());
+        assertEquals(stats.written(), writtenEvents.sum());
+    }
+}
@@ -0,0 +1,65 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для AuditRingBuffer
+ */
+class AuditRingBufferTest {
+
+    @Test
+    void offer_WhenFull_ShouldRejectUntilDrained() {
+        // Given
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(event()));
+        }
+
+        // When & Then
+        assertFalse(buffer.offer(event()));
+        assertEquals(4, buffer.size());
+
+        List<AuditEvent> sink = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(sink, 2));
+        assertTrue(buffer.offer(event()));
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    void drainTo_ShouldPreservePublicationOrderAcrossWraparound() {
+        // Given
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        List<AuditEvent> published = new ArrayList<>();
+        List<AuditEvent> drained = new ArrayList<>();
+
+        // When
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 3; i++) {
+                AuditEvent event = event();
+                published.add(event);
+                assertTrue(buffer.offer(event));
+            }
+            buffer.drainTo(drained, Integer.MAX_VALUE);
+        }
+
+        // Then
+        assertEquals(published, drained);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void constructor_ShouldRoundCapacityUpToPowerOfTwo() {
+        assertEquals(8, new AuditRingBuffer(5).capacity());
+        assertEquals(8, new AuditRingBuffer(8).capacity());
+    }
+
+    private AuditEvent event() {
+        return AuditEvent.of(null, AuditAction.LOGIN, "User", null, null, null);
+    }
+}
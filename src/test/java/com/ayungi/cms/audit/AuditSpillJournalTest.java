@@ -0,0 +1,214 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для AuditSpillJournal
+ */
+class AuditSpillJournalTest {
+
+    private static final int SEGMENT_SIZE_MB = 1;
+    private static final String FIRST_SEGMENT = "00000000000000000000.seg";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_ThenReopen_ShouldReplayPendingEvents() throws IOException {
+        // Given
+        List<AuditEvent> events = events(3, "event");
+        AuditSpillJournal journal = open();
+        journal.append(events);
+        journal.close();
+
+        // When
+        AuditSpillJournal reopened = open();
+
+        // Then
+        assertTrue(reopened.hasPending());
+        assertEquals(ids(events), ids(reopened.peek(10)));
+    }
+
+    @Test
+    void reopen_WithTornLastRecord_ShouldKeepOnlyCompleteRecords() throws IOException {
+        // Given
+        List<AuditEvent> events = events(2, "event");
+        AuditSpillJournal journal = open();
+        journal.append(events);
+        journal.close();
+
+        // Обрыв записи: данные второй записи не совпадают с ее crc32
+        int secondRecord = 8 + AuditEventCodec.encode(events.get(0)).length;
+        try (FileChannel channel = FileChannel.open(directory.resolve(FIRST_SEGMENT), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f, 0x7f, 0x7f, 0x7f}), secondRecord + 8);
+        }
+
+        // When
+        AuditSpillJournal reopened = open();
+        AuditEvent appended = events(1, "after recovery").get(0);
+        reopened.append(List.of(appended));
+
+        // Then
+        assertEquals(List.of(events.get(0).id(), appended.id()), ids(reopened.peek(10)));
+        reopened.close();
+        assertEquals(List.of(events.get(0).id(), appended.id()), ids(open().peek(10)));
+    }
+
+    @Test
+    void acknowledge_ShouldPersistCheckpoint() throws IOException {
+        // Given
+        List<AuditEvent> events = events(3, "event");
+        AuditSpillJournal journal = open();
+        journal.append(events);
+
+        // When
+        List<AuditEvent> batch = journal.peek(2);
+        journal.acknowledge();
+        journal.close();
+
+        // Then
+        assertEquals(ids(events.subList(0, 2)), ids(batch));
+        assertTrue(Files.exists(directory.resolve("checkpoint")));
+        AuditSpillJournal reopened = open();
+        assertEquals(ids(events.subList(2, 3)), ids(reopened.peek(10)));
+    }
+
+    @Test
+    void peek_WithoutAcknowledge_ShouldNotMoveCheckpoint() throws IOException {
+        // Given
+        List<AuditEvent> events = events(3, "event");
+        AuditSpillJournal journal = open();
+        journal.append(events);
+
+        // When
+        journal.peek(2);
+        journal.close();
+
+        // Then
+        assertEquals(ids(events), ids(open().peek(10)));
+    }
+
+    @Test
+    void acknowledge_ShouldRecycleSegmentsForNewWrites() throws IOException {
+        // Given: события по ~100 КБ, пакет занимает несколько сегментов по 1 МБ
+        String payload = "x".repeat(100 * 1024);
+        List<AuditEvent> first = events(25, payload);
+        AuditSpillJournal journal = open();
+        journal.append(first);
+        assertTrue(segmentFiles() > 1);
+
+        // When
+        assertEquals(ids(first), ids(journal.peek(first.size())));
+        journal.acknowledge();
+
+        // Then: подтвержденные сегменты стали запасными, не больше двух
+        long spares = spareFiles();
+        assertTrue(spares > 0 && spares <= 2);
+        assertFalse(journal.hasPending());
+
+        // When: новые сегменты берутся из запасных
+        List<AuditEvent> second = events(25, payload);
+        journal.append(second);
+        journal.close();
+
+        // Then
+        assertTrue(spareFiles() < spares);
+        assertEquals(ids(second), ids(open().peek(second.size())));
+    }
+
+    @Test
+    void peek_WithCorruptedRecord_ShouldQuarantineAndSkipIt() throws IOException {
+        // Given: данные второй записи повреждены после записи
+        List<AuditEvent> events = events(3, "event");
+        AuditSpillJournal journal = open();
+        journal.append(events);
+        int secondRecord = 8 + AuditEventCodec.encode(events.get(0)).length;
+        try (FileChannel channel = FileChannel.open(directory.resolve(FIRST_SEGMENT), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f, 0x7f, 0x7f, 0x7f}), secondRecord + 8);
+        }
+
+        // When
+        List<AuditEvent> batch = journal.peek(10);
+        journal.peek(10);
+        journal.acknowledge();
+
+        // Then: запись пропущена и сохранена в карантин один раз
+        assertEquals(List.of(events.get(0).id(), events.get(2).id()), ids(batch));
+        assertEquals(1, journal.corruptedRecords());
+        assertTrue(Files.size(directory.resolve("quarantine")) > 0);
+        assertFalse(journal.hasPending());
+    }
+
+    @Test
+    void append_WhenJournalIsFull_ShouldRejectBatchWithoutWriting() throws IOException {
+        // Given: журнал не больше двух сегментов по 1 МБ
+        String payload = "x".repeat(100 * 1024);
+        List<AuditEvent> first = events(15, payload);
+        AuditSpillJournal journal = open(2);
+        assertTrue(journal.append(first));
+
+        // When
+        boolean accepted = journal.append(events(10, payload));
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(ids(first), ids(journal.peek(100)));
+
+        // When: после подтверждения место освобождается
+        journal.acknowledge();
+
+        // Then
+        assertTrue(journal.append(events(10, payload)));
+    }
+
+    private AuditSpillJournal open() {
+        return open(1024);
+    }
+
+    private AuditSpillJournal open(int maxSizeMb) {
+        return new AuditSpillJournal(directory.toString(), SEGMENT_SIZE_MB, true, maxSizeMb);
+    }
+
+    private List<AuditEvent> events(int count, String message) {
+        List<AuditEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID userId = UUID.randomUUID();
+            events.add(new AuditEvent(UUID.randomUUID(), userId, AuditAction.LOGIN, "User", userId.toString(),
+                    AuditDetails.message(message), "127.0.0.1", START.plusSeconds(i)));
+        }
+        return events;
+    }
+
+    private static List<UUID> ids(List<AuditEvent> events) {
+        return events.stream().map(AuditEvent::id).toList();
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().matches("\\d{20}\\.seg")).count();
+        }
+    }
+
+    private long spareFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("spare-")).count();
+        }
+    }
+}
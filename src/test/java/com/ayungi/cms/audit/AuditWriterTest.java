@@ -0,0 +1,59 @@
+package com.ayungi.cms.audit;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты для AuditWriter
+ */
+@ExtendWith(MockitoExtension.class)
+class AuditWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void writeIndividually_ShouldReturnOnlyWrittenEvents() {
+        // Given: второе событие ссылается на удаленного пользователя
+        AuditEvent first = event();
+        AuditEvent broken = event();
+        AuditEvent third = event();
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any())).thenAnswer(invocation -> {
+            Collection<?> events = invocation.getArgument(1);
+            if (events.contains(broken)) {
+                throw new DataIntegrityViolationException("audit_logs_user_id_fkey");
+            }
+            return new int[][]{{1}};
+        });
+        AuditWriter writer = new AuditWriter(jdbcTemplate, new AuditDetailsJson(new ObjectMapper()));
+
+        // When
+        List<AuditEvent> written = writer.writeIndividually(List.of(first, broken, third));
+
+        // Then
+        assertEquals(List.of(first, third), written);
+    }
+
+    private static AuditEvent event() {
+        UUID userId = UUID.randomUUID();
+        return new AuditEvent(UUID.randomUUID(), userId, AuditAction.LOGIN, "User", userId.toString(),
+                AuditDetails.message("event"), "127.0.0.1", LocalDateTime.now());
+    }
+}
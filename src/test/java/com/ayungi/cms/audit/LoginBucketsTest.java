@@ -0,0 +1,58 @@
+package com.ayungi.cms.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для LoginBuckets
+ */
+class LoginBucketsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 10, 1);
+
+    @Test
+    void rollingCount_ShouldExcludeDaysOutsideWindow() {
+        // Given
+        int[] buckets = LoginBuckets.empty();
+        LocalDate anchor = LoginBuckets.record(buckets, null, DAY, 3);
+        anchor = LoginBuckets.record(buckets, anchor, DAY.plusDays(10), 2);
+
+        // When & Then
+        assertEquals(DAY.plusDays(10), anchor);
+        assertEquals(5, LoginBuckets.rollingCount(buckets, anchor, DAY.plusDays(10)));
+        assertEquals(5, LoginBuckets.rollingCount(buckets, anchor, DAY.plusDays(29)));
+        assertEquals(2, LoginBuckets.rollingCount(buckets, anchor, DAY.plusDays(30)));
+        assertEquals(0, LoginBuckets.rollingCount(buckets, anchor, DAY.plusDays(40)));
+    }
+
+    @Test
+    void record_AfterWindowWrap_ShouldResetStaleBuckets() {
+        // Given
+        int[] buckets = LoginBuckets.empty();
+        LocalDate anchor = LoginBuckets.record(buckets, null, DAY, 7);
+
+        // When: тот же слот кольца через 30 дней
+        anchor = LoginBuckets.record(buckets, anchor, DAY.plusDays(30), 1);
+
+        // Then
+        assertEquals(1, LoginBuckets.rollingCount(buckets, anchor, DAY.plusDays(30)));
+    }
+
+    @Test
+    void record_LateEvent_ShouldCountOnlyInsideWindow() {
+        // Given
+        int[] buckets = LoginBuckets.empty();
+        LocalDate anchor = LoginBuckets.record(buckets, null, DAY, 1);
+
+        // When
+        anchor = LoginBuckets.record(buckets, anchor, DAY.minusDays(5), 1);
+        anchor = LoginBuckets.record(buckets, anchor, DAY.minusDays(30), 1);
+
+        // Then
+        assertEquals(DAY, anchor);
+        assertEquals(2, LoginBuckets.rollingCount(buckets, anchor, DAY));
+    }
+}
@@ -0,0 +1,188 @@
+package com.ayungi.cms.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты для WorkloadRoutingDataSource
+ */
+@ExtendWith(MockitoExtension.class)
+class WorkloadRoutingDataSourceTest {
+
+    @Mock
+    private DataSource oltp;
+
+    @Mock
+    private DataSource reporting;
+
+    @Mock
+    private DataSource audit;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private ReplicaLagMonitor lagMonitor;
+
+    private ReadYourWritesTracker tracker;
+
+    private WorkloadRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new ReadYourWritesTracker(true, 60_000);
+        routing = new WorkloadRoutingDataSource(oltp, reporting, audit, replica, lagMonitor, tracker);
+        lenient().when(lagMonitor.isUsable()).thenReturn(true);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Workload.OLTP.bind();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clear();
+        Workload.clear();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica() {
+        // When / Then
+        assertEquals(DataSourceRoute.REPLICA, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void writeTransaction_ShouldUsePoolOfWorkload() {
+        // Given
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+
+        // When
+        DataSourceRoute userRequest = routing.determineCurrentLookupKey();
+        Workload.clear();
+        DataSourceRoute background = routing.determineCurrentLookupKey();
+
+        // Then
+        assertEquals(DataSourceRoute.OLTP, userRequest);
+        assertEquals(DataSourceRoute.REPORTING, background);
+    }
+
+    @Test
+    void auditWorkload_ShouldUseAuditPool() {
+        // Given
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        Workload.AUDIT.bind();
+
+        // When / Then
+        assertEquals(DataSourceRoute.AUDIT, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void withoutReplica_ShouldNeverRouteToReplica() {
+        // Given
+        WorkloadRoutingDataSource primaryOnly = new WorkloadRoutingDataSource(oltp, reporting, audit, null, null, tracker);
+
+        // When / Then
+        assertEquals(DataSourceRoute.OLTP, primaryOnly.determineCurrentLookupKey());
+    }
+
+    @Test
+    void laggingReplica_ShouldFallBackToPrimaryPool() {
+        // Given
+        when(lagMonitor.isUsable()).thenReturn(false);
+
+        // When / Then
+        assertEquals(DataSourceRoute.OLTP, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readAfterOwnTransfer_ShouldStickToPrimaryPoolForThatUserOnly() {
+        // Given
+        tracker.recordWrite("alice");
+
+        // When
+        authenticate("alice");
+        DataSourceRoute writer = routing.determineCurrentLookupKey();
+        authenticate("bob");
+        DataSourceRoute other = routing.determineCurrentLookupKey();
+
+        // Then
+        assertEquals(DataSourceRoute.OLTP, writer);
+        assertEquals(DataSourceRoute.REPLICA, other);
+    }
+
+    @Test
+    void readOnlyReadThenWriteInOneRequest_ShouldSendWriteToPrimaryPool() throws SQLException {
+        // Given: источник как в DataSourceConfig, у каждой транзакции свое соединение (open-in-view выключен)
+        TransactionSynchronizationManager.clear();
+        Connection replicaConnection = mock(Connection.class);
+        Connection oltpConnection = mock(Connection.class);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(oltp.getConnection()).thenReturn(oltpConnection);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(routing);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        dataSource.afterPropertiesSet();
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionTemplate read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+        TransactionTemplate write = new TransactionTemplate(transactionManager);
+
+        // When: поиск текущего пользователя, затем перевод
+        read.executeWithoutResult(status -> useConnection(dataSource));
+        write.executeWithoutResult(status -> useConnection(dataSource));
+
+        // Then
+        verify(replica, times(1)).getConnection();
+        verify(oltp, times(1)).getConnection();
+        verify(oltpConnection).commit();
+    }
+
+    @Test
+    void applicationConfig_ShouldDisableOpenInView() {
+        // Given: при open-in-view соединение первой транзакции держится весь запрос
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+
+        // When / Then
+        assertEquals("false", yaml.getObject().getProperty("spring.jpa.open-in-view"));
+    }
+
+    private static void useConnection(DataSource dataSource) {
+        try {
+            DataSourceUtils.getConnection(dataSource).createStatement();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+}
@@ -0,0 +1,222 @@
+package com.ayungi.cms.repository.specification;
+
+import com.ayungi.cms.entity.enums.AuditAction;
+import com.ayungi.cms.entity.enums.CardStatus;
+import com.ayungi.cms.entity.enums.TransactionStatus;
+import com.ayungi.cms.repository.AuditLogRepository;
+import com.ayungi.cms.repository.CardRepository;
+import com.ayungi.cms.repository.TransactionRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка планов запросов фильтров админки: для каждой комбинации фильтров
+ * SQL, сгенерированный Hibernate, должен выполняться по предназначенному индексу.
+ * Входит в {@code mvn test}; без доступного Docker пропускается
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FilterQueryPlanTest {
+
+    private static final Pattern SQL_COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.liquibase.enabled", () -> "true");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                SqlCapture.class::getName);
+    }
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Pageable cardsPage = PageRequest.of(0, 10, Sort.by("createdAt").descending());
+    private final Pageable timestampPage = PageRequest.of(0, 10, Sort.by("timestamp").descending());
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("""
+                INSERT INTO users (id, username, email, password)
+                SELECT gen_random_uuid(), 'user' || i, 'user' || i || '@test.local', 'x'
+                FROM generate_series(1, 200) i""");
+        jdbcTemplate.execute("""
+                INSERT INTO cards (id, card_number, owner_id, expiration_date, status, created_at)
+                SELECT gen_random_uuid(), 'card' || i, u.id, DATE '2030-01-01',
+                       (ARRAY['ACTIVE', 'ACTIVE', 'BLOCKED', 'EXPIRED'])[1 + i % 4],
+                       now() - i * interval '1 minute'
+                FROM generate_series(1, 20000) i
+                JOIN LATERAL (SELECT id FROM users ORDER BY id OFFSET i % 200 LIMIT 1) u ON true""");
+        jdbcTemplate.execute("""
+                INSERT INTO transactions (id, from_card_id, to_card_id, amount, status, timestamp)
+                SELECT gen_random_uuid(), c.id, c.id, 1, CASE WHEN i % 20 = 0 THEN 'FAILED' ELSE 'SUCCESS' END,
+                       now() - i * interval '1 minute'
+                FROM generate_series(1, 50000) i
+                JOIN LATERAL (SELECT id FROM cards ORDER BY id OFFSET i % 1000 LIMIT 1) c ON true""");
+        jdbcTemplate.execute("""
+                INSERT INTO audit_logs (id, user_id, action, entity_type, entity_id, timestamp)
+                SELECT gen_random_uuid(), u.id,
+                       (ARRAY['CREATE', 'UPDATE', 'DELETE', 'BLOCK', 'ACTIVATE', 'TRANSFER', 'LOGIN', 'LOGOUT'])[1 + i % 8],
+                       (ARRAY['User', 'Card', 'Transaction'])[1 + i % 3], NULL,
+                       date_trunc('month', now()) + (i % 1000) * interval '1 second'
+                FROM generate_series(1, 50000) i
+                JOIN LATERAL (SELECT id FROM users ORDER BY id OFFSET i % 200 LIMIT 1) u ON true""");
+        jdbcTemplate.execute("ANALYZE users, cards, transactions, audit_logs");
+    }
+
+    @Test
+    void cardFiltersUseIntendedIndexes() {
+        UUID ownerId = jdbcTemplate.queryForObject("SELECT id FROM users LIMIT 1", UUID.class);
+
+        assertPlanUses(() -> cardRepository.findAll(CardSpecifications.withFilters(null, null), cardsPage),
+                "idx_card_created_at");
+        assertPlanUses(() -> cardRepository.findAll(CardSpecifications.withFilters(null, ownerId), cardsPage),
+                "idx_card_owner_created");
+        assertPlanUses(() -> cardRepository.findAll(CardSpecifications.withFilters(CardStatus.BLOCKED, null), cardsPage),
+                "idx_card_status_created");
+        assertPlanUses(() -> cardRepository.findAll(CardSpecifications.withFilters(CardStatus.BLOCKED, ownerId), cardsPage),
+                "idx_card_owner_created");
+    }
+
+    @Test
+    void transactionFiltersUseIntendedIndexes() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now();
+
+        assertPlanUses(() -> transactionRepository.findAll(
+                TransactionSpecifications.withFilters(null, null, null), timestampPage), "idx_transaction_timestamp");
+        assertPlanUses(() -> transactionRepository.findAll(
+                TransactionSpecifications.withFilters(null, start, end), timestampPage), "idx_transaction_timestamp");
+        assertPlanUses(() -> transactionRepository.findAll(
+                TransactionSpecifications.withFilters(TransactionStatus.FAILED, null, null), timestampPage),
+                "idx_transaction_status_timestamp");
+        assertPlanUses(() -> transactionRepository.findAll(
+                TransactionSpecifications.withFilters(TransactionStatus.FAILED, start, end), timestampPage),
+                "idx_transaction_status_timestamp");
+    }
+
+    @Test
+    void auditFiltersUseIntendedIndexesInEveryPartition() {
+        UUID userId = jdbcTemplate.queryForObject("SELECT id FROM users LIMIT 1", UUID.class);
+        LocalDateTime start = LocalDateTime.now().minusMonths(1);
+        LocalDateTime end = LocalDateTime.now().plusDays(1);
+
+        // Индексы секций наследуют имя по колонкам: audit_logs_yYYYYmMM_<колонки>_idx
+        assertPlanUses(() -> auditLogRepository.findAll(
+                AuditLogSpecifications.withFilters(null, null, null, start, end), timestampPage), "m\\d{2}_timestamp_idx");
+        assertPlanUses(() -> auditLogRepository.findAll(
+                AuditLogSpecifications.withFilters(userId, null, null, start, end), timestampPage), "user_id_timestamp_idx");
+        assertPlanUses(() -> auditLogRepository.findAll(
+                AuditLogSpecifications.withFilters(null, AuditAction.LOGIN, null, start, end), timestampPage),
+                "action_timestamp_idx");
+        assertPlanUses(() -> auditLogRepository.findAll(
+                AuditLogSpecifications.withFilters(null, null, "Card", start, end), timestampPage),
+                "entity_type_timestamp_idx");
+        assertPlanUses(() -> auditLogRepository.findAll(
+                AuditLogSpecifications.withFilters(userId, AuditAction.LOGIN, null, start, end), timestampPage),
+                "user_id_timestamp_idx");
+    }
+
+    /**
+     * Выполняет запрос, берет из перехваченных SQL выборку страницы
+     * и проверяет ее обобщенный план (одинаковый для всех значений параметров)
+     */
+    private void assertPlanUses(Runnable query, String indexPattern) {
+        SqlCapture.STATEMENTS.clear();
+        query.run();
+
+        String sql = SqlCapture.STATEMENTS.stream()
+                .map(statement -> SQL_COMMENT.matcher(statement).replaceAll("").strip())
+                .filter(statement -> statement.startsWith("select") && statement.contains("order by"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Запрос страницы не перехвачен"));
+
+        String plan = explainGeneric(sql);
+        assertFalse(plan.contains("Seq Scan"), () -> "Последовательное чтение в плане:\n" + sql + "\n" + plan);
+        assertTrue(Pattern.compile(indexPattern).matcher(plan).find(),
+                () -> "Ожидался индекс " + indexPattern + ":\n" + sql + "\n" + plan);
+    }
+
+    private String explainGeneric(String sql) {
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char ch : sql.toCharArray()) {
+            if (ch == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(ch);
+            }
+        }
+
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery("EXPLAIN (GENERIC_PLAN) " + numbered)) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                }
+                statement.execute("RESET enable_seqscan");
+                return plan.toString();
+            }
+        });
+    }
+
+    /**
+     * Перехват SQL, который Hibernate отправляет в БД
+     */
+    public static class SqlCapture implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
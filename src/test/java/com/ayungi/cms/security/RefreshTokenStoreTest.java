@@ -0,0 +1,134 @@
+package com.ayungi.cms.security;
+
+import com.ayungi.cms.entity.RefreshTokenFamily;
+import com.ayungi.cms.entity.User;
+import com.ayungi.cms.exception.AuthenticationException;
+import com.ayungi.cms.repository.RefreshTokenFamilyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для RefreshTokenStore
+ */
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenStoreTest {
+
+    @Mock
+    private RefreshTokenFamilyRepository familyRepository;
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    private RefreshTokenStore store;
+
+    private UUID familyId;
+
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtUtil.getRefreshTokenExpiration()).thenReturn(604800000L);
+        store = new RefreshTokenStore(familyRepository, jwtUtil);
+
+        familyId = UUID.randomUUID();
+        when(familyRepository.save(any(RefreshTokenFamily.class))).thenAnswer(invocation -> {
+            RefreshTokenFamily family = invocation.getArgument(0);
+            family.setId(familyId);
+            return family;
+        });
+        userId = UUID.randomUUID();
+        store.openFamily(User.builder().id(userId).build());
+    }
+
+    @Test
+    void rotate_WithCurrentSequence_ShouldReturnNextSequence() {
+        // Given
+        when(familyRepository.advanceSequence(eq(familyId), eq(0), eq(1), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        int next = store.rotate(familyId, 0);
+
+        // Then
+        assertEquals(1, next);
+        verify(familyRepository, never()).findById(any());
+    }
+
+    @Test
+    void rotate_WithRotatedSequence_ShouldRevokeFamily() {
+        // Given
+        when(familyRepository.advanceSequence(eq(familyId), anyInt(), anyInt(), any(LocalDateTime.class))).thenReturn(1);
+        store.rotate(familyId, 0);
+
+        // When & Then
+        assertThrows(AuthenticationException.class, () -> store.rotate(familyId, 0));
+        verify(familyRepository).revoke(familyId);
+
+        // Актуальный токен семейства тоже больше не принимается
+        assertThrows(AuthenticationException.class, () -> store.rotate(familyId, 1));
+    }
+
+    @Test
+    void revokeAllForUser_ShouldRejectTokensOfUserFamilies() {
+        // Given
+        when(familyRepository.revokeByUserId(userId)).thenReturn(1);
+
+        // When
+        store.revokeAllForUser(userId);
+
+        // Then
+        AuthenticationException ex = assertThrows(AuthenticationException.class, () -> store.rotate(familyId, 0));
+        assertEquals("AUTH_REFRESH_TOKEN_REUSED", ex.getCode());
+        verify(familyRepository, never()).advanceSequence(any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void purgeExpired_ShouldDropExpiredFamiliesFromMemory() {
+        // Given
+        UUID expiredId = UUID.randomUUID();
+        RefreshTokenFamily expired = RefreshTokenFamily.builder()
+                .id(expiredId)
+                .user(User.builder().id(userId).build())
+                .sequenceNumber(0)
+                .revoked(false)
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+        when(familyRepository.findActive(any(LocalDateTime.class))).thenReturn(List.of(expired));
+        store.loadActiveFamilies();
+
+        // When
+        store.purgeExpired();
+
+        // Then
+        verify(familyRepository).deleteExpired(any(LocalDateTime.class));
+        // Семейства нет в памяти — проверка идет по таблице
+        when(familyRepository.findById(expiredId)).thenReturn(Optional.empty());
+        AuthenticationException ex = assertThrows(AuthenticationException.class, () -> store.rotate(expiredId, 0));
+        assertEquals("AUTH_INVALID_TOKEN", ex.getCode());
+        verify(familyRepository).findById(expiredId);
+    }
+
+    @Test
+    void rotate_WithUnknownFamily_ShouldThrowInvalidToken() {
+        // Given
+        UUID unknown = UUID.randomUUID();
+        when(familyRepository.findById(unknown)).thenReturn(Optional.empty());
+
+        // When & Then
+        AuthenticationException ex = assertThrows(AuthenticationException.class, () -> store.rotate(unknown, 0));
+        assertEquals("AUTH_INVALID_TOKEN", ex.getCode());
+    }
+}
@@ -7,7 +7,10 @@ import com.ayungi.cms.entity.Role;
 import com.ayungi.cms.entity.User;
 import com.ayungi.cms.repository.RoleRepository;
 import com.ayungi.cms.repository.UserRepository;
+import com.ayungi.cms.exception.AuthenticationException;
 import com.ayungi.cms.security.JwtUtil;
+import com.ayungi.cms.security.RefreshTokenStore;
+import com.ayungi.cms.security.RoleRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -27,6 +30,7 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -57,6 +61,15 @@ class AuthServiceTest {
     @Mock
     private AuditService auditService;
 
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+
+    @Mock
+    private RoleRegistry roleRegistry;
+
+    @Mock
+    private StatisticsService statisticsService;
+
     @InjectMocks
     private AuthService authService;
 
@@ -82,12 +95,15 @@ class AuthServiceTest {
 
         when(userRepository.existsByUsername(anyString())).thenReturn(false);
         when(userRepository.existsByEmail(anyString())).thenReturn(false);
-        when(roleRepository.findByName("USER")).thenReturn(Optional.of(userRole));
+        when(roleRegistry.idOf(RoleRegistry.USER)).thenReturn(2L);
+        when(roleRegistry.bitOf(RoleRegistry.USER)).thenReturn(2);
+        when(roleRepository.getReferenceById(2L)).thenReturn(userRole);
         when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
         when(userRepository.save(any(User.class))).thenReturn(savedUser);
         when(userDetailsService.loadUserByUsername(anyString())).thenReturn(mock(UserDetails.class));
         when(jwtUtil.generateAccessToken(any())).thenReturn("accessToken");
-        when(jwtUtil.generateRefreshToken(any())).thenReturn("refreshToken");
+        when(refreshTokenStore.openFamily(any(User.class))).thenReturn(UUID.randomUUID());
+        when(jwtUtil.generateRefreshToken(any(), any(), anyInt())).thenReturn("refreshToken");
 
         // When
         AuthResponse response = authService.register(request);
@@ -140,7 +156,8 @@ class AuthServiceTest {
         when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(user));
         when(authentication.getPrincipal()).thenReturn(userDetails);
         when(jwtUtil.generateAccessToken(any())).thenReturn("accessToken");
-        when(jwtUtil.generateRefreshToken(any())).thenReturn("refreshToken");
+        when(refreshTokenStore.openFamily(any(User.class))).thenReturn(UUID.randomUUID());
+        when(jwtUtil.generateRefreshToken(any(), any(), anyInt())).thenReturn("refreshToken");
 
         // When
         AuthResponse response = authService.login(request, "127.0.0.1");
@@ -151,4 +168,47 @@ class AuthServiceTest {
         assertEquals("refreshToken", response.getRefreshToken());
         verify(authenticationManager).authenticate(any());
     }
+
+    @Test
+    void refreshToken_WithCurrentToken_ShouldRotateRefreshToken() {
+        // Given
+        UUID familyId = UUID.randomUUID();
+        User user = User.builder()
+                .username("testuser")
+                .roles(new HashSet<>())
+                .build();
+        UserDetails userDetails = mock(UserDetails.class);
+
+        when(jwtUtil.validateToken("oldRefresh")).thenReturn(true);
+        when(jwtUtil.extractFamilyId("oldRefresh")).thenReturn(familyId);
+        when(jwtUtil.extractSequence("oldRefresh")).thenReturn(3);
+        when(refreshTokenStore.rotate(familyId, 3)).thenReturn(4);
+        when(jwtUtil.extractUsername("oldRefresh")).thenReturn("testuser");
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
+        when(jwtUtil.generateAccessToken(userDetails)).thenReturn("accessToken");
+        when(jwtUtil.generateRefreshToken(userDetails, familyId, 4)).thenReturn("newRefresh");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        // When
+        AuthResponse response = authService.refreshToken("oldRefresh");
+
+        // Then
+        assertEquals("accessToken", response.getAccessToken());
+        assertEquals("newRefresh", response.getRefreshToken());
+    }
+
+    @Test
+    void refreshToken_WithReusedToken_ShouldThrowException() {
+        // Given
+        UUID familyId = UUID.randomUUID();
+
+        when(jwtUtil.validateToken("reused")).thenReturn(true);
+        when(jwtUtil.extractFamilyId("reused")).thenReturn(familyId);
+        when(jwtUtil.extractSequence("reused")).thenReturn(1);
+        when(refreshTokenStore.rotate(familyId, 1)).thenThrow(AuthenticationException.refreshTokenReused());
+
+        // When & Then
+        assertThrows(AuthenticationException.class, () -> authService.refreshToken("reused"));
+        verify(jwtUtil, never()).generateAccessToken(any());
+    }
 }
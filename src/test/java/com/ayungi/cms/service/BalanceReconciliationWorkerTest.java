@@ -0,0 +1,48 @@
+package com.ayungi.cms.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для разбиения ID карт на диапазоны в BalanceReconciliationWorker
+ */
+class BalanceReconciliationWorkerTest {
+
+    @Test
+    void bounds_ShouldCoverWholeUuidSpaceWithoutGaps() {
+        for (int chunks : new int[]{1, 3, 1000, 1024}) {
+            // Given / When
+            UUID first = BalanceReconciliationWorker.lowerBound(0, chunks);
+            UUID last = BalanceReconciliationWorker.upperBound(chunks - 1, chunks);
+
+            // Then
+            assertEquals(new UUID(0L, 0L), first);
+            assertEquals(new UUID(-1L, -1L), last);
+            for (int chunk = 1; chunk < chunks; chunk++) {
+                UUID previousUpper = BalanceReconciliationWorker.upperBound(chunk - 1, chunks);
+                UUID lower = BalanceReconciliationWorker.lowerBound(chunk, chunks);
+                assertEquals(-1L, previousUpper.getLeastSignificantBits());
+                assertEquals(0L, lower.getLeastSignificantBits());
+                assertEquals(previousUpper.getMostSignificantBits() + 1, lower.getMostSignificantBits());
+            }
+        }
+    }
+
+    @Test
+    void bounds_ShouldFollowUnsignedOrder() {
+        // Given
+        int chunks = 1024;
+
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            // When
+            long lower = BalanceReconciliationWorker.lowerBound(chunk, chunks).getMostSignificantBits();
+            long upper = BalanceReconciliationWorker.upperBound(chunk, chunks).getMostSignificantBits();
+
+            // Then (PostgreSQL сравнивает uuid побайтно — как беззнаковые числа)
+            assertTrue(Long.compareUnsigned(lower, upper) <= 0);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.ayungi.cms.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для QueryFanOut
+ */
+@ExtendWith(MockitoExtension.class)
+class QueryFanOutTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void fork_ShouldLimitStatementByRemainingDeadline() {
+        // Given
+        QueryFanOut fanOut = new QueryFanOut(jdbcTemplate, transactionManager, TIMEOUT_MS);
+
+        // When
+        Map<String, String> errors;
+        QueryFanOut.Field<Integer> field;
+        try (QueryFanOut.Scope scope = fanOut.open()) {
+            field = scope.fork("value", () -> 42);
+            errors = scope.join().errors();
+        }
+
+        // Then: запрос выполнен в транзакции, начатой с таймаута не больше дедлайна
+        assertTrue(errors.isEmpty());
+        assertEquals(42, field.get());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).execute(sql.capture());
+        assertTrue(sql.getValue().startsWith("SET LOCAL statement_timeout = "));
+        long timeout = Long.parseLong(sql.getValue().substring("SET LOCAL statement_timeout = ".length()));
+        assertTrue(timeout > 0 && timeout <= TIMEOUT_MS);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void fork_WhenDeadlineAlreadyPassed_ShouldNotRunQuery() {
+        // Given
+        QueryFanOut fanOut = new QueryFanOut(jdbcTemplate, transactionManager, 0);
+
+        // When
+        Map<String, String> errors;
+        try (QueryFanOut.Scope scope = fanOut.open()) {
+            scope.fork("value", () -> fail("запрос не должен выполняться"));
+            errors = scope.join().errors();
+        }
+
+        // Then
+        assertTrue(errors.containsKey("value"));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
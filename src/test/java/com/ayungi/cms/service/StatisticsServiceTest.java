@@ -0,0 +1,61 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.dto.response.StatisticsResponse;
+import com.ayungi.cms.entity.enums.CardStatus;
+import com.ayungi.cms.entity.enums.TransactionStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тесты для StatisticsService
+ */
+@ExtendWith(MockitoExtension.class)
+class StatisticsServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private QueryFanOut queryFanOut;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void bulkDeletion_ShouldSubtractDeletedTotals() {
+        // Given
+        StatisticsService service = new StatisticsService(jdbcTemplate, queryFanOut, transactionManager);
+        service.userCreated();
+        service.cardCreated(CardStatus.ACTIVE, new BigDecimal("100.00"));
+        service.cardCreated(CardStatus.BLOCKED, new BigDecimal("50.50"));
+        service.cardCreated(CardStatus.ACTIVE, new BigDecimal("10.00"));
+        service.transactionRecorded(TransactionStatus.SUCCESS, new BigDecimal("25.00"));
+        service.transactionRecorded(TransactionStatus.SUCCESS, new BigDecimal("5.00"));
+        service.transactionRecorded(TransactionStatus.FAILED, new BigDecimal("7.00"));
+
+        // When: удалены пользователь, две его карты и все их переводы, кроме одного успешного
+        service.transactionsDeleted(1, 1, new BigDecimal("25.00"));
+        service.cardsDeleted(1, 1, 0, new BigDecimal("150.50"));
+        service.userDeleted();
+
+        // Then
+        StatisticsResponse statistics = service.getStatistics();
+        assertEquals(0L, statistics.getTotalUsers());
+        assertEquals(1L, statistics.getTotalCards());
+        assertEquals(1L, statistics.getActiveCards());
+        assertEquals(0L, statistics.getBlockedCards());
+        assertEquals(new BigDecimal("10.00"), statistics.getTotalBalance());
+        assertEquals(1L, statistics.getTotalTransactions());
+        assertEquals(1L, statistics.getSuccessfulTransactions());
+        assertEquals(0L, statistics.getFailedTransactions());
+        assertEquals(new BigDecimal("5.00"), statistics.getTotalTransactionAmount());
+    }
+}
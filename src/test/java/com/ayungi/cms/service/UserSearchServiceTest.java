@@ -0,0 +1,93 @@
+package com.ayungi.cms.service;
+
+import com.ayungi.cms.dto.mapper.UserMapper;
+import com.ayungi.cms.dto.response.SliceResponse;
+import com.ayungi.cms.dto.response.UserResponse;
+import com.ayungi.cms.entity.enums.UserSearchMode;
+import com.ayungi.cms.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для UserSearchService
+ */
+@ExtendWith(MockitoExtension.class)
+class UserSearchServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @InjectMocks
+    private UserSearchService userSearchService;
+
+    @Test
+    void searchUsers_WithLikeWildcards_ShouldEscapeThem() {
+        // Given
+        when(userRepository.searchUsers(anyString(), anyString(), anyInt(), any()))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        // When
+        userSearchService.searchUsers(" Ann_50%\\x ", UserSearchMode.CONTAINS, PageRequest.of(0, 10));
+
+        // Then
+        verify(userRepository).searchUsers(eq("ann_50%\\x"), eq("%ann\\_50\\%\\\\x%"),
+                eq(UserSearchService.MAX_SEARCH_CANDIDATES), eq(PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void searchUsers_WithShortTerm_ShouldUsePrefixPattern() {
+        // Given
+        when(userRepository.searchUsers(anyString(), anyString(), anyInt(), any()))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        // When
+        userSearchService.searchUsers("_%", UserSearchMode.CONTAINS, PageRequest.of(0, 10));
+
+        // Then
+        verify(userRepository).searchUsers(eq("_%"), eq("\\_\\%%"), anyInt(), any());
+    }
+
+    @Test
+    void searchUsers_ShouldReturnSliceWithoutTotal() {
+        // Given
+        when(userRepository.searchUsers(anyString(), anyString(), anyInt(), any()))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 10), true));
+
+        // When
+        SliceResponse<UserResponse> result =
+                userSearchService.searchUsers("alice", UserSearchMode.PREFIX, PageRequest.of(0, 10));
+
+        // Then
+        assertTrue(result.getHasNext());
+        assertNull(result.getTotalElements());
+    }
+
+    @Test
+    void suggest_WithLikeWildcards_ShouldEscapeThem() {
+        // Given
+        when(userRepository.suggestByPrefix(anyString(), anyString(), anyInt())).thenReturn(List.of());
+
+        // When
+        userSearchService.suggest("a%b_", 500);
+
+        // Then: лимит ограничен сверху
+        verify(userRepository).suggestByPrefix("a%b_", "a\\%b\\_%", 50);
+    }
+}